@@ -0,0 +1,106 @@
+package net.greghaines.risky.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.greghaines.risky.battle.BattleOdds;
+import net.greghaines.risky.battle.BattleOutcome;
+import net.greghaines.risky.model.AttackResultMove;
+import net.greghaines.risky.model.CaptureMove;
+import net.greghaines.risky.model.GameBoard;
+import net.greghaines.risky.model.Player;
+import net.greghaines.risky.model.Territory;
+import net.greghaines.risky.utils.Dice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Attacks the way GameSession resolves them: one roll at a time (rolling both sides' dice, 
+ * comparing them and applying the losses to the board) or a whole blitz sampled in one draw.
+ * The board changes are taken back after each call so every call starts from the same armies.
+ * The 200 army battles are too big for the odds kept for good, so they exercise the cache of big battles.
+ * @author Greg Haines
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BattleBenchmark {
+	
+	@Param({ "5", "20", "200" })
+	private int armies;
+	
+	private final Random random = new Random(42);
+	private final int[] attackerRolls = new int[Dice.MAX_DICE];
+	private final int[] defenderRolls = new int[Dice.MAX_DICE];
+	private GameBoard board;
+	private Territory attackingTerritory;
+	private Territory defendingTerritory;
+	
+	@Setup
+	public void setUp() {
+		final List<Player> players = BenchmarkBoards.createPlayers(3, this.random);
+		this.board = BenchmarkBoards.createDealtBoard(players, this.random);
+		for (final Territory territory : this.board.getAllTerritories().values()) {
+			if (this.attackingTerritory == null && !territory.getAttackableTerritories().isEmpty()) {
+				this.attackingTerritory = territory;
+				this.defendingTerritory = territory.getAttackableTerritories().values().iterator().next();
+			}
+		}
+		this.attackingTerritory.setArmySize(this.armies + 1);
+		this.defendingTerritory.setArmySize(this.armies);
+	}
+
+	@Benchmark
+	public int attackRoll() {
+		final int numAttackingArmies = Math.min(Dice.MAX_DICE, this.attackingTerritory.getArmySize() - 1);
+		final int numDefendingArmies = Math.min(2, this.defendingTerritory.getArmySize());
+		Dice.rollDice(this.random, this.attackerRolls, numAttackingArmies);
+		Dice.rollDice(this.random, this.defenderRolls, numDefendingArmies);
+		final int numCompared = Math.min(numAttackingArmies, numDefendingArmies);
+		int attackResult = 0;
+		for (int i = 0; i < numCompared; i++) {
+			attackResult += (this.attackerRolls[i] > this.defenderRolls[i]) ? 1 : -1;
+		}
+		this.board.makeMove(new AttackResultMove(this.attackingTerritory, this.defendingTerritory, 
+				(numCompared - attackResult) / 2, (numCompared + attackResult) / 2));
+		this.board.unmakeMove();
+		return attackResult;
+	}
+
+	@Benchmark
+	public int blitz() {
+		final int attackers = this.attackingTerritory.getArmySize() - 1;
+		final int defenders = this.defendingTerritory.getArmySize();
+		final BattleOutcome outcome = BattleOdds.getOutcome(attackers, defenders);
+		final int endState = outcome.sample(this.random);
+		this.board.makeMove(new AttackResultMove(this.attackingTerritory, this.defendingTerritory, 
+				attackers - outcome.getEndStateAttackers(endState), defenders - outcome.getEndStateDefenders(endState)));
+		this.board.unmakeMove();
+		return endState;
+	}
+
+	/**
+	 * Taking the defending territory, which updates both owners' frontiers, the threats along 
+	 * its borders and the board's hash.
+	 */
+	@Benchmark
+	public long capture() {
+		this.board.makeMove(new CaptureMove(this.attackingTerritory, this.defendingTerritory, this.armies));
+		final long hash = this.board.getHash();
+		this.board.unmakeMove();
+		return hash;
+	}
+
+	@Benchmark
+	public double winProbability() {
+		return BattleOdds.getWinProbability(this.armies, this.armies);
+	}
+}
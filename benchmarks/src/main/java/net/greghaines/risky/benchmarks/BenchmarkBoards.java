@@ -0,0 +1,64 @@
+package net.greghaines.risky.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.greghaines.risky.model.GameBoard;
+import net.greghaines.risky.model.MapTopology;
+import net.greghaines.risky.model.OccupyMove;
+import net.greghaines.risky.model.Player;
+import net.greghaines.risky.model.RandomDecisionProvider;
+import net.greghaines.risky.model.ReinforceMove;
+import net.greghaines.risky.model.Territory;
+
+/**
+ * Builds the boards the benchmarks run against, the same way every time.
+ * @author Greg Haines
+ */
+final class BenchmarkBoards {
+	
+	/**
+	 * @return players 1 to numPlayers, making random decisions
+	 */
+	static List<Player> createPlayers(final int numPlayers, final Random random) {
+		final List<Player> players = new ArrayList<Player>(numPlayers);
+		for (int i = 1; i <= numPlayers; i++) {
+			players.add(new Player(i, "Player " + i, new RandomDecisionProvider(random)));
+		}
+		return players;
+	}
+	
+	/**
+	 * @return a board dealt out round-robin to the players, with 1-5 armies on every territory
+	 */
+	static GameBoard createDealtBoard(final List<Player> players, final Random random) {
+		return dealBoard(new GameBoard(random), players, random);
+	}
+	
+	/**
+	 * @return a board on the given map, dealt out the same way
+	 */
+	static GameBoard createDealtBoard(final MapTopology topology, final List<Player> players, final Random random) {
+		return dealBoard(new GameBoard(topology, random), players, random);
+	}
+	
+	/**
+	 * Deals out an empty board round-robin to the players, with 1-5 armies on every territory.
+	 * @return the board
+	 */
+	static GameBoard dealBoard(final GameBoard board, final List<Player> players, final Random random) {
+		int i = 0;
+		for (final Territory territory : board.getAllTerritories().values()) {
+			final Player player = players.get(i++ % players.size());
+			player.setNumArmiesInHand(player.getNumArmiesInHand() + 5);
+			board.applyMove(new OccupyMove(territory, player));
+			board.applyMove(new ReinforceMove(territory, random.nextInt(5)));
+		}
+		return board;
+	}
+	
+	private BenchmarkBoards() {
+		// Utility class
+	}
+}
@@ -0,0 +1,81 @@
+package net.greghaines.risky.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.greghaines.risky.model.Continent;
+import net.greghaines.risky.model.GameBoard;
+import net.greghaines.risky.model.Player;
+import net.greghaines.risky.model.Territory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The board queries the game loop makes on every decision, against a board dealt out to 
+ * three players.
+ * @author Greg Haines
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BoardBenchmark {
+	
+	private final Random random = new Random(42);
+	private GameBoard board;
+	private Player player;
+	private Territory territory;
+	private Continent continent;
+	
+	@Setup
+	public void setUp() {
+		final Random random = new Random(42);
+		final List<Player> players = BenchmarkBoards.createPlayers(3, random);
+		this.board = BenchmarkBoards.createDealtBoard(players, random);
+		this.player = players.get(0);
+		this.territory = this.board.getOccupiedTerritories(this.player).values().iterator().next();
+		this.continent = this.territory.getContinent();
+	}
+
+	@Benchmark
+	public Map<String,Territory> occupiedTerritories() {
+		return this.board.getOccupiedTerritories(this.player);
+	}
+
+	@Benchmark
+	public Map<String,Territory> usableTerritories() {
+		return this.board.getUsableTerritories(this.player);
+	}
+
+	@Benchmark
+	public Map<String,Territory> attackableTerritories() {
+		return this.territory.getAttackableTerritories();
+	}
+
+	@Benchmark
+	public Player continentOwner() {
+		return this.continent.getOwner();
+	}
+
+	@Benchmark
+	public Map<String,Continent> adjacentContinents() {
+		return this.continent.getAdjacentContinents();
+	}
+
+	@Benchmark
+	public int distance() {
+		return this.board.getTopology().getIndex().getDistance(this.territory.getTerritoryID(), 0);
+	}
+
+	@Benchmark
+	public GameBoard newBoard() {
+		return new GameBoard(this.random);
+	}
+}
@@ -0,0 +1,61 @@
+package net.greghaines.risky.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import net.greghaines.risky.model.Card;
+import net.greghaines.risky.model.Card.CardType;
+import net.greghaines.risky.model.Player;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Working out which card sets a hand can trade in, for every hand size a player can hold 
+ * going into the reinforcement phase.
+ * @author Greg Haines
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CardSetBenchmark {
+	
+	@Param({ "3", "4", "5", "6", "7", "8", "9" })
+	private int handSize;
+	
+	private Player player;
+	
+	@Setup
+	public void setUp() {
+		final Random random = new Random(42);
+		final CardType[] nonWildTypes = { CardType.INFANTRY, CardType.CALVARY, CardType.ARTILLERY };
+		this.player = new Player(1, "Player 1");
+		this.player.addCard(new Card(null, CardType.WILD));
+		for (int i = 1; i < this.handSize; i++) {
+			this.player.addCard(new Card("Territory " + i, nonWildTypes[random.nextInt(nonWildTypes.length)]));
+		}
+	}
+
+	@Benchmark
+	public List<Set<Card>> calculateCardSets() {
+		return this.player.calculateCardSets();
+	}
+
+	@Benchmark
+	public Set<Card> bestCardSet() {
+		return this.player.getBestCardSet();
+	}
+
+	@Benchmark
+	public boolean hasCardSet() {
+		return this.player.hasCardSet();
+	}
+}
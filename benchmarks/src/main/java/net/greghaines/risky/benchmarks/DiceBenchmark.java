@@ -0,0 +1,47 @@
+package net.greghaines.risky.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.greghaines.risky.utils.Dice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The three ways to roll dice: as a list, into an array, and packed into an int.
+ * @author Greg Haines
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiceBenchmark {
+	
+	@Param({ "1", "2", "3" })
+	private int numDice;
+	
+	private final Random random = new Random(42);
+	private final int[] rolls = new int[Dice.MAX_DICE];
+
+	@Benchmark
+	public List<Integer> rollDiceList() {
+		return Dice.rollDice(this.random, this.numDice);
+	}
+
+	@Benchmark
+	public int[] rollDiceArray() {
+		Dice.rollDice(this.random, this.rolls, this.numDice);
+		return this.rolls;
+	}
+
+	@Benchmark
+	public int rollDicePacked() {
+		return Dice.rollDicePacked(this.random, this.numDice);
+	}
+}
@@ -0,0 +1,51 @@
+package net.greghaines.risky.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.greghaines.risky.model.GameSession;
+import net.greghaines.risky.model.Player;
+import net.greghaines.risky.model.RandomDecisionProvider;
+import net.greghaines.risky.sim.PlayerFactory;
+import net.greghaines.risky.sim.SimulationRunner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Complete headless games between random players, on a single thread. 
+ * Each call plays the next game of a seeded sequence, so runs are comparable.
+ * @author Greg Haines
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GameBenchmark {
+	
+	@Param({ "3", "6" })
+	private int numPlayers;
+	
+	private SimulationRunner runner;
+	private int gameIndex = 0;
+	
+	@Setup
+	public void setUp() {
+		this.runner = new SimulationRunner(this.numPlayers, new PlayerFactory() {
+			@Override
+			public Player createPlayer(final int playerID, final Random random) {
+				return new Player(playerID, "Player " + playerID, new RandomDecisionProvider(random));
+			}
+		}, 1);
+	}
+
+	@Benchmark
+	public GameSession playGame() {
+		return this.runner.playGame(42L, this.gameIndex++);
+	}
+}
@@ -0,0 +1,204 @@
+package net.greghaines.risky.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.greghaines.risky.ai.MctsDecisionProvider;
+import net.greghaines.risky.ai.TranspositionTable;
+import net.greghaines.risky.model.BoardCore;
+import net.greghaines.risky.model.ConnectedRegions;
+import net.greghaines.risky.model.Continent;
+import net.greghaines.risky.model.GameBoard;
+import net.greghaines.risky.model.GameSession;
+import net.greghaines.risky.model.MapGenerator;
+import net.greghaines.risky.model.MapTopology;
+import net.greghaines.risky.model.Player;
+import net.greghaines.risky.model.Territory;
+import net.greghaines.risky.utils.NullOutputSink;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The per-turn work of a game as the map grows, from the classic map's 42 territories to
+ * generated maps of 100,000, with a continent for every 20 territories. The board is dealt out
+ * to four players and each query is made for the first of them.
+ * @author Greg Haines
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MapScalingBenchmark {
+
+	private static final int NUM_PLAYERS = 4;
+	private static final long SEARCH_BUDGET_MILLIS = 10;
+	private static final long TABLE_BYTES = 64L << 20;
+
+	/**
+	 * Counts the leaves the search bot evaluates, reported per second next to its decisions,
+	 * and how many of them the transposition table answered.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class SearchCounters {
+
+		public long playouts;
+		public long tableHits;
+	}
+
+	/** The number of territories; 42 is the classic map. */
+	@Param({ "42", "1000", "10000", "100000" })
+	private int numTerritories;
+
+	private GameSession session;
+	private GameBoard board;
+	private BoardCore core;
+	private Player player;
+	private Continent continent;
+	private MctsDecisionProvider searchBot;
+	private MctsDecisionProvider tableSearchBot;
+	private ConnectedRegions regions;
+	private int nearTerritory;
+	private int farTerritory;
+
+	@Setup
+	public void setUp() {
+		final MapTopology topology = (this.numTerritories == MapTopology.classic().getNumTerritories())
+				? MapTopology.classic() : MapGenerator.generate(this.numTerritories, this.numTerritories / 20, 42);
+		final Random random = new Random(42);
+		final List<Player> players = BenchmarkBoards.createPlayers(NUM_PLAYERS, random);
+		this.session = new GameSession(players, NullOutputSink.INSTANCE, random, topology);
+		this.board = BenchmarkBoards.dealBoard(this.session.getGameBoard(), players, random);
+		this.core = this.board.getCore();
+		this.player = players.get(0);
+		this.continent = this.board.getTerritory(this.core.nextOwned(this.player.getPlayerID(), 0)).getContinent();
+		this.searchBot = new MctsDecisionProvider(new Random(42), SEARCH_BUDGET_MILLIS, 1);
+		this.tableSearchBot = new MctsDecisionProvider(new Random(42), SEARCH_BUDGET_MILLIS, 1, 
+				new TranspositionTable(TABLE_BYTES));
+		this.regions = new ConnectedRegions(this.core);
+		this.nearTerritory = this.core.nextOwned(this.player.getPlayerID(), 0);
+		this.farTerritory = this.core.getNumTerritories() - 1;
+	}
+
+	/**
+	 * The armies awarded for territories and continents at the start of a turn.
+	 */
+	@Benchmark
+	public int reinforcementArmies() {
+		final int owner = this.player.getPlayerID();
+		return Math.max(3, this.core.getNumOwned(owner) / 3) + this.core.getContinentBonus(owner);
+	}
+
+	/**
+	 * The territories offered to reinforce.
+	 */
+	@Benchmark
+	public Map<String,Territory> reinforcementOptions() {
+		return this.board.getOccupiedTerritories(this.player);
+	}
+
+	/**
+	 * The continents listed when their bonuses are awarded.
+	 */
+	@Benchmark
+	public Map<String,Continent> occupiedContinents() {
+		return this.board.getOccupiedContinents(this.player);
+	}
+
+	/**
+	 * The check made after every capture.
+	 */
+	@Benchmark
+	public int victoryCheck() {
+		return this.core.getSoleOwner();
+	}
+
+	/**
+	 * Every attack the player could make: each usable territory's attackable neighbours.
+	 */
+	@Benchmark
+	public int attackMoves() {
+		int numMoves = 0;
+		final int owner = this.player.getPlayerID();
+		for (int t = this.core.nextUsable(owner, 0); t >= 0; t = this.core.nextUsable(owner, t + 1)) {
+			numMoves += this.board.getTerritory(t).getAttackableTerritories().size();
+		}
+		return numMoves;
+	}
+
+	/**
+	 * The player's territories that border an enemy and the enemy armies next to them.
+	 */
+	@Benchmark
+	public int frontier() {
+		int threat = 0;
+		final int owner = this.player.getPlayerID();
+		for (int t = this.core.nextFrontier(owner, 0); t >= 0; t = this.core.nextFrontier(owner, t + 1)) {
+			threat += this.core.getThreat(t);
+		}
+		return threat;
+	}
+
+	/**
+	 * Working out every player's connected regions, once per fortification phase.
+	 */
+	@Benchmark
+	public ConnectedRegions connectedRegions() {
+		this.regions.rebuild();
+		return this.regions;
+	}
+
+	/**
+	 * Whether armies could be moved between two territories through their owner's territories.
+	 */
+	@Benchmark
+	public boolean connectedFortify() {
+		return this.regions.isConnected(this.nearTerritory, this.farTerritory);
+	}
+
+	@Benchmark
+	public Map<String,Continent> adjacentContinents() {
+		return this.continent.getAdjacentContinents();
+	}
+
+	/**
+	 * One attack decision by the search bot, with a fixed budget; the playouts it gets through
+	 * are the measure.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public Territory searchDecision(final SearchCounters counters) {
+		final long before = this.searchBot.getNumIterations();
+		final Territory territory = this.searchBot.chooseAttackingTerritory(this.session, this.player,
+				Collections.<String,Territory>emptyMap());
+		counters.playouts += this.searchBot.getNumIterations() - before;
+		return territory;
+	}
+
+	/**
+	 * The same decision by a search bot that shares playout results through a transposition table,
+	 * which keeps them between decisions.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public Territory searchDecisionWithTable(final SearchCounters counters) {
+		final TranspositionTable table = this.tableSearchBot.getTranspositionTable();
+		final long before = this.tableSearchBot.getNumIterations();
+		final long hitsBefore = table.getNumHits();
+		final Territory territory = this.tableSearchBot.chooseAttackingTerritory(this.session, this.player,
+				Collections.<String,Territory>emptyMap());
+		counters.playouts += this.tableSearchBot.getNumIterations() - before;
+		counters.tableHits += table.getNumHits() - hitsBefore;
+		return territory;
+	}
+}
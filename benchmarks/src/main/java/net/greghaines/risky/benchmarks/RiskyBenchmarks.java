@@ -0,0 +1,29 @@
+package net.greghaines.risky.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.Runner;
+
+/**
+ * Runs the benchmarks with the GC profiler always on, so every result comes with its 
+ * allocation rate next to its throughput. Takes the usual JMH command line options.
+ * @author Greg Haines
+ */
+public final class RiskyBenchmarks {
+	
+	public static void main(final String... args) throws CommandLineOptionException, RunnerException {
+		final Options options = new OptionsBuilder()
+			.parent(new CommandLineOptions(args))
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+	
+	private RiskyBenchmarks() {
+		// Utility class
+	}
+}
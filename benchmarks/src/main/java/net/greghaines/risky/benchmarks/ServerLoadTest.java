@@ -0,0 +1,270 @@
+package net.greghaines.risky.benchmarks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.greghaines.risky.model.GameSession;
+import net.greghaines.risky.server.NioGameServer;
+
+/**
+ * Connects thousands of bot players to a {@link NioGameServer} from one thread and keeps them
+ * playing, answering each prompt at random after a think time, like people at a keyboard.
+ * Without a host it starts a server in this JVM and also reports the server's heap per player;
+ * to get past the open file limit of a single process, run the server on its own and point the
+ * load test at it.
+ * <pre>
+ * java -cp target/benchmarks.jar net.greghaines.risky.benchmarks.ServerLoadTest \
+ *     [clients (10000)] [seconds (60)] [think millis (1000)] [host:port]
+ * </pre>
+ * @author Greg Haines
+ */
+public final class ServerLoadTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Pattern RANGE_PROMPT = Pattern.compile("\\((\\d+)-(\\d+)\\)(?: or '(\\w+)'[^:]*)?: $");
+	private static final String NAME_PROMPT = "What is your name? ";
+	private static final String YES_NO_PROMPT = "(y/n): ";
+	private static final String GAME_OVER = "=== Congratulations, %s! ";
+	private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+	private static final int MAX_CONNECTS_IN_FLIGHT = 256;
+
+	public static void main(final String... args) throws IOException, InterruptedException {
+		final int numClients = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+		final int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 60;
+		final long thinkMillis = (args.length > 2) ? Long.parseLong(args[2]) : 1000;
+		NioGameServer server = null;
+		final InetSocketAddress address;
+		long heapBefore = 0;
+		if (args.length > 3) {
+			final String[] hostPort = args[3].split(":");
+			address = new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1]));
+		} else {
+			heapBefore = usedHeap();
+			server = new NioGameServer(0, GameSession.MIN_PLAYERS, Runtime.getRuntime().availableProcessors());
+			server.start();
+			address = new InetSocketAddress("localhost", server.getPort());
+		}
+		final ServerLoadTest test = new ServerLoadTest(address, numClients, thinkMillis);
+		test.run(TimeUnit.SECONDS.toNanos(seconds), server, heapBefore);
+		if (server != null) {
+			server.close();
+		}
+	}
+
+	private final InetSocketAddress address;
+	private final int numClients;
+	private final long thinkNanos;
+	private final Selector selector;
+	private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+	private final PriorityQueue<Bot> answerQueue = new PriorityQueue<Bot>(1024, new Comparator<Bot>() {
+		@Override
+		public int compare(final Bot bot1, final Bot bot2) {
+			return (bot1.answerAt < bot2.answerAt) ? -1 : ((bot1.answerAt == bot2.answerAt) ? 0 : 1);
+		}
+	});
+	private final Random random = new Random(42);
+	private int numStarted = 0;
+	private int numConnecting = 0;
+	private int numConnected = 0;
+	private int numDisconnected = 0;
+	private long numAnswers = 0;
+	private long numGamesOver = 0;
+
+	private ServerLoadTest(final InetSocketAddress address, final int numClients, final long thinkMillis)
+			throws IOException {
+		this.address = address;
+		this.numClients = numClients;
+		this.thinkNanos = TimeUnit.MILLISECONDS.toNanos(thinkMillis);
+		this.selector = Selector.open();
+	}
+
+	private void run(final long durationNanos, final NioGameServer server, final long heapBefore)
+			throws IOException, InterruptedException {
+		final long startTime = System.nanoTime();
+		final long endTime = startTime + durationNanos;
+		long nextReport = startTime + REPORT_INTERVAL_NANOS;
+		long answersAtLastReport = 0;
+		long lastReport = startTime;
+		boolean heapReported = (server == null);
+		long now = startTime;
+		while (now < endTime) {
+			startConnecting();
+			final Bot next = this.answerQueue.peek();
+			final long waitNanos = Math.min(nextReport, (next == null) ? endTime : next.answerAt) - now;
+			this.selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+			handleEvents();
+			now = System.nanoTime();
+			sendDueAnswers(now);
+			if (now >= nextReport) {
+				System.out.printf("%5.0fs connected=%d disconnected=%d answers/s=%.0f gamesOver=%d%n",
+						(now - startTime) / 1e9, this.numConnected, this.numDisconnected,
+						(this.numAnswers - answersAtLastReport) * 1e9 / (now - lastReport), this.numGamesOver);
+				answersAtLastReport = this.numAnswers;
+				lastReport = now;
+				nextReport = now + REPORT_INTERVAL_NANOS;
+			}
+			if (!heapReported && this.numConnected == this.numClients && server.getNumConnections() == this.numClients) {
+				final long heapAfter = usedHeap();
+				System.out.printf("All %d players connected; server heap %.1f MB, %.0f bytes per player%n",
+						this.numClients, (heapAfter - heapBefore) / 1048576.0,
+						(heapAfter - heapBefore) / (double) this.numClients);
+				heapReported = true;
+			}
+		}
+		System.out.printf("Done: %d of %d players still connected, %d answers (%.0f/s), %d games over%n",
+				this.numConnected, this.numClients, this.numAnswers, this.numAnswers * 1e9 / durationNanos,
+				this.numGamesOver);
+	}
+
+	private void startConnecting() throws IOException {
+		while (this.numStarted < this.numClients && this.numConnecting < MAX_CONNECTS_IN_FLIGHT) {
+			final SocketChannel channel = SocketChannel.open();
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			final Bot bot = new Bot(channel, this.numStarted++);
+			if (channel.connect(this.address)) {
+				channel.register(this.selector, SelectionKey.OP_READ, bot);
+				this.numConnected++;
+			} else {
+				channel.register(this.selector, SelectionKey.OP_CONNECT, bot);
+				this.numConnecting++;
+			}
+		}
+	}
+
+	private void handleEvents() {
+		final Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			final SelectionKey key = keys.next();
+			keys.remove();
+			final Bot bot = (Bot) key.attachment();
+			try {
+				if (key.isConnectable()) {
+					this.numConnecting--;
+					bot.channel.finishConnect();
+					key.interestOps(SelectionKey.OP_READ);
+					this.numConnected++;
+				} else if (key.isReadable()) {
+					read(bot);
+				}
+			} catch (IOException ioe) {
+				disconnect(bot);
+			}
+		}
+	}
+
+	private void read(final Bot bot) throws IOException {
+		this.readBuffer.clear();
+		final int numRead = bot.channel.read(this.readBuffer);
+		if (numRead < 0) {
+			disconnect(bot);
+		} else {
+			this.readBuffer.flip();
+			while (this.readBuffer.hasRemaining()) {
+				final char c = (char) (this.readBuffer.get() & 0xFF); // The prompts are plain ASCII
+				if (c == '\n') {
+					if (bot.line.indexOf(bot.victoryLine) == 0) { // Only the winner counts the game
+						this.numGamesOver++;
+					}
+					bot.line.setLength(0);
+				} else {
+					bot.line.append(c);
+				}
+			}
+			final String answer = chooseAnswer(bot);
+			if (answer != null && bot.answer == null) {
+				bot.answer = answer;
+				bot.answerAt = System.nanoTime() + ((this.thinkNanos == 0) ? 0
+						: (this.thinkNanos / 2) + (long) (this.random.nextDouble() * this.thinkNanos));
+				this.answerQueue.add(bot);
+			}
+		}
+	}
+
+	/**
+	 * @return a random legal answer to the prompt the bot has been left at, or null if it hasn't been asked anything
+	 */
+	private String chooseAnswer(final Bot bot) {
+		final String line = bot.line.toString();
+		String answer = null;
+		if (line.endsWith(NAME_PROMPT)) {
+			answer = bot.name;
+		} else if (line.endsWith(YES_NO_PROMPT)) {
+			answer = this.random.nextBoolean() ? "y" : "n";
+		} else {
+			final Matcher matcher = RANGE_PROMPT.matcher(line);
+			if (matcher.find()) {
+				final int min = Integer.parseInt(matcher.group(1));
+				final int max = Integer.parseInt(matcher.group(2));
+				answer = (matcher.group(3) != null && this.random.nextInt(4) == 0)
+						? matcher.group(3) : String.valueOf(min + this.random.nextInt(max - min + 1));
+			}
+		}
+		return answer;
+	}
+
+	private void sendDueAnswers(final long now) {
+		while (!this.answerQueue.isEmpty() && this.answerQueue.peek().answerAt <= now) {
+			final Bot bot = this.answerQueue.poll();
+			if (bot.channel.isOpen()) {
+				try {
+					bot.channel.write(ByteBuffer.wrap((bot.answer + "\n").getBytes(UTF_8)));
+					bot.line.setLength(0); // Answered; wait for the next prompt
+					this.numAnswers++;
+				} catch (IOException ioe) {
+					disconnect(bot);
+				}
+			}
+			bot.answer = null;
+		}
+	}
+
+	private void disconnect(final Bot bot) {
+		if (bot.channel.isOpen()) {
+			this.numConnected--;
+			this.numDisconnected++;
+			try {
+				bot.channel.close();
+			} catch (IOException ioe) {
+				// Gone either way
+			}
+		}
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static final class Bot {
+
+		private final SocketChannel channel;
+		private final String name;
+		private final String victoryLine;
+		private final StringBuilder line = new StringBuilder(64);
+		private String answer = null;
+		private long answerAt = 0;
+
+		private Bot(final SocketChannel channel, final int id) {
+			this.channel = channel;
+			this.name = "bot" + id;
+			this.victoryLine = String.format(GAME_OVER, this.name);
+		}
+	}
+}
@@ -2,7 +2,13 @@ package net.greghaines.risky;
 
 import static net.greghaines.risky.utils.IOUtils.println;
 
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
 import net.greghaines.risky.model.GameSession;
+import net.greghaines.risky.utils.IOUtils;
 
 /**
  * Risk(y) main.
@@ -12,9 +18,13 @@ public final class Main {
 
 	/**
 	 * Entry point for the game.
-	 * @param args <i>ignored</i>
+	 * @param args optionally, a script file to read the players' answers from, one per line
+	 * @throws FileNotFoundException if the script file doesn't exist
 	 */
-	public static void main(final String... args) {
+	public static void main(final String... args) throws FileNotFoundException {
+		if (args.length > 0) {
+			IOUtils.setInput(new InputStreamReader(new FileInputStream(args[0]), Charset.forName("UTF-8")));
+		}
 		println("===== RISK(y) =====");
 		new GameSession().play();
 	}
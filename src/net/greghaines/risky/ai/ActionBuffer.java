@@ -0,0 +1,31 @@
+package net.greghaines.risky.ai;
+
+import java.util.Arrays;
+
+/**
+ * A reusable, growable list of encoded actions, so generating moves doesn't allocate.
+ */
+final class ActionBuffer {
+	
+	private long[] actions = new long[64];
+	private int size = 0;
+	
+	void clear() {
+		this.size = 0;
+	}
+	
+	void add(final long action) {
+		if (this.size == this.actions.length) {
+			this.actions = Arrays.copyOf(this.actions, this.actions.length * 2);
+		}
+		this.actions[this.size++] = action;
+	}
+	
+	long get(final int index) {
+		return this.actions[index];
+	}
+	
+	int size() {
+		return this.size;
+	}
+}
@@ -0,0 +1,250 @@
+package net.greghaines.risky.ai;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.greghaines.risky.model.BoardCore;
+import net.greghaines.risky.model.Card;
+import net.greghaines.risky.model.DecisionProvider;
+import net.greghaines.risky.model.GameSession;
+import net.greghaines.risky.model.MapTopology;
+import net.greghaines.risky.model.Player;
+import net.greghaines.risky.model.Territory;
+
+/**
+ * A computer player that decides its turn with Monte Carlo tree search. 
+ * Reinforcements go all on one territory, attacks are blitzed to the end, and fortifying 
+ * moves everything but one army; the initial placement uses simple heuristics instead.
+ */
+public class MctsDecisionProvider implements DecisionProvider {
+	
+	private static final int NO_PHASE = -1;
+	private static final long IDLE_THREAD_SECONDS = 60;
+	/** Static, so the threads don't keep a finished game's players and their tables around. */
+	private static final ThreadFactory SEARCH_THREADS = new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread thread = new Thread(r, "mcts-search");
+			thread.setDaemon(true);
+			return thread;
+		}
+	};
+	
+	private final long budgetMillis;
+	private final MctsSearch search;
+	private final Random random;
+	private final TranspositionTable table;
+	private int expectedPhase = NO_PHASE;
+	private long lastAction = SearchState.PASS;
+	
+	/**
+	 * @param random the source of randomness for the search
+	 * @param budgetMillis how long to think about each decision
+	 * @param numThreads how many independent trees to search in parallel
+	 */
+	public MctsDecisionProvider(final Random random, final long budgetMillis, final int numThreads) {
+		this(random, budgetMillis, numThreads, null);
+	}
+
+	/**
+	 * @param random the source of randomness for the search
+	 * @param budgetMillis how long to think about each decision
+	 * @param numThreads how many independent trees to search in parallel
+	 * @param table playout results for the threads to share, or null for none; the values are 
+	 * from this player's point of view, so each player needs a table of their own
+	 */
+	public MctsDecisionProvider(final Random random, final long budgetMillis, final int numThreads, 
+			final TranspositionTable table) {
+		if (budgetMillis < 1) {
+			throw new IllegalArgumentException("budgetMillis must be positive: " + budgetMillis);
+		}
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("numThreads must be positive: " + numThreads);
+		}
+		this.random = random;
+		this.budgetMillis = budgetMillis;
+		this.table = table;
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads, numThreads, 
+				IDLE_THREAD_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), SEARCH_THREADS);
+		executor.allowCoreThreadTimeOut(true);
+		this.search = new MctsSearch(executor, numThreads, random, table);
+	}
+
+	/**
+	 * @return the playout results the search threads share, e.g. for its hit rate, or null if none
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return this.table;
+	}
+
+	/**
+	 * @return how many leaves this player's searches have evaluated so far, by a playout or from 
+	 * the transposition table, e.g. to measure search speed
+	 */
+	public long getNumIterations() {
+		return this.search.getNumIterations();
+	}
+
+	@Override
+	public Territory chooseTerritoryToOccupy(final GameSession session, final Player player, 
+			final Map<String,Territory> freeTerritories) {
+		// Grab the continent we already hold the largest share of
+		final BoardCore core = session.getGameBoard().getCore();
+		final MapTopology topology = core.getTopology();
+		Territory best = null;
+		double bestScore = -1.0;
+		for (final Territory territory : freeTerritories.values()) {
+			final int continent = topology.getContinent(territory.getTerritoryID());
+			int owned = 1;
+			for (int i = topology.getContinentSize(continent) - 1; i >= 0; i--) {
+				if (core.getOwner(topology.getContinentTerritory(continent, i)) == player.getPlayerID()) {
+					owned++;
+				}
+			}
+			final double score = (owned / (double) topology.getContinentSize(continent)) + (this.random.nextDouble() * 0.01);
+			if (score > bestScore) {
+				bestScore = score;
+				best = territory;
+			}
+		}
+		return best;
+	}
+
+	@Override
+	public Territory chooseTerritoryToReinforce(final GameSession session, final Player player, 
+			final Map<String,Territory> occupiedTerritories) {
+		final Territory territory;
+		if (session.getRoundNum() == 0) {
+			territory = mostThreatened(session, occupiedTerritories);
+		} else {
+			this.search.reset();
+			this.expectedPhase = SearchState.REINFORCE;
+			territory = session.getGameBoard().getTerritory((int) decide(session, player, SearchState.REINFORCE));
+		}
+		return territory;
+	}
+
+	@Override
+	public int chooseNumReinforcements(final GameSession session, final Player player, 
+			final Territory territory, final int max) {
+		return max;
+	}
+
+	@Override
+	public Set<Card> chooseCardSet(final GameSession session, final Player player, 
+			final List<Set<Card>> cardSets, final boolean mandatory) {
+		return player.getBestCardSet();
+	}
+
+	@Override
+	public Territory chooseAttackingTerritory(final GameSession session, final Player player, 
+			final Map<String,Territory> usableTerritories) {
+		if (this.expectedPhase == SearchState.ATTACK && this.lastAction >= 0
+				&& session.getGameBoard().getCore().getOwner(SearchState.to(this.lastAction)) == player.getPlayerID()) {
+			// The last attack captured its target and the armies that moved in were forced
+			this.search.advance(SearchState.MOVE_MIN);
+		}
+		final long action = decide(session, player, SearchState.ATTACK);
+		return (action == SearchState.PASS) ? null : session.getGameBoard().getTerritory(SearchState.from(action));
+	}
+
+	@Override
+	public Territory chooseDefendingTerritory(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Map<String,Territory> attackableTerritories) {
+		return targetOf(session, attackingTerritory);
+	}
+
+	@Override
+	public Integer chooseBlitzThreshold(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory) {
+		return 1; // The search plays out every attack to the end
+	}
+
+	@Override
+	public int chooseNumAttackingArmies(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory, final int max) {
+		return max;
+	}
+
+	@Override
+	public int chooseNumDefendingArmies(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory, final int max) {
+		return max;
+	}
+
+	@Override
+	public boolean continueAttack(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory) {
+		return true;
+	}
+
+	@Override
+	public int chooseNumArmiesToMove(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory capturedTerritory, final int min, final int max) {
+		final long action = decide(session, player, SearchState.MOVE);
+		final int extra = max - min;
+		return min + ((action == SearchState.MOVE_ALL) ? extra : (action == SearchState.MOVE_HALF) ? extra / 2 : 0);
+	}
+
+	@Override
+	public Territory chooseFortifySource(final GameSession session, final Player player, 
+			final Map<String,Territory> usableTerritories) {
+		final long action = decide(session, player, SearchState.FORTIFY);
+		this.expectedPhase = NO_PHASE;
+		return (action == SearchState.PASS) ? null : session.getGameBoard().getTerritory(SearchState.from(action));
+	}
+
+	@Override
+	public Territory chooseFortifyTarget(final GameSession session, final Player player, 
+			final Territory sourceTerritory, final Map<String,Territory> fortifiableTerritories) {
+		return targetOf(session, sourceTerritory);
+	}
+
+	@Override
+	public int chooseNumArmiesToFortify(final GameSession session, final Player player, 
+			final Territory sourceTerritory, final Territory targetTerritory, final int max) {
+		return max;
+	}
+	
+	private long decide(final GameSession session, final Player player, final int phase) {
+		if (phase != this.expectedPhase && !(phase == SearchState.MOVE && this.expectedPhase == SearchState.ATTACK)) {
+			this.search.reset(); // The game went somewhere the trees didn't expect
+		}
+		final SearchState state = new SearchState(session.getGameBoard().getCore(), session.getPlayers(), player, phase);
+		if (phase == SearchState.MOVE) {
+			state.setCapture(SearchState.from(this.lastAction), SearchState.to(this.lastAction));
+		}
+		final long action = this.search.search(state, this.budgetMillis);
+		this.search.advance(action);
+		this.lastAction = action;
+		this.expectedPhase = (phase == SearchState.ATTACK && action == SearchState.PASS) 
+				? SearchState.FORTIFY : SearchState.ATTACK;
+		return action;
+	}
+	
+	private Territory targetOf(final GameSession session, final Territory source) {
+		return (this.lastAction >= 0 && SearchState.from(this.lastAction) == source.getTerritoryID()) 
+				? session.getGameBoard().getTerritory(SearchState.to(this.lastAction)) : null;
+	}
+	
+	private static Territory mostThreatened(final GameSession session, final Map<String,Territory> occupiedTerritories) {
+		final BoardCore core = session.getGameBoard().getCore();
+		Territory best = null;
+		int bestThreat = Integer.MIN_VALUE;
+		for (final Territory territory : occupiedTerritories.values()) {
+			final int t = territory.getTerritoryID();
+			final int threat = core.getThreat(t) - core.getArmies(t);
+			if (core.hasAttackable(t) && threat > bestThreat) {
+				bestThreat = threat;
+				best = territory;
+			}
+		}
+		return (best == null) ? occupiedTerritories.values().iterator().next() : best;
+	}
+}
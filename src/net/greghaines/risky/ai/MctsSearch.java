@@ -0,0 +1,208 @@
+package net.greghaines.risky.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Monte Carlo tree search over the root player's own turn, run in parallel with one tree per 
+ * thread (root parallelism). When the time is up the visit counts of the roots' children are 
+ * summed and the most visited action wins. The trees are kept between decisions of the same 
+ * turn and advanced past the chosen action. The threads can share a {@link TranspositionTable} 
+ * of playout results: a leaf whose position has been played out often enough, by any thread 
+ * or through any order of actions, takes the table's mean value instead of another playout.
+ */
+final class MctsSearch {
+	
+	private static final double EXPLORATION = 0.7;
+	private static final long MIN_TABLE_VISITS = 256;
+	
+	private final ExecutorService executor;
+	private final Worker[] workers;
+	
+	/**
+	 * @param table the playout results to share between the threads, or null to play out every leaf
+	 */
+	MctsSearch(final ExecutorService executor, final int numThreads, final Random random, 
+			final TranspositionTable table) {
+		this.executor = executor;
+		this.workers = new Worker[numThreads];
+		for (int i = 0; i < numThreads; i++) {
+			this.workers[i] = new Worker(new Random(random.nextLong()), table);
+		}
+	}
+	
+	/**
+	 * Throws away the trees, e.g. at the start of a new turn.
+	 */
+	void reset() {
+		for (final Worker worker : this.workers) {
+			worker.root = new SearchNode();
+		}
+	}
+	
+	/**
+	 * Searches from the given state until the deadline.
+	 * @return the best action for the current player, or {@link SearchState#PASS} if none
+	 */
+	long search(final SearchState state, final long budgetMillis) {
+		final long deadline = System.nanoTime() + (budgetMillis * 1000000L);
+		final List<Future<?>> futures = new ArrayList<Future<?>>(this.workers.length);
+		for (final Worker worker : this.workers) {
+			worker.prepare(state, deadline);
+			futures.add(this.executor.submit(worker));
+		}
+		for (final Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(ie);
+			} catch (ExecutionException ee) {
+				throw new IllegalStateException(ee.getCause());
+			}
+		}
+		// Open-loop trees can hold children that aren't legal in this particular state
+		final ActionBuffer legal = new ActionBuffer();
+		final int numLegal = state.legalActions(legal);
+		long best = (numLegal == 0) ? SearchState.PASS : legal.get(0);
+		int bestVisits = -1;
+		for (int i = 0; i < numLegal; i++) {
+			int visits = 0;
+			for (final Worker worker : this.workers) {
+				final SearchNode child = worker.root.getChild(legal.get(i));
+				if (child != null) {
+					visits += child.getVisits();
+				}
+			}
+			if (visits > bestVisits) {
+				bestVisits = visits;
+				best = legal.get(i);
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * @return how many leaves every search so far has evaluated, across all threads
+	 */
+	long getNumIterations() {
+		long iterations = 0;
+		for (final Worker worker : this.workers) {
+			iterations += worker.iterations; // Safe to read once the search's futures are done
+		}
+		return iterations;
+	}
+	
+	/**
+	 * Moves every tree's root to the child for the action that was actually played.
+	 */
+	void advance(final long action) {
+		for (final Worker worker : this.workers) {
+			final SearchNode child = worker.root.getChild(action);
+			worker.root = (child == null) ? new SearchNode() : child;
+		}
+	}
+	
+	private static final class Worker implements Callable<Void> {
+		
+		private final Random random;
+		private final TranspositionTable table;
+		private final ActionBuffer buffer = new ActionBuffer();
+		private final SearchNode[] path = new SearchNode[256];
+		private SearchNode root = new SearchNode();
+		private SearchState rootState;
+		private SearchState scratch;
+		private long deadline;
+		private long iterations = 0;
+		
+		private Worker(final Random random, final TranspositionTable table) {
+			this.random = random;
+			this.table = table;
+		}
+		
+		private void prepare(final SearchState state, final long deadline) {
+			this.rootState = state;
+			if (this.scratch == null || !this.scratch.canCopyFrom(state)) {
+				this.scratch = new SearchState(state);
+			}
+			this.deadline = deadline;
+		}
+
+		@Override
+		public Void call() {
+			final int player = this.rootState.getCurrentPlayer();
+			final int numPlayers = this.rootState.getNumPlayers();
+			do {
+				iterate(player, numPlayers);
+				this.iterations++;
+			} while (System.nanoTime() < this.deadline);
+			return null;
+		}
+		
+		private void iterate(final int player, final int numPlayers) {
+			final SearchState state = this.scratch;
+			state.copyFrom(this.rootState);
+			SearchNode node = this.root;
+			int depth = 0;
+			this.path[depth++] = node;
+			// Selection and expansion while it's still the root player's turn
+			while (!state.isOver() && state.getTurnsPlayed() == 0 && depth < this.path.length) {
+				final int numActions = state.legalActions(this.buffer);
+				SearchNode next = null;
+				long nextAction = SearchState.PASS;
+				double bestScore = Double.NEGATIVE_INFINITY;
+				final double logVisits = Math.log(node.getVisits() + 1);
+				for (int i = 0; i < numActions; i++) {
+					final long action = this.buffer.get(i);
+					final SearchNode child = node.getChild(action);
+					if (child == null) { // Expand the first untried action
+						next = null;
+						nextAction = action;
+						break;
+					}
+					final double score = child.getMeanValue() 
+						+ (EXPLORATION * Math.sqrt(logVisits / child.getVisits()));
+					if (score > bestScore) {
+						bestScore = score;
+						next = child;
+						nextAction = action;
+					}
+				}
+				final boolean expanded = (next == null);
+				if (expanded) {
+					next = node.addChild(nextAction);
+				}
+				state.apply(nextAction, this.random);
+				node = next;
+				this.path[depth++] = node;
+				if (expanded) {
+					break;
+				}
+			}
+			final boolean cacheable = (this.table != null && !state.isOver());
+			final long hash = (cacheable) ? state.getHash() : 0L;
+			final long entry = (cacheable) ? this.table.probe(hash) : 0L;
+			final double value;
+			if (TranspositionTable.getVisits(entry) >= MIN_TABLE_VISITS) {
+				value = TranspositionTable.getMeanValue(entry);
+			} else {
+				// Rollout until everyone else has had a turn
+				while (!state.isOver() && state.getTurnsPlayed() <= numPlayers) {
+					state.playDefault(this.random, this.buffer);
+				}
+				value = state.evaluate(player);
+				if (cacheable) {
+					this.table.update(hash, value);
+				}
+			}
+			for (int i = 0; i < depth; i++) {
+				this.path[i].update(value);
+			}
+		}
+	}
+}
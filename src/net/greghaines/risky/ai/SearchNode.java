@@ -0,0 +1,64 @@
+package net.greghaines.risky.ai;
+
+import java.util.Arrays;
+
+/**
+ * A node of an open-loop search tree: it stands for a sequence of actions rather than a 
+ * single state, so the dice can come out differently each time the node is visited.
+ */
+final class SearchNode {
+	
+	private long[] actions = new long[4];
+	private SearchNode[] children = new SearchNode[4];
+	private int numChildren = 0;
+	private int visits = 0;
+	private double totalValue = 0.0;
+	
+	SearchNode getChild(final long action) {
+		SearchNode child = null;
+		for (int i = 0; i < this.numChildren; i++) {
+			if (this.actions[i] == action) {
+				child = this.children[i];
+				break;
+			}
+		}
+		return child;
+	}
+	
+	SearchNode addChild(final long action) {
+		if (this.numChildren == this.actions.length) {
+			this.actions = Arrays.copyOf(this.actions, this.numChildren * 2);
+			this.children = Arrays.copyOf(this.children, this.numChildren * 2);
+		}
+		final SearchNode child = new SearchNode();
+		this.actions[this.numChildren] = action;
+		this.children[this.numChildren] = child;
+		this.numChildren++;
+		return child;
+	}
+	
+	int getNumChildren() {
+		return this.numChildren;
+	}
+	
+	long getAction(final int index) {
+		return this.actions[index];
+	}
+	
+	SearchNode getChildAt(final int index) {
+		return this.children[index];
+	}
+	
+	int getVisits() {
+		return this.visits;
+	}
+	
+	double getMeanValue() {
+		return (this.visits == 0) ? 0.0 : this.totalValue / this.visits;
+	}
+	
+	void update(final double value) {
+		this.visits++;
+		this.totalValue += value;
+	}
+}
@@ -0,0 +1,368 @@
+package net.greghaines.risky.ai;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.greghaines.risky.battle.BattleOdds;
+import net.greghaines.risky.battle.BattleOutcome;
+import net.greghaines.risky.model.BoardCore;
+import net.greghaines.risky.model.MapTopology;
+import net.greghaines.risky.model.Player;
+import net.greghaines.risky.model.Zobrist;
+
+/**
+ * A compact, copyable model of a game in progress for search. 
+ * A turn is played as macro actions: put all reinforcements on one territory, blitz from one 
+ * territory into another (or end the attack phase), choose how many armies follow a capture, 
+ * and make one fortification (or skip it). Cards are left out; reinforcements are the 
+ * territory and continent awards only.
+ */
+final class SearchState {
+	
+	static final int REINFORCE = 0;
+	static final int ATTACK = 1;
+	static final int MOVE = 2;
+	static final int FORTIFY = 3;
+	
+	/** Ends the attack phase or skips fortification. */
+	static final long PASS = -1L;
+	/** After a capture: leave only the armies that rolled in the captured territory. */
+	static final long MOVE_MIN = -2L;
+	/** After a capture: move half of the armies that can move. */
+	static final long MOVE_HALF = -3L;
+	/** After a capture: move every army that can move. */
+	static final long MOVE_ALL = -4L;
+	
+	private static final double MIN_ATTACK_ODDS = 0.4;
+	private static final int MAX_ROLLOUT_ATTACKS = 12;
+	/** Bigger battles are rolled out, as their tables would take longer to build than to roll. */
+	private static final int MAX_TABLE_ARMIES = 1024;
+	
+	private final BoardCore core;
+	private final MapTopology topology;
+	private final int[] turnOrder;
+	private final int[] armiesInHand = new int[BoardCore.MAX_OWNER + 1];
+	private int turnIndex;
+	private int phase;
+	private int captureFrom = -1;
+	private int captureTo = -1;
+	private int turnsPlayed = 0;
+	private int rolloutAttacks = 0;
+	
+	SearchState(final BoardCore core, final List<Player> turnOrder, final Player current, final int phase) {
+		this.core = new BoardCore(core);
+		this.topology = core.getTopology();
+		this.turnOrder = new int[turnOrder.size()];
+		for (int i = 0; i < this.turnOrder.length; i++) {
+			final Player player = turnOrder.get(i);
+			this.turnOrder[i] = player.getPlayerID();
+			this.armiesInHand[player.getPlayerID()] = player.getNumArmiesInHand();
+			if (player.equals(current)) {
+				this.turnIndex = i;
+			}
+		}
+		this.phase = phase;
+	}
+	
+	SearchState(final SearchState other) {
+		this.core = new BoardCore(other.core);
+		this.topology = other.topology;
+		this.turnOrder = other.turnOrder.clone();
+		copyFrom(other);
+	}
+	
+	/**
+	 * @return true if the other state is on the same map with the same turn order, 
+	 * so {@link #copyFrom(SearchState)} can take it
+	 */
+	boolean canCopyFrom(final SearchState other) {
+		return (this.topology == other.topology) && Arrays.equals(this.turnOrder, other.turnOrder);
+	}
+	
+	/**
+	 * Copies where the other game stands, which must be on the same map with the same turn order.
+	 */
+	void copyFrom(final SearchState other) {
+		this.core.copyFrom(other.core);
+		System.arraycopy(other.armiesInHand, 0, this.armiesInHand, 0, this.armiesInHand.length);
+		this.turnIndex = other.turnIndex;
+		this.phase = other.phase;
+		this.captureFrom = other.captureFrom;
+		this.captureTo = other.captureTo;
+		this.turnsPlayed = other.turnsPlayed;
+		this.rolloutAttacks = other.rolloutAttacks;
+	}
+	
+	void setCapture(final int captureFrom, final int captureTo) {
+		this.captureFrom = captureFrom;
+		this.captureTo = captureTo;
+	}
+	
+	BoardCore getCore() {
+		return this.core;
+	}
+	
+	int getPhase() {
+		return this.phase;
+	}
+	
+	int getCurrentPlayer() {
+		return this.turnOrder[this.turnIndex];
+	}
+	
+	int getNumPlayers() {
+		return this.turnOrder.length;
+	}
+	
+	int getTurnsPlayed() {
+		return this.turnsPlayed;
+	}
+	
+	/**
+	 * @return a {@link Zobrist} hash of the board, whose turn it is, the phase and anything 
+	 * still to be done in it
+	 */
+	long getHash() {
+		final int player = getCurrentPlayer();
+		long hash = this.core.getHash() ^ Zobrist.player(player) ^ Zobrist.phase(this.phase) 
+				^ Zobrist.armiesInHand(player, this.armiesInHand[player]);
+		if (this.phase == MOVE) {
+			hash ^= Zobrist.capture(this.captureFrom, this.captureTo);
+		}
+		return hash;
+	}
+	
+	boolean isOver() {
+		return (this.core.getSoleOwner() != BoardCore.NO_OWNER);
+	}
+	
+	static long encode(final int from, final int to) {
+		return ((long) from << 32) | to;
+	}
+	
+	static int from(final long action) {
+		return (int) (action >>> 32);
+	}
+	
+	static int to(final long action) {
+		return (int) action;
+	}
+
+	/**
+	 * Fills the buffer with the actions worth searching from this state.
+	 * @return the number of actions
+	 */
+	int legalActions(final ActionBuffer buffer) {
+		buffer.clear();
+		final int player = getCurrentPlayer();
+		switch (this.phase) {
+		case REINFORCE:
+			for (int t = this.core.nextOwned(player, 0); t >= 0; t = this.core.nextOwned(player, t + 1)) {
+				if (this.core.hasAttackable(t)) {
+					buffer.add(t);
+				}
+			}
+			if (buffer.size() == 0) {
+				for (int t = this.core.nextOwned(player, 0); t >= 0; t = this.core.nextOwned(player, t + 1)) {
+					buffer.add(t);
+				}
+			}
+			break;
+		case ATTACK:
+			buffer.add(PASS);
+			for (int f = this.core.nextUsable(player, 0); f >= 0; f = this.core.nextUsable(player, f + 1)) {
+				for (int n = this.topology.getNumNeighbors(f) - 1; n >= 0; n--) {
+					final int t = this.topology.getNeighbor(f, n);
+					if (this.core.getOwner(t) != player && isWorthAttacking(this.core.getArmies(f) - 1, this.core.getArmies(t))) {
+						buffer.add(encode(f, t));
+					}
+				}
+			}
+			break;
+		case MOVE:
+			buffer.add(MOVE_MIN);
+			if (this.core.getArmies(this.captureFrom) > 2) {
+				buffer.add(MOVE_HALF);
+				buffer.add(MOVE_ALL);
+			}
+			break;
+		case FORTIFY:
+			buffer.add(PASS);
+			for (int f = this.core.nextUsable(player, 0); f >= 0; f = this.core.nextUsable(player, f + 1)) {
+				if (!this.core.hasAttackable(f)) { // Only move armies out of the interior
+					for (int n = this.topology.getNumNeighbors(f) - 1; n >= 0; n--) {
+						final int t = this.topology.getNeighbor(f, n);
+						if (this.core.getOwner(t) == player) {
+							buffer.add(encode(f, t));
+						}
+					}
+				}
+			}
+			break;
+		default:
+			throw new IllegalStateException("Unknown phase: " + this.phase);
+		}
+		return buffer.size();
+	}
+	
+	private static boolean isWorthAttacking(final int attackers, final int defenders) {
+		return (attackers <= MAX_TABLE_ARMIES && defenders <= MAX_TABLE_ARMIES) 
+				? (BattleOdds.getWinProbability(attackers, defenders) >= MIN_ATTACK_ODDS) 
+				: (attackers >= defenders); // Close enough once the armies are this big
+	}
+	
+	void apply(final long action, final Random random) {
+		switch (this.phase) {
+		case REINFORCE:
+			final int player = getCurrentPlayer();
+			this.core.setArmies((int) action, this.core.getArmies((int) action) + this.armiesInHand[player]);
+			this.armiesInHand[player] = 0;
+			this.phase = ATTACK;
+			break;
+		case ATTACK:
+			if (action == PASS) {
+				this.phase = FORTIFY;
+			} else {
+				attack(from(action), to(action), random);
+			}
+			break;
+		case MOVE:
+			final int movable = this.core.getArmies(this.captureFrom) - 1;
+			final int extra = (action == MOVE_ALL) ? movable : (action == MOVE_HALF) ? movable / 2 : 0;
+			this.core.setArmies(this.captureFrom, this.core.getArmies(this.captureFrom) - extra);
+			this.core.setArmies(this.captureTo, this.core.getArmies(this.captureTo) + extra);
+			this.phase = ATTACK;
+			break;
+		case FORTIFY:
+			if (action != PASS) {
+				final int from = from(action);
+				final int to = to(action);
+				final int armies = this.core.getArmies(from) - 1;
+				this.core.setArmies(from, 1);
+				this.core.setArmies(to, this.core.getArmies(to) + armies);
+			}
+			endTurn();
+			break;
+		default:
+			throw new IllegalStateException("Unknown phase: " + this.phase);
+		}
+	}
+	
+	private void attack(final int from, final int to, final Random random) {
+		int attackersLeft = this.core.getArmies(from) - 1;
+		int defendersLeft = this.core.getArmies(to);
+		if (attackersLeft <= MAX_TABLE_ARMIES && defendersLeft <= MAX_TABLE_ARMIES) {
+			final BattleOutcome outcome = BattleOdds.getOutcome(attackersLeft, defendersLeft);
+			final int endState = outcome.sample(random);
+			attackersLeft = outcome.getEndStateAttackers(endState);
+			defendersLeft = outcome.getEndStateDefenders(endState);
+		} else { // Too big for a table, roll it out
+			while (attackersLeft > 0 && defendersLeft > 0) {
+				final int attackerDice = Math.min(3, attackersLeft);
+				final int defenderDice = Math.min(2, defendersLeft);
+				final int compared = Math.min(attackerDice, defenderDice);
+				int attackerLosses = 0;
+				double p = random.nextDouble();
+				while (attackerLosses < compared 
+						&& (p -= BattleOdds.getRollProbability(attackerDice, defenderDice, attackerLosses)) >= 0.0) {
+					attackerLosses++;
+				}
+				attackersLeft -= attackerLosses;
+				defendersLeft -= compared - attackerLosses;
+			}
+		}
+		this.core.setArmies(to, defendersLeft);
+		if (defendersLeft == 0) {
+			final int rolled = Math.min(3, attackersLeft);
+			this.core.setOwner(to, this.core.getOwner(from));
+			this.core.setArmies(to, rolled);
+			this.core.setArmies(from, attackersLeft + 1 - rolled);
+			this.captureFrom = from;
+			this.captureTo = to;
+			this.phase = (isOver()) ? ATTACK : MOVE;
+		} else {
+			this.core.setArmies(from, attackersLeft + 1);
+		}
+	}
+	
+	private void endTurn() {
+		final int numPlayers = this.turnOrder.length;
+		do {
+			this.turnIndex = (this.turnIndex + 1) % numPlayers;
+		} while (this.core.getNumOwned(this.turnOrder[this.turnIndex]) == 0);
+		this.turnsPlayed++;
+		this.rolloutAttacks = 0;
+		final int player = getCurrentPlayer();
+		this.armiesInHand[player] += Math.max(3, this.core.getNumOwned(player) / 3) + this.core.getContinentBonus(player);
+		this.phase = REINFORCE;
+	}
+	
+	/**
+	 * Plays one action for the current player with a fast greedy policy: reinforce a random 
+	 * border territory, blitz only with the odds in favour, follow captures with everything, 
+	 * never fortify.
+	 */
+	void playDefault(final Random random, final ActionBuffer buffer) {
+		final int player = getCurrentPlayer();
+		switch (this.phase) {
+		case REINFORCE:
+			apply(buffer.get(random.nextInt(legalActions(buffer))), random);
+			break;
+		case ATTACK:
+			long best = PASS;
+			if (this.rolloutAttacks++ < MAX_ROLLOUT_ATTACKS) {
+				int bestMargin = 0;
+				for (int f = this.core.nextUsable(player, 0); f >= 0; f = this.core.nextUsable(player, f + 1)) {
+					for (int n = this.topology.getNumNeighbors(f) - 1; n >= 0; n--) {
+						final int t = this.topology.getNeighbor(f, n);
+						final int margin = this.core.getArmies(f) - 1 - this.core.getArmies(t);
+						if (this.core.getOwner(t) != player && margin > bestMargin) {
+							bestMargin = margin;
+							best = encode(f, t);
+						}
+					}
+				}
+			}
+			apply(best, random);
+			break;
+		case MOVE:
+			apply(MOVE_ALL, random);
+			break;
+		case FORTIFY:
+			apply(PASS, random);
+			break;
+		default:
+			throw new IllegalStateException("Unknown phase: " + this.phase);
+		}
+	}
+	
+	/**
+	 * @return how well the player is doing, from 0 (eliminated) to 1 (conquered the world)
+	 */
+	double evaluate(final int player) {
+		final double score;
+		final int owned = this.core.getNumOwned(player);
+		if (owned == 0) {
+			score = 0.0;
+		} else if (owned == this.core.getNumTerritories()) {
+			score = 1.0;
+		} else {
+			long armies = 0;
+			long totalArmies = 0;
+			for (int t = 0; t < this.core.getNumTerritories(); t++) {
+				totalArmies += this.core.getArmies(t);
+				if (this.core.getOwner(t) == player) {
+					armies += this.core.getArmies(t);
+				}
+			}
+			int totalBonus = 0;
+			for (final int p : this.turnOrder) {
+				totalBonus += this.core.getContinentBonus(p);
+			}
+			final double bonusShare = (totalBonus == 0) ? 0.0 : this.core.getContinentBonus(player) / (double) totalBonus;
+			score = (0.5 * owned / this.core.getNumTerritories()) + (0.3 * armies / totalArmies) + (0.2 * bonusShare);
+		}
+		return score;
+	}
+}
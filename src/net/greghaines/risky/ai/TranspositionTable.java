@@ -0,0 +1,165 @@
+package net.greghaines.risky.ai;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size table of playout results keyed by state hash, shared by every thread of a search
+ * and held off the heap in direct buffers, so it can grow to gigabytes without the garbage
+ * collector having to trace it. Each entry is the mean value and visit count of a state,
+ * two to a 32-byte bucket; a new state takes the place of the entry with fewer visits.
+ * There are no locks: an entry is written as its data and the key XORed with the data, and a
+ * read only counts if the two still XOR to the key, so a read that races a write of another
+ * state sees a miss rather than the other state's numbers. Two updates of the same entry at
+ * once can lose one of them, which only costs a playout.
+ */
+public final class TranspositionTable {
+
+	private static final int ENTRY_BYTES = 16;
+	private static final int BUCKET_BYTES = 2 * ENTRY_BYTES;
+	private static final int MAX_SEGMENT_BYTES = 1 << 30;
+	private static final int COUNTER_STRIPES = 16;
+	/** Counters are 8 longs apart, so stripes don't share cache lines. */
+	private static final int COUNTER_STRIDE = 8;
+	private static final long MAX_VISITS = 0xFFFFFFFFL;
+
+	private final ByteBuffer[] segments;
+	private final int segmentShift;
+	private final long bucketMask;
+	private final AtomicLongArray counters = new AtomicLongArray(COUNTER_STRIPES * COUNTER_STRIDE);
+
+	/**
+	 * @param maxBytes the most memory to take, at least 32 bytes; the table uses the biggest
+	 * power of two that fits
+	 */
+	public TranspositionTable(final long maxBytes) {
+		if (maxBytes < BUCKET_BYTES) {
+			throw new IllegalArgumentException("maxBytes must be at least " + BUCKET_BYTES + ": " + maxBytes);
+		}
+		final long bytes = Long.highestOneBit(maxBytes);
+		final int segmentBytes = (int) Math.min(bytes, MAX_SEGMENT_BYTES);
+		this.segments = new ByteBuffer[(int) (bytes / segmentBytes)];
+		for (int i = 0; i < this.segments.length; i++) {
+			this.segments[i] = ByteBuffer.allocateDirect(segmentBytes).order(ByteOrder.nativeOrder());
+		}
+		this.segmentShift = Long.numberOfTrailingZeros(segmentBytes / BUCKET_BYTES);
+		this.bucketMask = (bytes / BUCKET_BYTES) - 1;
+	}
+
+	/**
+	 * @return the bytes held off the heap
+	 */
+	public long getSizeBytes() {
+		return (long) this.segments.length * this.segments[0].capacity();
+	}
+
+	/**
+	 * @param hash a state's hash
+	 * @return the state's entry, to read with {@link #getVisits(long)} and
+	 * {@link #getMeanValue(long)}, or 0 if it isn't in the table
+	 */
+	public long probe(final long hash) {
+		final long bucket = hash & this.bucketMask;
+		final ByteBuffer segment = this.segments[(int) (bucket >>> this.segmentShift)];
+		final int offset = (int) (bucket & ((1L << this.segmentShift) - 1)) * BUCKET_BYTES;
+		long found = 0L;
+		for (int i = offset; i < offset + BUCKET_BYTES; i += ENTRY_BYTES) {
+			final long data = segment.getLong(i + 8);
+			if ((segment.getLong(i) ^ data) == hash && data != 0L) {
+				found = data;
+				break;
+			}
+		}
+		final int stripe = stripe();
+		this.counters.incrementAndGet(stripe);
+		if (found != 0L) {
+			this.counters.incrementAndGet(stripe + 1);
+		}
+		return found;
+	}
+
+	/**
+	 * Adds a playout's value to the state's entry, making the entry if the state isn't in the
+	 * table yet.
+	 * @param hash a state's hash
+	 * @param value the value of a playout from the state
+	 */
+	public void update(final long hash, final double value) {
+		final long bucket = hash & this.bucketMask;
+		final ByteBuffer segment = this.segments[(int) (bucket >>> this.segmentShift)];
+		final int offset = (int) (bucket & ((1L << this.segmentShift) - 1)) * BUCKET_BYTES;
+		int slot = -1;
+		long slotVisits = Long.MAX_VALUE;
+		long data = 0L;
+		for (int i = offset; i < offset + BUCKET_BYTES; i += ENTRY_BYTES) {
+			final long entry = segment.getLong(i + 8);
+			if ((segment.getLong(i) ^ entry) == hash && entry != 0L) {
+				slot = i;
+				data = entry;
+				break;
+			}
+			if (getVisits(entry) < slotVisits) { // Replace the least visited
+				slot = i;
+				slotVisits = getVisits(entry);
+			}
+		}
+		final long visits = getVisits(data);
+		if (visits < MAX_VISITS) {
+			final double mean = getMeanValue(data) + ((value - getMeanValue(data)) / (visits + 1));
+			final long updated = ((visits + 1) << 32) | (Float.floatToRawIntBits((float) mean) & 0xFFFFFFFFL);
+			segment.putLong(slot, hash ^ updated);
+			segment.putLong(slot + 8, updated);
+		}
+	}
+
+	/**
+	 * @param entry an entry from {@link #probe(long)}
+	 * @return the number of playouts from the state
+	 */
+	public static long getVisits(final long entry) {
+		return entry >>> 32;
+	}
+
+	/**
+	 * @param entry an entry from {@link #probe(long)}
+	 * @return the mean value of the playouts from the state
+	 */
+	public static double getMeanValue(final long entry) {
+		return Float.intBitsToFloat((int) entry);
+	}
+
+	/**
+	 * @return how many times the table has been probed
+	 */
+	public long getNumProbes() {
+		return sumCounter(0);
+	}
+
+	/**
+	 * @return how many probes found their state
+	 */
+	public long getNumHits() {
+		return sumCounter(1);
+	}
+
+	/**
+	 * @return the share of probes that found their state, or 0 if there have been none
+	 */
+	public double getHitRate() {
+		final long probes = getNumProbes();
+		return (probes == 0) ? 0.0 : getNumHits() / (double) probes;
+	}
+
+	private int stripe() {
+		return ((int) Thread.currentThread().getId() & (COUNTER_STRIPES - 1)) * COUNTER_STRIDE;
+	}
+
+	private long sumCounter(final int counter) {
+		long sum = 0;
+		for (int i = 0; i < COUNTER_STRIPES; i++) {
+			sum += this.counters.get((i * COUNTER_STRIDE) + counter);
+		}
+		return sum;
+	}
+}
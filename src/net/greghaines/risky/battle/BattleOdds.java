@@ -0,0 +1,251 @@
+package net.greghaines.risky.battle;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Exact odds for Risk battles. 
+ * The outcome of a single roll for every combination of attacking and defending dice is 
+ * enumerated once; a battle is then the Markov chain over (attackers, defenders) that those 
+ * rolls drive until one side runs out, or until the attacker falls to a chosen stop threshold. 
+ * Outcomes are memoized by (attackers, defenders, stop threshold), so repeated queries are a map 
+ * lookup. Battles up to {@value #MAX_CACHED_ARMIES} armies a side are kept for good; bigger ones, 
+ * which are rarer and take more memory, go in a least recently used cache of bounded size.
+ * @author Greg Haines
+ */
+public final class BattleOdds {
+
+	/**
+	 * ROLL_ODDS[attackerDice][defenderDice][k] is the probability that the attacker 
+	 * loses k armies (and the defender loses the rest of the compared dice).
+	 */
+	private static final double[][][] ROLL_ODDS = new double[4][3][];
+	private static final int MAX_ARMIES = (1 << 24) - 1;
+	private static final int MAX_STOP_AT = (1 << 16) - 1;
+	private static final int MAX_CACHED_ARMIES = 64;
+	private static final ConcurrentMap<Long,BattleOutcome> OUTCOMES = new ConcurrentHashMap<Long,BattleOutcome>();
+	/** How many 8-byte words the cached outcomes of big battles can hold between them: 32 MB. */
+	private static final long MAX_LARGE_CACHED_WORDS = 1L << 22;
+	/** Big battles' outcomes in access order, eldest first; guarded by itself. */
+	private static final LinkedHashMap<Long,BattleOutcome> LARGE_OUTCOMES = 
+			new LinkedHashMap<Long,BattleOutcome>(64, 0.75f, true);
+	private static long largeCachedWords = 0;
+	
+	static {
+		for (int attackerDice = 1; attackerDice <= 3; attackerDice++) {
+			for (int defenderDice = 1; defenderDice <= 2; defenderDice++) {
+				ROLL_ODDS[attackerDice][defenderDice] = enumerateRoll(attackerDice, defenderDice);
+			}
+		}
+	}
+
+	/**
+	 * @param attackerDice the number of dice the attacker rolls (1-3)
+	 * @param defenderDice the number of dice the defender rolls (1-2)
+	 * @param attackerLosses the number of armies the attacker loses
+	 * @return the probability of a single roll costing the attacker exactly that many armies
+	 */
+	public static double getRollProbability(final int attackerDice, final int defenderDice, final int attackerLosses) {
+		if (attackerDice < 1 || attackerDice > 3 || defenderDice < 1 || defenderDice > 2) {
+			throw new IllegalArgumentException("attackerDice must be 1-3 and defenderDice 1-2 (attackerDice=" + 
+					attackerDice + ",defenderDice=" + defenderDice + ")");
+		}
+		final double[] odds = ROLL_ODDS[attackerDice][defenderDice];
+		return (attackerLosses < 0 || attackerLosses >= odds.length) ? 0.0 : odds[attackerLosses];
+	}
+
+	/**
+	 * @param attackers the number of armies that can attack (i.e. the territory's armies minus one)
+	 * @param defenders the number of armies defending the territory
+	 * @return the probability that the attacker captures the territory
+	 */
+	public static double getWinProbability(final int attackers, final int defenders) {
+		return (attackers > 0 && defenders > 0 && attackers < WinTable.SIZE && defenders < WinTable.SIZE) 
+				? WinTable.WIN_PROBABILITIES[attackers][defenders] 
+				: getOutcome(attackers, defenders).getWinProbability();
+	}
+
+	/**
+	 * @param attackers the number of armies that can attack (i.e. the territory's armies minus one)
+	 * @param defenders the number of armies defending the territory
+	 * @return the distribution of the battle's end states
+	 */
+	public static BattleOutcome getOutcome(final int attackers, final int defenders) {
+		return getOutcome(attackers, defenders, 0);
+	}
+
+	/**
+	 * @param attackers the number of armies that can attack (i.e. the territory's armies minus one)
+	 * @param defenders the number of armies defending the territory
+	 * @param stopAt the attacker gives up once its attacking armies are at or below this number
+	 * @return the distribution of the battle's end states
+	 */
+	public static BattleOutcome getOutcome(final int attackers, final int defenders, final int stopAt) {
+		if (attackers < 1 || defenders < 1 || attackers > MAX_ARMIES || defenders > MAX_ARMIES) {
+			throw new IllegalArgumentException("attackers and defenders must be 1-" + MAX_ARMIES + 
+					" (attackers=" + attackers + ",defenders=" + defenders + ")");
+		}
+		if (stopAt < 0 || stopAt >= attackers || stopAt > MAX_STOP_AT) {
+			throw new IllegalArgumentException("stopAt must be at least 0 and less than attackers (stopAt=" + 
+					stopAt + ",attackers=" + attackers + ")");
+		}
+		final Long key = ((long) stopAt << 48) | ((long) attackers << 24) | defenders;
+		BattleOutcome outcome;
+		if (attackers > MAX_CACHED_ARMIES || defenders > MAX_CACHED_ARMIES) {
+			synchronized (LARGE_OUTCOMES) {
+				outcome = LARGE_OUTCOMES.get(key);
+			}
+			if (outcome == null) {
+				outcome = calculateOutcome(attackers, defenders, stopAt);
+				cacheLargeOutcome(key, outcome, attackers, defenders, stopAt);
+			}
+		} else {
+			outcome = OUTCOMES.get(key);
+			if (outcome == null) {
+				outcome = calculateOutcome(attackers, defenders, stopAt);
+				final BattleOutcome existing = OUTCOMES.putIfAbsent(key, outcome);
+				if (existing != null) {
+					outcome = existing;
+				}
+			}
+		}
+		return outcome;
+	}
+
+	/**
+	 * Adds a big battle's outcome to the cache, dropping the least recently used outcomes 
+	 * until the cache is back within its size.
+	 */
+	private static void cacheLargeOutcome(final Long key, final BattleOutcome outcome, 
+			final int attackers, final int defenders, final int stopAt) {
+		final long size = outcomeWords(attackers, defenders, stopAt);
+		if (size <= MAX_LARGE_CACHED_WORDS) {
+			synchronized (LARGE_OUTCOMES) {
+				if (LARGE_OUTCOMES.put(key, outcome) == null) { // Else another thread beat us to it
+					largeCachedWords += size;
+					final Iterator<Long> eldest = LARGE_OUTCOMES.keySet().iterator();
+					while (largeCachedWords > MAX_LARGE_CACHED_WORDS) {
+						final long evicted = eldest.next();
+						eldest.remove();
+						largeCachedWords -= outcomeWords((int) ((evicted >>> 24) & MAX_ARMIES), 
+								(int) (evicted & MAX_ARMIES), (int) (evicted >>> 48));
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return about how many 8-byte words the battle's outcome takes: its win and hold odds, 
+	 * plus two doubles and three ints for each possible end state
+	 */
+	private static long outcomeWords(final int attackers, final int defenders, final int stopAt) {
+		final long endStates = attackers + (Math.min(2, stopAt + 1) * (long) defenders);
+		return (attackers + 1L) + (defenders + 1L) + (4 * endStates);
+	}
+
+	/**
+	 * Pushes probability mass forward from the starting state. Every roll removes one or two 
+	 * armies, so a state only feeds states with fewer attackers or, on the same row, fewer 
+	 * defenders; processing rows from most to fewest attackers therefore finishes each state 
+	 * before it is read, and only the three rows within reach of a roll need to be kept. 
+	 * A roll can take the attacker one below the stop threshold, so the stopped states span two rows.
+	 */
+	private static BattleOutcome calculateOutcome(final int attackers, final int defenders, final int stopAt) {
+		final double[] attackerWins = new double[attackers + 1];
+		final double[][] stopped = new double[Math.min(2, stopAt + 1)][defenders + 1];
+		final double[][] rows = new double[3][defenders + 1];
+		rows[attackers % 3][defenders] = 1.0;
+		for (int i = attackers; i > stopAt; i--) {
+			final double[] row = rows[i % 3];
+			final int attackerDice = Math.min(3, i);
+			for (int j = defenders; j >= 1; j--) {
+				final double p = row[j];
+				if (p != 0.0) {
+					final double[] odds = ROLL_ODDS[attackerDice][Math.min(2, j)];
+					final int compared = odds.length - 1;
+					for (int k = 0; k <= compared; k++) {
+						final int ai = i - k;
+						final int dj = j - (compared - k);
+						if (ai <= stopAt) {
+							stopped[stopAt - ai][dj] += p * odds[k];
+						} else {
+							rows[ai % 3][dj] += p * odds[k];
+						}
+					}
+				}
+				row[j] = 0.0;
+			}
+			attackerWins[i] = row[0];
+			row[0] = 0.0;
+		}
+		return new BattleOutcome(attackers, defenders, stopAt, attackerWins, stopped);
+	}
+
+	private static double[] enumerateRoll(final int attackerDice, final int defenderDice) {
+		final int compared = Math.min(attackerDice, defenderDice);
+		final long[] counts = new long[compared + 1];
+		final int[] attackerRolls = new int[attackerDice];
+		final int[] defenderRolls = new int[defenderDice];
+		final int total = (int) Math.pow(6, attackerDice + defenderDice);
+		for (int n = 0; n < total; n++) {
+			int rest = n;
+			for (int i = 0; i < attackerDice; i++, rest /= 6) {
+				attackerRolls[i] = (rest % 6) + 1;
+			}
+			for (int i = 0; i < defenderDice; i++, rest /= 6) {
+				defenderRolls[i] = (rest % 6) + 1;
+			}
+			sortDescending(attackerRolls);
+			sortDescending(defenderRolls);
+			int attackerLosses = 0;
+			for (int i = 0; i < compared; i++) {
+				if (attackerRolls[i] <= defenderRolls[i]) { // Defender wins ties
+					attackerLosses++;
+				}
+			}
+			counts[attackerLosses]++;
+		}
+		final double[] odds = new double[compared + 1];
+		for (int k = 0; k <= compared; k++) {
+			odds[k] = counts[k] / (double) total;
+		}
+		return odds;
+	}
+
+	private static void sortDescending(final int[] rolls) {
+		for (int i = 1; i < rolls.length; i++) {
+			final int roll = rolls[i];
+			int j = i - 1;
+			for (; j >= 0 && rolls[j] < roll; j--) {
+				rolls[j + 1] = rolls[j];
+			}
+			rolls[j + 1] = roll;
+		}
+	}
+	
+	/**
+	 * Win probabilities for the battle sizes bots ask about most, as a plain array so the 
+	 * lookup doesn't box a key. Built on first use.
+	 */
+	private static final class WinTable {
+		
+		static final int SIZE = 64;
+		static final double[][] WIN_PROBABILITIES = new double[SIZE][SIZE];
+		
+		static {
+			for (int attackers = 1; attackers < SIZE; attackers++) {
+				for (int defenders = 1; defenders < SIZE; defenders++) {
+					WIN_PROBABILITIES[attackers][defenders] = 
+							calculateOutcome(attackers, defenders, 0).getWinProbability();
+				}
+			}
+		}
+	}
+	
+	private BattleOdds() {
+		// Utility class
+	}
+}
@@ -0,0 +1,226 @@
+package net.greghaines.risky.battle;
+
+import java.util.Random;
+
+/**
+ * The exact distribution of the end states of a battle, with both sides always rolling 
+ * as many dice as they can and the attacker pressing on until it captures the territory 
+ * or its attacking armies fall to the stop threshold. 
+ * The end states carry an alias table, so drawing an end state costs the same for any battle size. 
+ * Instances are immutable and shared between callers; the arrays are never exposed.
+ */
+public final class BattleOutcome {
+	
+	private final int attackers;
+	private final int defenders;
+	private final int stopAt;
+	private final double[] attackerWins;
+	private final double[] defenderHolds;
+	private final double winProbability;
+	private final int[] endAttackers;
+	private final int[] endDefenders;
+	private final double[] endProbabilities;
+	private final double[] aliasThresholds;
+	private final int[] aliases;
+	
+	BattleOutcome(final int attackers, final int defenders, final int stopAt, 
+			final double[] attackerWins, final double[][] stopped) {
+		this.attackers = attackers;
+		this.defenders = defenders;
+		this.stopAt = stopAt;
+		this.attackerWins = attackerWins;
+		this.defenderHolds = new double[defenders + 1];
+		int numEndStates = 0;
+		double sum = 0.0;
+		for (final double p : attackerWins) {
+			sum += p;
+			if (p > 0.0) {
+				numEndStates++;
+			}
+		}
+		this.winProbability = sum;
+		for (final double[] row : stopped) {
+			for (int j = 0; j < row.length; j++) {
+				this.defenderHolds[j] += row[j];
+				if (row[j] > 0.0) {
+					numEndStates++;
+				}
+			}
+		}
+		this.endAttackers = new int[numEndStates];
+		this.endDefenders = new int[numEndStates];
+		this.endProbabilities = new double[numEndStates];
+		int n = 0;
+		for (int i = 1; i < attackerWins.length; i++) {
+			if (attackerWins[i] > 0.0) {
+				this.endAttackers[n] = i;
+				this.endProbabilities[n++] = attackerWins[i];
+			}
+		}
+		for (int k = 0; k < stopped.length; k++) {
+			for (int j = 1; j < stopped[k].length; j++) {
+				if (stopped[k][j] > 0.0) {
+					this.endAttackers[n] = stopAt - k;
+					this.endDefenders[n] = j;
+					this.endProbabilities[n++] = stopped[k][j];
+				}
+			}
+		}
+		this.aliasThresholds = new double[numEndStates];
+		this.aliases = new int[numEndStates];
+		buildAliasTable();
+	}
+
+	/**
+	 * Vose's alias method: every column holds its own end state up to its threshold and 
+	 * the alias for the rest, so a draw is one column pick and one comparison.
+	 */
+	private void buildAliasTable() {
+		final int n = this.endProbabilities.length;
+		final double[] scaled = new double[n];
+		final int[] small = new int[n];
+		final int[] large = new int[n];
+		int numSmall = 0;
+		int numLarge = 0;
+		for (int i = 0; i < n; i++) {
+			scaled[i] = this.endProbabilities[i] * n;
+			if (scaled[i] < 1.0) {
+				small[numSmall++] = i;
+			} else {
+				large[numLarge++] = i;
+			}
+		}
+		while (numSmall > 0 && numLarge > 0) {
+			final int less = small[--numSmall];
+			final int more = large[--numLarge];
+			this.aliasThresholds[less] = scaled[less];
+			this.aliases[less] = more;
+			scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+			if (scaled[more] < 1.0) {
+				small[numSmall++] = more;
+			} else {
+				large[numLarge++] = more;
+			}
+		}
+		// Whatever is left is 1 up to rounding error
+		while (numLarge > 0) {
+			this.aliasThresholds[large[--numLarge]] = 1.0;
+		}
+		while (numSmall > 0) {
+			this.aliasThresholds[small[--numSmall]] = 1.0;
+		}
+	}
+
+	/**
+	 * @param random the game's source of randomness
+	 * @return the index of a randomly drawn end state, weighted by its probability
+	 */
+	public int sample(final Random random) {
+		final int column = random.nextInt(this.aliases.length);
+		return (random.nextDouble() < this.aliasThresholds[column]) ? column : this.aliases[column];
+	}
+
+	/**
+	 * @return the number of armies the attack started with, not counting the one that stays behind
+	 */
+	public int getAttackers() {
+		return this.attackers;
+	}
+
+	/**
+	 * @return the number of armies the defence started with
+	 */
+	public int getDefenders() {
+		return this.defenders;
+	}
+
+	/**
+	 * @return the number of attacking armies at or below which the attacker gives up
+	 */
+	public int getStopAt() {
+		return this.stopAt;
+	}
+
+	/**
+	 * @return the probability that the attacker captures the territory
+	 */
+	public double getWinProbability() {
+		return this.winProbability;
+	}
+
+	/**
+	 * @param remaining the number of attacking armies left
+	 * @return the probability that the attacker captures the territory with exactly that many armies left
+	 */
+	public double getAttackerWinProbability(final int remaining) {
+		return (remaining < 0 || remaining >= this.attackerWins.length) ? 0.0 : this.attackerWins[remaining];
+	}
+
+	/**
+	 * @param remaining the number of defending armies left
+	 * @return the probability that the attack is stopped with exactly that many defenders left
+	 */
+	public double getDefenderWinProbability(final int remaining) {
+		return (remaining < 0 || remaining >= this.defenderHolds.length) ? 0.0 : this.defenderHolds[remaining];
+	}
+
+	/**
+	 * @return the expected number of attacking armies left
+	 */
+	public double getExpectedAttackersRemaining() {
+		double sum = 0.0;
+		for (int n = 0; n < this.endProbabilities.length; n++) {
+			sum += this.endAttackers[n] * this.endProbabilities[n];
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the expected number of defending armies left, counting captures as zero
+	 */
+	public double getExpectedDefendersRemaining() {
+		double sum = 0.0;
+		for (int j = 1; j < this.defenderHolds.length; j++) {
+			sum += j * this.defenderHolds[j];
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the number of distinct end states the battle can have
+	 */
+	public int getNumEndStates() {
+		return this.endProbabilities.length;
+	}
+
+	/**
+	 * @param endState the index of an end state
+	 * @return the number of attacking armies left in that end state
+	 */
+	public int getEndStateAttackers(final int endState) {
+		return this.endAttackers[endState];
+	}
+
+	/**
+	 * @param endState the index of an end state
+	 * @return the number of defending armies left in that end state; 0 means the territory was captured
+	 */
+	public int getEndStateDefenders(final int endState) {
+		return this.endDefenders[endState];
+	}
+
+	/**
+	 * @param endState the index of an end state
+	 * @return the probability of the battle ending in that state
+	 */
+	public double getEndStateProbability(final int endState) {
+		return this.endProbabilities[endState];
+	}
+	
+	@Override
+	public String toString() {
+		return this.attackers + " vs " + this.defenders + 
+				((this.stopAt == 0) ? "" : " stopping at " + this.stopAt) + 
+				" (win=" + String.format("%.4f", this.winProbability) + ")";
+	}
+}
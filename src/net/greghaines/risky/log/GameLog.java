@@ -0,0 +1,58 @@
+package net.greghaines.risky.log;
+
+/**
+ * The layout of a binary game log. 
+ * A log is a header, then a stream of records that each start with a one byte type, then, 
+ * once the game is closed cleanly, a footer holding the keyframe index. All numbers are 
+ * big-endian; territories and army counts are ints, players are bytes and cards are a territory 
+ * (-1 for a wild) followed by the card type's ordinal.
+ * <pre>
+ * header:   int MAGIC, short VERSION, short mapNameLength, UTF-8 map name, long map fingerprint, 
+ *           int numTerritories, byte numPlayers, 
+ *           numPlayers x (byte playerID, short nameLength, UTF-8 name)
+ * records:  TURN      int turnNum, int roundNum, byte player
+ *           OCCUPY    int territory, byte player
+ *           REINFORCE int territory, int numArmies
+ *           ROLL      byte numAttackerDice, 3 x byte, byte numDefenderDice, 2 x byte
+ *           ATTACK    int from, int to, int attackerLosses, int defenderLosses
+ *           CAPTURE   int from, int to, int numArmies
+ *           FORTIFY   int from, int to, int numArmies
+ *           DRAW      byte player, card
+ *           TRADE     byte player, 3 x card
+ *           AWARD     byte player, int numArmies
+ *           KEYFRAME  int turnNum, int roundNum, numTerritories x (byte owner, int armies), 
+ *                     int numCardSetsTradedIn, numPlayers x (int armiesInHand, byte eliminated, 
+ *                     int numCards, numCards x card)
+ *           END       byte victor
+ * footer:   int numKeyframes, numKeyframes x (int turnNum, long offset), long footerOffset, int INDEX_MAGIC
+ * </pre>
+ * A keyframe holds the whole state of the game as it was when the turn it names started, so 
+ * a reader can start from the nearest keyframe and replay only the records after it.
+ * @author Greg Haines
+ */
+final class GameLog {
+	
+	static final int MAGIC = 0x52534B4C; // "RSKL"
+	static final int INDEX_MAGIC = 0x52534B49; // "RSKI"
+	static final short VERSION = 3;
+	static final int FOOTER_TAIL_SIZE = 8 + 4;
+	
+	static final byte TURN = 1;
+	static final byte OCCUPY = 2;
+	static final byte REINFORCE = 3;
+	static final byte ROLL = 4;
+	static final byte ATTACK = 5;
+	static final byte CAPTURE = 6;
+	static final byte FORTIFY = 7;
+	static final byte DRAW = 8;
+	static final byte TRADE = 9;
+	static final byte AWARD = 10;
+	static final byte KEYFRAME = 11;
+	static final byte END = 12;
+	
+	static final int WILD = -1;
+	
+	private GameLog() {
+		// Constants
+	}
+}
@@ -0,0 +1,441 @@
+package net.greghaines.risky.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import net.greghaines.risky.model.AttackResultMove;
+import net.greghaines.risky.model.CaptureMove;
+import net.greghaines.risky.model.Card;
+import net.greghaines.risky.model.Card.CardType;
+import net.greghaines.risky.model.FortifyMove;
+import net.greghaines.risky.model.GameBoard;
+import net.greghaines.risky.model.MapTopology;
+import net.greghaines.risky.model.OccupyMove;
+import net.greghaines.risky.model.Player;
+import net.greghaines.risky.model.ReinforceMove;
+import net.greghaines.risky.model.Territory;
+import net.greghaines.risky.model.TradeCardsMove;
+
+/**
+ * Replays a game log onto a fresh board. 
+ * The log is memory-mapped, so {@link #seek(int)} to any turn costs loading the nearest 
+ * keyframe at or before it plus replaying at most {@value GameLogWriter#KEYFRAME_INTERVAL} 
+ * turns of records. A log that was never closed has no index; its keyframes are found by 
+ * scanning it once, and replay stops at the last complete record.
+ * @see GameLog
+ * @see GameLogWriter
+ * @author Greg Haines
+ */
+public class GameLogReader implements Closeable {
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final CardType[] CARD_TYPES = CardType.values();
+	
+	private final FileChannel channel;
+	private final MapTopology topology;
+	private final ByteBuffer log;
+	private final int numTerritories;
+	private final int[] playerIDs;
+	private final String[] playerNames;
+	private final int recordsStart;
+	private int[] keyframeTurns;
+	private int[] keyframeOffsets;
+	private int numKeyframes = 0;
+	
+	private GameBoard board;
+	private Player[] players;
+	private int turnNum;
+	private int roundNum;
+	private Player currentPlayer;
+	private Player victor;
+	private final int[] attackerRolls = new int[3];
+	private final int[] defenderRolls = new int[2];
+	private int numAttackerDice = 0;
+	private int numDefenderDice = 0;
+	
+	/**
+	 * Maps a log of a game on the classic map.
+	 * @see #GameLogReader(FileChannel, MapTopology)
+	 */
+	public GameLogReader(final FileChannel channel) throws IOException {
+		this(channel, MapTopology.classic());
+	}
+	
+	/**
+	 * Maps the log and positions the replay at the start of the game.
+	 * @param channel the log to read
+	 * @param topology the map the game was played on
+	 * @throws IOException if the log can't be mapped, isn't a game log or is of a game on another map
+	 */
+	public GameLogReader(final FileChannel channel, final MapTopology topology) throws IOException {
+		this.channel = channel;
+		this.topology = topology;
+		final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		if (mapped.remaining() < 4 + 2 + 2 || mapped.getInt() != GameLog.MAGIC) {
+			throw new IOException("Not a game log");
+		}
+		final short version = mapped.getShort();
+		if (version != GameLog.VERSION) {
+			throw new IOException("Unsupported game log version: " + version);
+		}
+		final int mapNameLength = mapped.getShort();
+		if (mapNameLength < 0 || mapped.remaining() < mapNameLength + 8 + 4 + 1) {
+			throw new IOException("Game log header is truncated");
+		}
+		final byte[] mapName = new byte[mapNameLength];
+		mapped.get(mapName);
+		if (mapped.getLong() != topology.getFingerprint()) {
+			throw new IOException("Game log is for the map " + new String(mapName, UTF_8) + 
+					", not " + topology.getName());
+		}
+		this.numTerritories = mapped.getInt();
+		final int numPlayers = mapped.get();
+		this.playerIDs = new int[numPlayers];
+		this.playerNames = new String[numPlayers];
+		for (int i = 0; i < numPlayers; i++) {
+			this.playerIDs[i] = mapped.get();
+			final byte[] name = new byte[mapped.getShort()];
+			mapped.get(name);
+			this.playerNames[i] = new String(name, UTF_8);
+		}
+		this.recordsStart = mapped.position();
+		resetReplay();
+		if (this.board.getTopology().getNumTerritories() != this.numTerritories) {
+			throw new IOException("Game log is for a map with " + this.numTerritories + " territories");
+		}
+		this.log = (readIndex(mapped)) ? mapped : scanForKeyframes(mapped);
+		if (this.numKeyframes == 0) {
+			throw new IOException("Game log has no keyframes");
+		}
+		seek(0);
+	}
+	
+	/**
+	 * Reads the footer, if the log has one, and limits the log to its records.
+	 */
+	private boolean readIndex(final ByteBuffer mapped) {
+		final int limit = mapped.limit();
+		boolean hasIndex = (limit - this.recordsStart >= GameLog.FOOTER_TAIL_SIZE 
+				&& mapped.getInt(limit - 4) == GameLog.INDEX_MAGIC);
+		if (hasIndex) {
+			final long footerOffset = mapped.getLong(limit - GameLog.FOOTER_TAIL_SIZE);
+			hasIndex = (footerOffset >= this.recordsStart && footerOffset < limit);
+			if (hasIndex) {
+				final ByteBuffer footer = mapped.duplicate();
+				footer.position((int) footerOffset);
+				this.numKeyframes = footer.getInt();
+				this.keyframeTurns = new int[this.numKeyframes];
+				this.keyframeOffsets = new int[this.numKeyframes];
+				for (int i = 0; i < this.numKeyframes; i++) {
+					this.keyframeTurns[i] = footer.getInt();
+					this.keyframeOffsets[i] = (int) footer.getLong();
+				}
+				mapped.limit((int) footerOffset);
+			}
+		}
+		return hasIndex;
+	}
+	
+	private ByteBuffer scanForKeyframes(final ByteBuffer mapped) {
+		this.keyframeTurns = new int[16];
+		this.keyframeOffsets = new int[16];
+		int complete = this.recordsStart;
+		try {
+			while (mapped.hasRemaining()) {
+				final int offset = mapped.position();
+				final byte type = mapped.get();
+				if (type == GameLog.KEYFRAME) {
+					final int keyframeTurn = mapped.getInt();
+					mapped.position(offset + 1);
+					readKeyframe(mapped, false);
+					if (this.numKeyframes == this.keyframeTurns.length) {
+						this.keyframeTurns = Arrays.copyOf(this.keyframeTurns, this.numKeyframes * 2);
+						this.keyframeOffsets = Arrays.copyOf(this.keyframeOffsets, this.numKeyframes * 2);
+					}
+					this.keyframeTurns[this.numKeyframes] = keyframeTurn;
+					this.keyframeOffsets[this.numKeyframes] = offset;
+					this.numKeyframes++;
+				} else {
+					readRecord(mapped, type, false);
+				}
+				complete = mapped.position();
+			}
+		} catch (BufferUnderflowException bue) {
+			// The game stopped mid-record; keep what was written in full
+		}
+		mapped.limit(complete);
+		return mapped;
+	}
+	
+	/**
+	 * Puts the replay at the start of the given turn: its turn record has been replayed, so 
+	 * {@link #getTurnNum()} and {@link #getCurrentPlayer()} describe it, but nothing else of it. 
+	 * Turn 0 is the start of the game, before any territory is occupied.
+	 * @param turnNum the turn to go to
+	 * @return false if the log ends before that turn, leaving the replay at the end of the log
+	 */
+	public boolean seek(final int turnNum) {
+		int keyframe = Arrays.binarySearch(this.keyframeTurns, 0, this.numKeyframes, turnNum);
+		if (keyframe < 0) {
+			keyframe = Math.max(0, -keyframe - 2); // The one before the insertion point
+		}
+		this.log.position(this.keyframeOffsets[keyframe] + 1);
+		readKeyframe(this.log, true);
+		// Turn 0 has no turn record; every other keyframe comes just before its turn's record
+		boolean found = (turnNum == 0 && this.turnNum == 0);
+		while (!found && this.log.hasRemaining()) {
+			final int offset = this.log.position();
+			found = (this.log.get(offset) == GameLog.TURN && this.log.getInt(offset + 1) == turnNum);
+			next();
+		}
+		return found;
+	}
+	
+	/**
+	 * Replays the next record.
+	 * @return false if there are no more records
+	 */
+	public boolean next() {
+		final boolean hasNext = this.log.hasRemaining();
+		if (hasNext) {
+			final byte type = this.log.get();
+			if (type == GameLog.KEYFRAME) {
+				readKeyframe(this.log, false); // The replay already matches it
+			} else {
+				readRecord(this.log, type, true);
+			}
+		}
+		return hasNext;
+	}
+	
+	private void readKeyframe(final ByteBuffer buf, final boolean apply) {
+		final int keyframeTurn = buf.getInt();
+		final int keyframeRound = buf.getInt();
+		if (apply) {
+			resetReplay();
+			this.turnNum = keyframeTurn;
+			this.roundNum = keyframeRound;
+		}
+		for (int t = 0; t < this.numTerritories; t++) {
+			final Player owner = getPlayer(buf.get());
+			final int armies = buf.getInt();
+			if (apply) {
+				final Territory territory = this.board.getTerritory(t);
+				territory.setOwner(owner);
+				territory.setArmySize(armies);
+			}
+		}
+		final int numCardSetsTradedIn = buf.getInt();
+		if (apply) {
+			this.board.setNumCardSetsTradedIn(numCardSetsTradedIn);
+		}
+		for (int i = 0; i < this.playerIDs.length; i++) {
+			final int armiesInHand = buf.getInt();
+			final boolean eliminated = (buf.get() != 0);
+			final int numCards = buf.getInt();
+			if (apply) {
+				this.players[i].setNumArmiesInHand(armiesInHand);
+				this.players[i].setEliminated(eliminated);
+			}
+			for (int c = 0; c < numCards; c++) {
+				final Card card = readCard(buf);
+				if (apply) {
+					this.players[i].addCard(card);
+				}
+			}
+		}
+	}
+	
+	private void resetReplay() {
+		this.board = new GameBoard(this.topology, new Random(0)); // The deck isn't used; draws come from the log
+		this.players = new Player[this.playerIDs.length];
+		for (int i = 0; i < this.players.length; i++) {
+			this.players[i] = new Player(this.playerIDs[i], this.playerNames[i], null);
+		}
+		this.currentPlayer = null;
+		this.victor = null;
+		this.numAttackerDice = 0;
+		this.numDefenderDice = 0;
+	}
+	
+	private void readRecord(final ByteBuffer buf, final byte type, final boolean apply) {
+		switch (type) {
+		case GameLog.TURN:
+			final int turn = buf.getInt();
+			final int round = buf.getInt();
+			final Player player = getPlayer(buf.get());
+			if (apply) {
+				this.turnNum = turn;
+				this.roundNum = round;
+				this.currentPlayer = player;
+			}
+			break;
+		case GameLog.OCCUPY:
+			final Territory occupied = getTerritory(buf.getInt());
+			final Player occupier = getPlayer(buf.get());
+			if (apply) {
+				this.board.applyMove(new OccupyMove(occupied, occupier));
+			}
+			break;
+		case GameLog.REINFORCE:
+			final Territory reinforced = getTerritory(buf.getInt());
+			final int numReinforcements = buf.getInt();
+			if (apply) {
+				this.board.applyMove(new ReinforceMove(reinforced, numReinforcements));
+			}
+			break;
+		case GameLog.ROLL:
+			final int numAttacker = buf.get();
+			for (int i = 0; i < this.attackerRolls.length; i++) {
+				this.attackerRolls[i] = buf.get();
+			}
+			final int numDefender = buf.get();
+			for (int i = 0; i < this.defenderRolls.length; i++) {
+				this.defenderRolls[i] = buf.get();
+			}
+			this.numAttackerDice = numAttacker;
+			this.numDefenderDice = numDefender;
+			break;
+		case GameLog.ATTACK:
+			final Territory attacking = getTerritory(buf.getInt());
+			final Territory defending = getTerritory(buf.getInt());
+			final int attackerLosses = buf.getInt();
+			final int defenderLosses = buf.getInt();
+			if (apply) {
+				this.board.applyMove(new AttackResultMove(attacking, defending, attackerLosses, defenderLosses));
+			}
+			break;
+		case GameLog.CAPTURE:
+			final Territory capturing = getTerritory(buf.getInt());
+			final Territory captured = getTerritory(buf.getInt());
+			final int numCaptureArmies = buf.getInt();
+			if (apply) {
+				this.board.applyMove(new CaptureMove(capturing, captured, numCaptureArmies));
+			}
+			break;
+		case GameLog.FORTIFY:
+			final Territory source = getTerritory(buf.getInt());
+			final Territory target = getTerritory(buf.getInt());
+			final int numFortifyArmies = buf.getInt();
+			if (apply) {
+				this.board.applyMove(new FortifyMove(source, target, numFortifyArmies));
+			}
+			break;
+		case GameLog.DRAW:
+			final Player drawer = getPlayer(buf.get());
+			final Card drawn = readCard(buf);
+			if (apply) {
+				drawer.addCard(drawn);
+			}
+			break;
+		case GameLog.TRADE:
+			final Player trader = getPlayer(buf.get());
+			final Set<Card> cardSet = new LinkedHashSet<Card>();
+			for (int i = 0; i < 3; i++) {
+				cardSet.add(readCard(buf));
+			}
+			if (apply) {
+				this.board.applyMove(new TradeCardsMove(trader, cardSet));
+			}
+			break;
+		case GameLog.AWARD:
+			final Player awarded = getPlayer(buf.get());
+			final int numAwarded = buf.getInt();
+			if (apply) {
+				awarded.setNumArmiesInHand(awarded.getNumArmiesInHand() + numAwarded);
+			}
+			break;
+		case GameLog.END:
+			final Player winner = getPlayer(buf.get());
+			if (apply) {
+				this.victor = winner;
+			}
+			break;
+		default:
+			throw new IllegalStateException("Unknown game log record type " + type + " at " + (buf.position() - 1));
+		}
+	}
+	
+	private Card readCard(final ByteBuffer buf) {
+		final int territory = buf.getInt();
+		final CardType type = CARD_TYPES[buf.get()];
+		return new Card((territory == GameLog.WILD) ? null : this.board.getTopology().getTerritoryName(territory), type);
+	}
+	
+	private Territory getTerritory(final int territoryID) {
+		return this.board.getTerritory(territoryID);
+	}
+	
+	private Player getPlayer(final int playerID) {
+		Player player = null;
+		for (int i = 0; i < this.playerIDs.length && player == null; i++) {
+			if (this.playerIDs[i] == playerID) {
+				player = this.players[i];
+			}
+		}
+		return player;
+	}
+	
+	public GameBoard getBoard() {
+		return this.board;
+	}
+	
+	/**
+	 * @return the players, in the order they were listed when the game started
+	 */
+	public List<Player> getPlayers() {
+		return Collections.unmodifiableList(new ArrayList<Player>(Arrays.asList(this.players)));
+	}
+	
+	public int getTurnNum() {
+		return this.turnNum;
+	}
+	
+	public int getRoundNum() {
+		return this.roundNum;
+	}
+	
+	/**
+	 * @return whose turn is being replayed, or null before the first turn
+	 */
+	public Player getCurrentPlayer() {
+		return this.currentPlayer;
+	}
+	
+	/**
+	 * @return the winner, once the replay has reached the end of the game
+	 */
+	public Player getVictor() {
+		return this.victor;
+	}
+	
+	/**
+	 * @return the dice from the last roll replayed, highest first
+	 */
+	public int[] getLastAttackerRolls() {
+		return Arrays.copyOf(this.attackerRolls, this.numAttackerDice);
+	}
+	
+	/**
+	 * @return the dice from the last roll replayed, highest first
+	 */
+	public int[] getLastDefenderRolls() {
+		return Arrays.copyOf(this.defenderRolls, this.numDefenderDice);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+}
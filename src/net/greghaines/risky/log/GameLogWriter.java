@@ -0,0 +1,261 @@
+package net.greghaines.risky.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import net.greghaines.risky.model.AttackResultMove;
+import net.greghaines.risky.model.BoardCore;
+import net.greghaines.risky.model.CaptureMove;
+import net.greghaines.risky.model.Card;
+import net.greghaines.risky.model.FortifyMove;
+import net.greghaines.risky.model.GameListener;
+import net.greghaines.risky.model.GameSession;
+import net.greghaines.risky.model.MapTopology;
+import net.greghaines.risky.model.Move;
+import net.greghaines.risky.model.OccupyMove;
+import net.greghaines.risky.model.Player;
+import net.greghaines.risky.model.ReinforceMove;
+import net.greghaines.risky.model.TradeCardsMove;
+
+/**
+ * Appends every event of a game to a binary log as it happens, with a keyframe of the 
+ * whole game every {@value #KEYFRAME_INTERVAL} turns. Records are gathered in a direct 
+ * buffer and written to the channel when it fills, so the game never waits on small writes. 
+ * Attach it before the game is played and close it afterwards to write the keyframe index.
+ * @see GameLog
+ * @see GameLogReader
+ * @author Greg Haines
+ */
+public class GameLogWriter implements GameListener, Closeable {
+	
+	/** How many turns apart the keyframes are. */
+	public static final int KEYFRAME_INTERVAL = 16;
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int CARD_BYTES = 4 + 1;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	private final FileChannel channel;
+	private final MapTopology topology;
+	private final Player[] players;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private long flushedBytes = 0;
+	private int[] keyframeTurns = new int[16];
+	private long[] keyframeOffsets = new long[16];
+	private int numKeyframes = 0;
+	private IOException error = null;
+	
+	/**
+	 * Writes the log header and the keyframe for the start of the game.
+	 * @param channel an empty channel to write the log to
+	 * @param session the game to log, not yet played
+	 * @throws IOException if the header can't be written
+	 * @throws IllegalArgumentException if the map's or a player's name is too long to log
+	 */
+	public GameLogWriter(final FileChannel channel, final GameSession session) throws IOException {
+		this.channel = channel;
+		this.topology = session.getGameBoard().getTopology();
+		this.players = session.getPlayers().toArray(new Player[session.getPlayers().size()]);
+		writeHeader();
+		writeKeyframe(session);
+		checkError();
+	}
+	
+	private void writeHeader() {
+		final byte[] mapName = encodeName(this.topology.getName());
+		ensure(4 + 2 + 2 + mapName.length + 8 + 4 + 1);
+		this.buffer.putInt(GameLog.MAGIC).putShort(GameLog.VERSION).putShort((short) mapName.length).put(mapName)
+			.putLong(this.topology.getFingerprint())
+			.putInt(this.topology.getNumTerritories()).put((byte) this.players.length);
+		for (final Player player : this.players) {
+			final byte[] name = encodeName(player.getName());
+			ensure(1 + 2 + name.length);
+			this.buffer.put((byte) player.getPlayerID()).putShort((short) name.length).put(name);
+		}
+	}
+	
+	/**
+	 * @return the name as UTF-8, checked to fit the short that gives its length
+	 */
+	private static byte[] encodeName(final String name) {
+		final byte[] bytes = name.getBytes(UTF_8);
+		if (bytes.length > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Name is too long to log (" + bytes.length + " bytes)");
+		}
+		return bytes;
+	}
+	
+	private void writeKeyframe(final GameSession session) {
+		if (this.numKeyframes == this.keyframeTurns.length) {
+			this.keyframeTurns = Arrays.copyOf(this.keyframeTurns, this.numKeyframes * 2);
+			this.keyframeOffsets = Arrays.copyOf(this.keyframeOffsets, this.numKeyframes * 2);
+		}
+		this.keyframeTurns[this.numKeyframes] = session.getTurnNum();
+		this.keyframeOffsets[this.numKeyframes] = this.flushedBytes + this.buffer.position();
+		this.numKeyframes++;
+		final BoardCore core = session.getGameBoard().getCore();
+		ensure(1 + 4 + 4 + (this.topology.getNumTerritories() * 5) + 4);
+		this.buffer.put(GameLog.KEYFRAME).putInt(session.getTurnNum()).putInt(session.getRoundNum());
+		for (int t = 0; t < this.topology.getNumTerritories(); t++) {
+			this.buffer.put((byte) core.getOwner(t)).putInt(core.getArmies(t));
+		}
+		this.buffer.putInt(session.getGameBoard().getNumCardSetsTradedIn());
+		for (final Player player : this.players) {
+			ensure(4 + 1 + 4 + (player.getNumCards() * CARD_BYTES));
+			this.buffer.putInt(player.getNumArmiesInHand()).put((byte) (player.isEliminated() ? 1 : 0))
+				.putInt(player.getNumCards());
+			for (int i = 0; i < player.getNumCards(); i++) {
+				putCard(player.getCard(i));
+			}
+		}
+	}
+
+	@Override
+	public void turnStarted(final GameSession session, final int turnNum, final Player player) {
+		if (turnNum % KEYFRAME_INTERVAL == 0) {
+			writeKeyframe(session);
+		}
+		ensure(1 + 4 + 4 + 1);
+		this.buffer.put(GameLog.TURN).putInt(turnNum).putInt(session.getRoundNum()).put((byte) player.getPlayerID());
+	}
+
+	@Override
+	public void moveApplied(final GameSession session, final Move move) {
+		ensure(1 + 16);
+		if (move instanceof AttackResultMove) {
+			final AttackResultMove attack = (AttackResultMove) move;
+			this.buffer.put(GameLog.ATTACK).putInt(attack.getAttackingTerritory().getTerritoryID())
+				.putInt(attack.getDefendingTerritory().getTerritoryID())
+				.putInt(attack.getAttackerLosses()).putInt(attack.getDefenderLosses());
+		} else if (move instanceof ReinforceMove) {
+			final ReinforceMove reinforce = (ReinforceMove) move;
+			this.buffer.put(GameLog.REINFORCE).putInt(reinforce.getTerritory().getTerritoryID())
+				.putInt(reinforce.getNumArmies());
+		} else if (move instanceof CaptureMove) {
+			final CaptureMove capture = (CaptureMove) move;
+			this.buffer.put(GameLog.CAPTURE).putInt(capture.getAttackingTerritory().getTerritoryID())
+				.putInt(capture.getCapturedTerritory().getTerritoryID()).putInt(capture.getNumArmies());
+		} else if (move instanceof FortifyMove) {
+			final FortifyMove fortify = (FortifyMove) move;
+			this.buffer.put(GameLog.FORTIFY).putInt(fortify.getSourceTerritory().getTerritoryID())
+				.putInt(fortify.getTargetTerritory().getTerritoryID()).putInt(fortify.getNumArmies());
+		} else if (move instanceof OccupyMove) {
+			final OccupyMove occupy = (OccupyMove) move;
+			this.buffer.put(GameLog.OCCUPY).putInt(occupy.getTerritory().getTerritoryID())
+				.put((byte) occupy.getPlayer().getPlayerID());
+		} else if (move instanceof TradeCardsMove) {
+			final TradeCardsMove trade = (TradeCardsMove) move;
+			ensure(1 + 1 + (trade.getCardSet().size() * CARD_BYTES));
+			this.buffer.put(GameLog.TRADE).put((byte) trade.getPlayer().getPlayerID());
+			for (final Card card : trade.getCardSet()) {
+				putCard(card);
+			}
+		} else {
+			throw new IllegalArgumentException("Can't log move: " + move);
+		}
+	}
+
+	@Override
+	public void diceRolled(final GameSession session, final int[] attackerRolls, final int numAttackerDice, 
+			final int[] defenderRolls, final int numDefenderDice) {
+		ensure(1 + 1 + 3 + 1 + 2);
+		this.buffer.put(GameLog.ROLL).put((byte) numAttackerDice);
+		for (int i = 0; i < 3; i++) {
+			this.buffer.put((byte) ((i < numAttackerDice) ? attackerRolls[i] : 0));
+		}
+		this.buffer.put((byte) numDefenderDice);
+		for (int i = 0; i < 2; i++) {
+			this.buffer.put((byte) ((i < numDefenderDice) ? defenderRolls[i] : 0));
+		}
+	}
+
+	@Override
+	public void cardDrawn(final GameSession session, final Player player, final Card card) {
+		ensure(1 + 1 + CARD_BYTES);
+		this.buffer.put(GameLog.DRAW).put((byte) player.getPlayerID());
+		putCard(card);
+	}
+
+	@Override
+	public void reinforcementsAwarded(final GameSession session, final Player player, final int numArmies) {
+		ensure(1 + 1 + 4);
+		this.buffer.put(GameLog.AWARD).put((byte) player.getPlayerID()).putInt(numArmies);
+	}
+
+	@Override
+	public void gameOver(final GameSession session, final Player victor) {
+		ensure(1 + 1);
+		this.buffer.put(GameLog.END).put((byte) victor.getPlayerID());
+	}
+	
+	private void putCard(final Card card) {
+		this.buffer.putInt((card.isWild()) ? GameLog.WILD : this.topology.getTerritoryID(card.getTerritoryName()))
+			.put((byte) card.getType().ordinal());
+	}
+	
+	/**
+	 * Makes room in the buffer for a record, writing out what's there if need be. 
+	 * Listener methods can't throw, so a failed write is kept and reported by {@link #close()}.
+	 */
+	private void ensure(final int numBytes) {
+		if (this.buffer.remaining() < numBytes) {
+			flushBuffer();
+			if (this.buffer.capacity() < numBytes) {
+				this.buffer = ByteBuffer.allocateDirect(numBytes);
+			}
+		}
+	}
+	
+	private void flushBuffer() {
+		this.buffer.flip();
+		try {
+			while (this.buffer.hasRemaining()) {
+				this.flushedBytes += this.channel.write(this.buffer);
+			}
+		} catch (IOException ioe) {
+			if (this.error == null) {
+				this.error = ioe;
+			}
+		}
+		this.buffer.clear();
+	}
+	
+	private void checkError() throws IOException {
+		if (this.error != null) {
+			throw this.error;
+		}
+	}
+	
+	/**
+	 * Writes everything logged so far to the channel.
+	 * @throws IOException if any write so far has failed
+	 */
+	public void flush() throws IOException {
+		flushBuffer();
+		checkError();
+	}
+
+	/**
+	 * Writes the keyframe index and closes the channel.
+	 * @throws IOException if any write has failed
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			final long footerOffset = this.flushedBytes + this.buffer.position();
+			ensure(4 + (this.numKeyframes * 12) + GameLog.FOOTER_TAIL_SIZE);
+			this.buffer.putInt(this.numKeyframes);
+			for (int i = 0; i < this.numKeyframes; i++) {
+				this.buffer.putInt(this.keyframeTurns[i]).putLong(this.keyframeOffsets[i]);
+			}
+			this.buffer.putLong(footerOffset).putInt(GameLog.INDEX_MAGIC);
+			flush();
+		} finally {
+			this.channel.close();
+		}
+	}
+}
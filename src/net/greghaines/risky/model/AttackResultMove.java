@@ -0,0 +1,54 @@
+package net.greghaines.risky.model;
+
+/**
+ * Removes the armies lost by both sides in an attack, whether one roll or a whole blitz.
+ */
+public class AttackResultMove implements Move {
+	
+	private final Territory attackingTerritory;
+	private final Territory defendingTerritory;
+	private final int attackerLosses;
+	private final int defenderLosses;
+	
+	public AttackResultMove(final Territory attackingTerritory, final Territory defendingTerritory, 
+			final int attackerLosses, final int defenderLosses) {
+		this.attackingTerritory = attackingTerritory;
+		this.defendingTerritory = defendingTerritory;
+		this.attackerLosses = attackerLosses;
+		this.defenderLosses = defenderLosses;
+	}
+
+	public Territory getAttackingTerritory() {
+		return this.attackingTerritory;
+	}
+
+	public Territory getDefendingTerritory() {
+		return this.defendingTerritory;
+	}
+
+	public int getAttackerLosses() {
+		return this.attackerLosses;
+	}
+
+	public int getDefenderLosses() {
+		return this.defenderLosses;
+	}
+
+	@Override
+	public void apply(final GameBoard board) {
+		if (this.attackerLosses != 0) {
+			board.changeArmies(this.attackingTerritory.getTerritoryID(), 
+					this.attackingTerritory.getArmySize() - this.attackerLosses);
+		}
+		if (this.defenderLosses != 0) {
+			board.changeArmies(this.defendingTerritory.getTerritoryID(), 
+					this.defendingTerritory.getArmySize() - this.defenderLosses);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return this.attackingTerritory.getName() + " -" + this.attackerLosses + " vs " + 
+				this.defendingTerritory.getName() + " -" + this.defenderLosses;
+	}
+}
@@ -0,0 +1,396 @@
+package net.greghaines.risky.model;
+
+import java.util.Arrays;
+
+/**
+ * The packed state of a board: an owner byte and an army count per territory, plus a 
+ * territory bitset per owner. Owner 0 means unoccupied; players own the territories marked 
+ * with their player ID. Ownership bitsets span as many longs as the map needs, so on maps of 
+ * up to 64 territories adjacency and ownership queries are single bitwise operations. 
+ * Territory counts, usable territories (more than one army) and continent owners and bonuses 
+ * are kept up to date on every change, so reading them never scans the board. So is each 
+ * owner's frontier, the territories bordering someone else's, and the threat to each territory: 
+ * the armies on its neighbours that belong to someone else. A {@link Zobrist} hash of every 
+ * territory's owner and bucketed armies is kept the same way.
+ */
+public final class BoardCore {
+	
+	/**
+	 * The owner of unoccupied territories.
+	 */
+	public static final byte NO_OWNER = 0;
+	/**
+	 * The highest player ID that can own territories.
+	 */
+	public static final int MAX_OWNER = Byte.MAX_VALUE;
+	
+	private final MapTopology topology;
+	private final int words;
+	private final byte[] owners;
+	private final int[] armies;
+	private final long[][] ownerMasks = new long[MAX_OWNER + 1][];
+	private final long[][] usableMasks = new long[MAX_OWNER + 1][];
+	private final int[] ownedCounts = new int[MAX_OWNER + 1];
+	private final int[] usableCounts = new int[MAX_OWNER + 1];
+	private final int[] continentBonuses = new int[MAX_OWNER + 1];
+	private final int[] continentOwners;
+	private final int[] continentOwnerCounts;
+	private final int[] enemyCounts;
+	private final int[] threats;
+	private final long[][] frontierMasks = new long[MAX_OWNER + 1][];
+	private final int[] frontierCounts = new int[MAX_OWNER + 1];
+	private long hash = 0L;
+	
+	public BoardCore(final MapTopology topology) {
+		this.topology = topology;
+		this.words = (topology.getNumTerritories() + Long.SIZE - 1) / Long.SIZE;
+		this.owners = new byte[topology.getNumTerritories()];
+		this.armies = new int[topology.getNumTerritories()];
+		this.enemyCounts = new int[topology.getNumTerritories()];
+		this.threats = new int[topology.getNumTerritories()];
+		final long[] unowned = getMask(this.ownerMasks, NO_OWNER);
+		Arrays.fill(unowned, -1L);
+		final int spare = (this.words * Long.SIZE) - topology.getNumTerritories();
+		if (spare > 0) {
+			unowned[this.words - 1] >>>= spare;
+		}
+		this.ownedCounts[NO_OWNER] = topology.getNumTerritories();
+		this.continentOwners = new int[topology.getNumContinents()];
+		this.continentOwnerCounts = new int[topology.getNumContinents() * (MAX_OWNER + 1)];
+		for (int c = 0; c < this.continentOwners.length; c++) {
+			this.continentOwnerCounts[c * (MAX_OWNER + 1)] = topology.getContinentSize(c);
+		}
+	}
+
+	/**
+	 * Creates an independent copy of another board's state.
+	 */
+	public BoardCore(final BoardCore other) {
+		this.topology = other.topology;
+		this.words = other.words;
+		this.owners = new byte[other.owners.length];
+		this.armies = new int[other.armies.length];
+		this.enemyCounts = new int[other.enemyCounts.length];
+		this.threats = new int[other.threats.length];
+		this.continentOwners = new int[other.continentOwners.length];
+		this.continentOwnerCounts = new int[other.continentOwnerCounts.length];
+		copyFrom(other);
+	}
+
+	/**
+	 * Overwrites this state with another board's state, reusing this board's arrays.
+	 * @param other a board on the same map
+	 */
+	public void copyFrom(final BoardCore other) {
+		if (other.topology != this.topology) {
+			throw new IllegalArgumentException("Boards must share a topology: " + other.topology);
+		}
+		System.arraycopy(other.owners, 0, this.owners, 0, this.owners.length);
+		System.arraycopy(other.armies, 0, this.armies, 0, this.armies.length);
+		copyMasks(other.ownerMasks, this.ownerMasks);
+		copyMasks(other.usableMasks, this.usableMasks);
+		System.arraycopy(other.ownedCounts, 0, this.ownedCounts, 0, this.ownedCounts.length);
+		System.arraycopy(other.usableCounts, 0, this.usableCounts, 0, this.usableCounts.length);
+		System.arraycopy(other.continentBonuses, 0, this.continentBonuses, 0, this.continentBonuses.length);
+		System.arraycopy(other.continentOwners, 0, this.continentOwners, 0, this.continentOwners.length);
+		System.arraycopy(other.continentOwnerCounts, 0, this.continentOwnerCounts, 0, 
+				this.continentOwnerCounts.length);
+		System.arraycopy(other.enemyCounts, 0, this.enemyCounts, 0, this.enemyCounts.length);
+		System.arraycopy(other.threats, 0, this.threats, 0, this.threats.length);
+		copyMasks(other.frontierMasks, this.frontierMasks);
+		System.arraycopy(other.frontierCounts, 0, this.frontierCounts, 0, this.frontierCounts.length);
+		this.hash = other.hash;
+	}
+
+	private void copyMasks(final long[][] from, final long[][] to) {
+		for (int owner = 0; owner < from.length; owner++) {
+			if (from[owner] != null) {
+				System.arraycopy(from[owner], 0, getMask(to, owner), 0, this.words);
+			} else if (to[owner] != null) {
+				Arrays.fill(to[owner], 0L);
+			}
+		}
+	}
+
+	public MapTopology getTopology() {
+		return this.topology;
+	}
+
+	public int getNumTerritories() {
+		return this.owners.length;
+	}
+
+	public int getOwner(final int territory) {
+		return this.owners[territory];
+	}
+
+	public void setOwner(final int territory, final int owner) {
+		if (owner < NO_OWNER || owner > MAX_OWNER) {
+			throw new IllegalArgumentException("owner must be " + NO_OWNER + "-" + MAX_OWNER + 
+					" (owner=" + owner + ")");
+		}
+		final int oldOwner = this.owners[territory];
+		if (oldOwner != owner) {
+			final int word = territory / Long.SIZE;
+			final long bit = 1L << territory;
+			this.ownerMasks[oldOwner][word] &= ~bit;
+			getMask(this.ownerMasks, owner)[word] |= bit;
+			this.ownedCounts[oldOwner]--;
+			this.ownedCounts[owner]++;
+			if (isUsable(territory)) {
+				this.usableMasks[oldOwner][word] &= ~bit;
+				getMask(this.usableMasks, owner)[word] |= bit;
+				this.usableCounts[oldOwner]--;
+				this.usableCounts[owner]++;
+			}
+			if (this.enemyCounts[territory] > 0) {
+				this.frontierMasks[oldOwner][word] &= ~bit;
+				this.frontierCounts[oldOwner]--;
+			}
+			this.owners[territory] = (byte) owner;
+			this.hash ^= Zobrist.owner(territory, oldOwner) ^ Zobrist.owner(territory, owner);
+			updateEnemies(territory, oldOwner, owner);
+			if (this.enemyCounts[territory] > 0) {
+				getMask(this.frontierMasks, owner)[word] |= bit;
+				this.frontierCounts[owner]++;
+			}
+			updateContinentOwner(this.topology.getContinent(territory), oldOwner, owner);
+		}
+	}
+
+	/**
+	 * Neighbours that shared the old owner become enemies and those held by the new one stop 
+	 * being enemies, on both sides of each border.
+	 */
+	private void updateEnemies(final int territory, final int oldOwner, final int owner) {
+		final int armySize = this.armies[territory];
+		for (int i = this.topology.getNumNeighbors(territory) - 1; i >= 0; i--) {
+			final int neighbor = this.topology.getNeighbor(territory, i);
+			final int neighborOwner = this.owners[neighbor];
+			if (neighborOwner == oldOwner) {
+				this.enemyCounts[territory]++;
+				this.threats[territory] += this.armies[neighbor];
+				this.threats[neighbor] += armySize;
+				if (this.enemyCounts[neighbor]++ == 0) {
+					getMask(this.frontierMasks, neighborOwner)[neighbor / Long.SIZE] |= 1L << neighbor;
+					this.frontierCounts[neighborOwner]++;
+				}
+			} else if (neighborOwner == owner) {
+				this.enemyCounts[territory]--;
+				this.threats[territory] -= this.armies[neighbor];
+				this.threats[neighbor] -= armySize;
+				if (--this.enemyCounts[neighbor] == 0) {
+					this.frontierMasks[neighborOwner][neighbor / Long.SIZE] &= ~(1L << neighbor);
+					this.frontierCounts[neighborOwner]--;
+				}
+			}
+		}
+	}
+
+	private void updateContinentOwner(final int continent, final int oldOwner, final int owner) {
+		final int base = continent * (MAX_OWNER + 1);
+		this.continentOwnerCounts[base + oldOwner]--;
+		if (this.continentOwners[continent] == oldOwner && oldOwner != NO_OWNER) {
+			this.continentOwners[continent] = NO_OWNER;
+			this.continentBonuses[oldOwner] -= this.topology.getContinentBonus(continent);
+		}
+		if (++this.continentOwnerCounts[base + owner] == this.topology.getContinentSize(continent) 
+				&& owner != NO_OWNER) {
+			this.continentOwners[continent] = owner;
+			this.continentBonuses[owner] += this.topology.getContinentBonus(continent);
+		}
+	}
+
+	public int getArmies(final int territory) {
+		return this.armies[territory];
+	}
+
+	public void setArmies(final int territory, final int armySize) {
+		final boolean wasUsable = isUsable(territory);
+		final int change = armySize - this.armies[territory];
+		if (Zobrist.getArmyBucket(armySize) != Zobrist.getArmyBucket(this.armies[territory])) {
+			this.hash ^= Zobrist.armies(territory, this.armies[territory]) ^ Zobrist.armies(territory, armySize);
+		}
+		this.armies[territory] = armySize;
+		if (change != 0 && this.enemyCounts[territory] > 0) {
+			final int owner = this.owners[territory];
+			for (int i = this.topology.getNumNeighbors(territory) - 1; i >= 0; i--) {
+				final int neighbor = this.topology.getNeighbor(territory, i);
+				if (this.owners[neighbor] != owner) {
+					this.threats[neighbor] += change;
+				}
+			}
+		}
+		final boolean usable = isUsable(territory);
+		if (wasUsable != usable) {
+			final int owner = this.owners[territory];
+			final int word = territory / Long.SIZE;
+			final long bit = 1L << territory;
+			if (usable) {
+				getMask(this.usableMasks, owner)[word] |= bit;
+				this.usableCounts[owner]++;
+			} else {
+				this.usableMasks[owner][word] &= ~bit;
+				this.usableCounts[owner]--;
+			}
+		}
+	}
+	
+	public boolean isUsable(final int territory) {
+		return (this.armies[territory] > 1);
+	}
+
+	private long[] getMask(final long[][] masks, final int owner) {
+		long[] mask = masks[owner];
+		if (mask == null) {
+			mask = new long[this.words];
+			masks[owner] = mask;
+		}
+		return mask;
+	}
+
+	/**
+	 * @return the number of territories the owner holds
+	 */
+	public int getNumOwned(final int owner) {
+		return this.ownedCounts[owner];
+	}
+
+	/**
+	 * @return the number of the owner's territories with more than one army
+	 */
+	public int getNumUsable(final int owner) {
+		return this.usableCounts[owner];
+	}
+
+	/**
+	 * @return the owner of every territory or {@link #NO_OWNER} if nobody has conquered the world
+	 */
+	public int getSoleOwner() {
+		final int owner = this.owners[0];
+		return (owner != NO_OWNER && this.ownedCounts[owner] == this.owners.length) ? owner : NO_OWNER;
+	}
+
+	/**
+	 * @return the total bonus of the continents the owner holds
+	 */
+	public int getContinentBonus(final int owner) {
+		return (owner == NO_OWNER) ? 0 : this.continentBonuses[owner];
+	}
+
+	/**
+	 * Iterates over the owner's territories in ID order, like {@link java.util.BitSet#nextSetBit(int)}.
+	 * @param owner the owner
+	 * @param fromTerritory the first ID to consider
+	 * @return the first territory at or after fromTerritory that the owner holds or -1 if there are none
+	 */
+	public int nextOwned(final int owner, final int fromTerritory) {
+		return nextSetBit(this.ownerMasks[owner], fromTerritory);
+	}
+
+	/**
+	 * Iterates over the owner's usable territories in ID order.
+	 * @param owner the owner
+	 * @param fromTerritory the first ID to consider
+	 * @return the first territory at or after fromTerritory that the owner holds with more 
+	 * than one army or -1 if there are none
+	 */
+	public int nextUsable(final int owner, final int fromTerritory) {
+		return nextSetBit(this.usableMasks[owner], fromTerritory);
+	}
+
+	private int nextSetBit(final long[] mask, final int fromTerritory) {
+		int next = -1;
+		if (mask != null && fromTerritory < this.owners.length) {
+			int word = fromTerritory / Long.SIZE;
+			long bits = mask[word] & (-1L << fromTerritory);
+			while (bits == 0 && ++word < this.words) {
+				bits = mask[word];
+			}
+			if (bits != 0) {
+				next = (word * Long.SIZE) + Long.numberOfTrailingZeros(bits);
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Iterates over the owner's frontier in ID order.
+	 * @param owner the owner
+	 * @param fromTerritory the first ID to consider
+	 * @return the first territory at or after fromTerritory that the owner holds next to 
+	 * someone else's or -1 if there are none
+	 */
+	public int nextFrontier(final int owner, final int fromTerritory) {
+		return nextSetBit(this.frontierMasks[owner], fromTerritory);
+	}
+
+	/**
+	 * @return the number of the owner's territories that border someone else's
+	 */
+	public int getNumFrontier(final int owner) {
+		return this.frontierCounts[owner];
+	}
+
+	/**
+	 * @return the total armies on the territory's neighbours that are held by someone other than 
+	 * its owner
+	 */
+	public int getThreat(final int territory) {
+		return this.threats[territory];
+	}
+
+	/**
+	 * Only available when the topology {@link MapTopology#hasMasks() has masks}.
+	 * @return a bitmask of the owner's territories
+	 */
+	public long getOwnedMask(final int owner) {
+		final long[] mask = this.ownerMasks[owner];
+		return (mask == null) ? 0L : mask[0];
+	}
+
+	/**
+	 * @return true if a neighbour of the territory is held by someone else
+	 */
+	public boolean hasAttackable(final int territory) {
+		return (this.enemyCounts[territory] > 0);
+	}
+
+	/**
+	 * @return true if a neighbour of the territory is held by its owner
+	 */
+	public boolean hasFortifiable(final int territory) {
+		return (this.enemyCounts[territory] < this.topology.getNumNeighbors(territory));
+	}
+
+	/**
+	 * Only available when the topology {@link MapTopology#hasMasks() has masks}.
+	 * @return a bitmask of the neighbours held by someone other than the territory's owner
+	 */
+	public long getAttackableMask(final int territory) {
+		return this.topology.getAdjacencyMask(territory) & ~getOwnedMask(this.owners[territory]);
+	}
+
+	/**
+	 * Only available when the topology {@link MapTopology#hasMasks() has masks}.
+	 * @return a bitmask of the neighbours held by the territory's owner
+	 */
+	public long getFortifiableMask(final int territory) {
+		return this.topology.getAdjacencyMask(territory) & getOwnedMask(this.owners[territory]);
+	}
+
+	/**
+	 * @return the {@link Zobrist} hash of every territory's owner and army bucket; 0 for an 
+	 * empty board
+	 */
+	public long getHash() {
+		return this.hash;
+	}
+
+	/**
+	 * @return the owner of every territory on the continent or {@link #NO_OWNER} if it is divided
+	 */
+	public int getContinentOwner(final int continent) {
+		return this.continentOwners[continent];
+	}
+}
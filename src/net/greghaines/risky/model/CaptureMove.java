@@ -0,0 +1,48 @@
+package net.greghaines.risky.model;
+
+/**
+ * Takes over an emptied territory, moving armies in from the attacking territory. 
+ * The previous owner is eliminated if this was their last territory.
+ */
+public class CaptureMove implements Move {
+	
+	private final Territory attackingTerritory;
+	private final Territory capturedTerritory;
+	private final int numArmies;
+	
+	public CaptureMove(final Territory attackingTerritory, final Territory capturedTerritory, final int numArmies) {
+		this.attackingTerritory = attackingTerritory;
+		this.capturedTerritory = capturedTerritory;
+		this.numArmies = numArmies;
+	}
+
+	public Territory getAttackingTerritory() {
+		return this.attackingTerritory;
+	}
+
+	public Territory getCapturedTerritory() {
+		return this.capturedTerritory;
+	}
+
+	public int getNumArmies() {
+		return this.numArmies;
+	}
+
+	@Override
+	public void apply(final GameBoard board) {
+		final Player defender = this.capturedTerritory.getOwner();
+		board.changeOwner(this.capturedTerritory.getTerritoryID(), this.attackingTerritory.getOwner());
+		board.changeArmies(this.capturedTerritory.getTerritoryID(), this.numArmies);
+		board.changeArmies(this.attackingTerritory.getTerritoryID(), 
+				this.attackingTerritory.getArmySize() - this.numArmies);
+		if (defender != null && board.getCore().getNumOwned(defender.getPlayerID()) == 0) {
+			board.changeEliminated(defender, true);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "capture " + this.capturedTerritory.getName() + " from " + 
+				this.attackingTerritory.getName() + " with " + this.numArmies;
+	}
+}
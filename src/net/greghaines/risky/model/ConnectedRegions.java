@@ -0,0 +1,99 @@
+package net.greghaines.risky.model;
+
+/**
+ * Every player's connected regions: the groups of territories a player can move armies between
+ * through a chain of their own territories. Built in one pass over the borders with union-find,
+ * after which asking whether two territories are connected is two near-constant finds. Each
+ * region's territories are also threaded into a ring, so they can be listed without a search.
+ * The regions are a snapshot: {@link #rebuild()} them after territories change hands, e.g. once
+ * at the start of each fortification phase.
+ */
+public final class ConnectedRegions {
+
+	private final BoardCore core;
+	private final MapTopology topology;
+	private final int[] parents;
+	private final int[] sizes;
+	private final int[] ring;
+
+	public ConnectedRegions(final BoardCore core) {
+		this.core = core;
+		this.topology = core.getTopology();
+		this.parents = new int[core.getNumTerritories()];
+		this.sizes = new int[core.getNumTerritories()];
+		this.ring = new int[core.getNumTerritories()];
+		rebuild();
+	}
+
+	/**
+	 * Works out the regions again from the board as it is now.
+	 */
+	public void rebuild() {
+		for (int t = 0; t < this.parents.length; t++) {
+			this.parents[t] = t;
+			this.sizes[t] = 1;
+			this.ring[t] = t;
+		}
+		for (int t = 0; t < this.parents.length; t++) {
+			final int owner = this.core.getOwner(t);
+			if (owner != BoardCore.NO_OWNER) {
+				for (int n = this.topology.getNumNeighbors(t) - 1; n >= 0; n--) {
+					final int neighbor = this.topology.getNeighbor(t, n);
+					if (neighbor > t && this.core.getOwner(neighbor) == owner) {
+						union(t, neighbor);
+					}
+				}
+			}
+		}
+	}
+
+	private void union(final int territory1, final int territory2) {
+		int root1 = find(territory1);
+		int root2 = find(territory2);
+		if (root1 != root2) {
+			if (this.sizes[root1] < this.sizes[root2]) {
+				final int swap = root1;
+				root1 = root2;
+				root2 = swap;
+			}
+			this.parents[root2] = root1;
+			this.sizes[root1] += this.sizes[root2];
+			// Swapping successors splices the two rings into one
+			final int next = this.ring[territory1];
+			this.ring[territory1] = this.ring[territory2];
+			this.ring[territory2] = next;
+		}
+	}
+
+	private int find(final int territory) {
+		int root = territory;
+		while (this.parents[root] != root) {
+			this.parents[root] = this.parents[this.parents[root]]; // Halve the path as we go
+			root = this.parents[root];
+		}
+		return root;
+	}
+
+	/**
+	 * @return true if armies can move from one territory to the other through their owner's territories
+	 */
+	public boolean isConnected(final int territory1, final int territory2) {
+		return (this.core.getOwner(territory1) != BoardCore.NO_OWNER && find(territory1) == find(territory2));
+	}
+
+	/**
+	 * @return the number of territories in the territory's region, itself included
+	 */
+	public int getRegionSize(final int territory) {
+		return this.sizes[find(territory)];
+	}
+
+	/**
+	 * Lists a region: starting from any of its territories and following this round comes back
+	 * to the start after visiting every territory in the region once.
+	 * @return the next territory in the territory's region
+	 */
+	public int nextInRegion(final int territory) {
+		return this.ring[territory];
+	}
+}
@@ -0,0 +1,128 @@
+package net.greghaines.risky.model;
+
+import static net.greghaines.risky.utils.IOUtils.readInteger;
+import static net.greghaines.risky.utils.IOUtils.readOption;
+import static net.greghaines.risky.utils.IOUtils.readYesNo;
+import static net.greghaines.risky.utils.IOUtils.sprintf;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Asks a human at the terminal for every decision.
+ */
+public class ConsoleDecisionProvider implements DecisionProvider {
+
+	@Override
+	public Territory chooseTerritoryToOccupy(final GameSession session, final Player player, 
+			final Map<String,Territory> freeTerritories) {
+		return readOption(player.getName() + ", choose a territory to occupy:", 
+				"Please select a free territory...", freeTerritories, false);
+	}
+
+	@Override
+	public Territory chooseTerritoryToReinforce(final GameSession session, final Player player, 
+			final Map<String,Territory> occupiedTerritories) {
+		return readOption(player.getName() + ", choose an occupied territory to reinforce:", 
+				"Please select an occupied territory...", occupiedTerritories, false);
+	}
+
+	@Override
+	public int chooseNumReinforcements(final GameSession session, final Player player, 
+			final Territory territory, final int max) {
+		return readInteger("Select number of armies to reinforce with", 1, max);
+	}
+
+	@Override
+	public Set<Card> chooseCardSet(final GameSession session, final Player player, 
+			final List<Set<Card>> cardSets, final boolean mandatory) {
+		final Map<String, Set<Card>> cardMap = new LinkedHashMap<String, Set<Card>>();
+		for (int i = 0; i < cardSets.size(); i++) {
+			cardMap.put(cardSets.get(i).toString(), cardSets.get(i));
+		}
+		return readOption(player.getName() + ", select a set to turn in:", 
+				"Please select a set number...", cardMap, !mandatory);
+	}
+
+	@Override
+	public Territory chooseAttackingTerritory(final GameSession session, final Player player, 
+			final Map<String,Territory> usableTerritories) {
+		return readOption(
+				player.getName() + ", select a territory from which to attack (type 'done' to end attack phase):", 
+				"Please select a territory or type 'done'...", 
+				usableTerritories, true);
+	}
+
+	@Override
+	public Territory chooseDefendingTerritory(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Map<String,Territory> attackableTerritories) {
+		return readOption(
+				player.getName() + ", select a territory to attack (type 'done' to cancel the attack):", 
+				"Please select a territory or type 'done'...", 
+				attackableTerritories, true);
+	}
+
+	@Override
+	public Integer chooseBlitzThreshold(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory) {
+		Integer threshold = null;
+		if (readYesNo(sprintf("%s, do you wish to attack until done?", player.getName()))) {
+			threshold = (attackingTerritory.getArmySize() > 2) 
+				? readInteger(sprintf("%s, stop attacking when the armies in %s fall to", 
+						player.getName(), attackingTerritory.getName()), 1, attackingTerritory.getArmySize() - 1)
+				: 1;
+		}
+		return threshold;
+	}
+
+	@Override
+	public int chooseNumAttackingArmies(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory, final int max) {
+		return readInteger(sprintf("%s, how many armies do you wish to attack with?", player.getName()), 1, max);
+	}
+
+	@Override
+	public int chooseNumDefendingArmies(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory, final int max) {
+		return readInteger(sprintf("%s, how many armies do you wish to defend with?", player.getName()), 1, max);
+	}
+
+	@Override
+	public boolean continueAttack(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory) {
+		return readYesNo(sprintf("%s, do you with to continue the attack?", player.getName()));
+	}
+
+	@Override
+	public int chooseNumArmiesToMove(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory capturedTerritory, final int min, final int max) {
+		return readInteger(sprintf("%s, select the number of armies to move from %s to %s", 
+				player.getName(), attackingTerritory.getName(), capturedTerritory.getName()), min, max);
+	}
+
+	@Override
+	public Territory chooseFortifySource(final GameSession session, final Player player, 
+			final Map<String,Territory> usableTerritories) {
+		return readOption(
+				player.getName() + ", select a territory from which to fortify (type 'done' to skip fortification):", 
+				"Please select a territory or type 'done'...", 
+				usableTerritories, true);
+	}
+
+	@Override
+	public Territory chooseFortifyTarget(final GameSession session, final Player player, 
+			final Territory sourceTerritory, final Map<String,Territory> fortifiableTerritories) {
+		return readOption(
+				player.getName() + ", select a territory to fortify (type 'done' to cancel this fortification action):", 
+				"Please select a territory or type 'done'...", 
+				fortifiableTerritories, true);
+	}
+
+	@Override
+	public int chooseNumArmiesToFortify(final GameSession session, final Player player, 
+			final Territory sourceTerritory, final Territory targetTerritory, final int max) {
+		return readInteger(sprintf("%s, how many armies do you wish to move?", player.getName()), 1, max);
+	}
+}
@@ -1,24 +1,29 @@
 package net.greghaines.risky.model;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
 
 public class Continent {
 	
+	private final int continentID;
 	private final String name;
 	private final int bonusArmies;
 	private final GameBoard gameBoard;
-	private final Map<String,Territory> territories = new LinkedHashMap<String,Territory>();
+	private Map<String,Territory> territories = null;
+	private Map<String,Continent> adjacentContinents = null;
 	
-	public Continent(final String name, final int bonusArmies, final GameBoard gameBoard) {
+	public Continent(final int continentID, final String name, final int bonusArmies, final GameBoard gameBoard) {
+		this.continentID = continentID;
 		this.name = name;
 		this.bonusArmies = bonusArmies;
 		this.gameBoard = gameBoard;
 	}
 
+	public int getContinentID() {
+		return this.continentID;
+	}
+
 	public String getName() {
 		return this.name;
 	}
@@ -31,41 +36,39 @@ public class Continent {
 		return this.gameBoard;
 	}
 
+	/**
+	 * @return a read-only view of the continent's territories by name
+	 */
 	public Map<String,Territory> getTerritories() {
+		if (this.territories == null) {
+			this.territories = this.gameBoard.createContinentMap(this.continentID);
+		}
 		return this.territories;
 	}
 	
 	public Territory getTerritory(final String name) {
-		return this.territories.get(name);
+		return getTerritories().get(name);
 	}
 	
 	public Player getOwner() {
-		Player owner = null;
-		for (final Territory territory : this.territories.values()) {
-			final Player terrOwner = territory.getOwner();
-			if (owner == null) {
-				owner = terrOwner;
-			} else if (!owner.equals(terrOwner)) {
-				owner = null;
-				break;
-			}
-		}
-		return owner;
+		return this.gameBoard.getPlayer(this.gameBoard.getCore().getContinentOwner(this.continentID));
 	}
 	
+	/**
+	 * @return a read-only map of the continents bordering this one, by name
+	 */
 	public Map<String,Continent> getAdjacentContinents() {
-		final Set<Continent> adjContinents = new HashSet<Continent>();
-		for (final Territory territory : this.territories.values()) {
-			for (final Territory adjTerritory : territory.getAdjacentTerritories().values()) {
-				adjContinents.add(adjTerritory.getContinent());
+		if (this.adjacentContinents == null) {
+			final TopologyIndex index = this.gameBoard.getTopology().getIndex();
+			final int numAdjacent = index.getNumAdjacentContinents(this.continentID);
+			final Map<String,Continent> adjMap = new LinkedHashMap<String,Continent>(numAdjacent * 2);
+			for (int i = 0; i < numAdjacent; i++) {
+				final Continent adjContinent = this.gameBoard.getContinent(index.getAdjacentContinent(this.continentID, i));
+				adjMap.put(adjContinent.getName(), adjContinent);
 			}
+			this.adjacentContinents = Collections.unmodifiableMap(adjMap);
 		}
-		adjContinents.remove(this);
-		final Map<String,Continent> adjMap = new HashMap<String,Continent>(adjContinents.size());
-		for (final Continent adjContinent : adjContinents) {
-			adjMap.put(adjContinent.getName(), adjContinent);
-		}
-		return adjMap;
+		return this.adjacentContinents;
 	}
 	
 	@Override
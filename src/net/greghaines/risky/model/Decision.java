@@ -0,0 +1,217 @@
+package net.greghaines.risky.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A decision a {@link GameSession} is waiting on: who has to make it and what the legal answers are.
+ * Each type corresponds to a method of {@link DecisionProvider} and takes the same kind of answer:
+ * a {@link Territory} from {@link #getTerritoryOptions()}, an Integer from {@link #getMin()} to
+ * {@link #getMax()}, a card set from {@link #getCardSets()} or a Boolean. Optional decisions
+ * also take null, for 'done' or 'no'. A session reuses the same instance for each decision, 
+ * so it only describes the pending decision until that's answered.
+ */
+public final class Decision {
+
+	public enum Type {
+		/** Answered with a free territory. */
+		OCCUPY,
+		/** Answered with an occupied territory. */
+		REINFORCE_TERRITORY,
+		/** Answered with the number of armies to place on {@link Decision#getTerritory()}. */
+		REINFORCE_COUNT,
+		/** Answered with a card set, or null to keep the cards if that's allowed. */
+		TRADE_CARDS,
+		/** Answered with the territory to attack from, or null to end the attack phase. */
+		ATTACK_FROM,
+		/** Answered with the territory to attack, or null to cancel the attack. */
+		ATTACK_TO,
+		/** Answered with the armies at which to stop attacking, or null to roll one attack at a time. */
+		BLITZ,
+		/** Answered with the number of armies to attack with. */
+		ATTACK_DICE,
+		/** Answered with the number of armies to defend with. */
+		DEFEND_DICE,
+		/** Answered with true to roll again. */
+		CONTINUE_ATTACK,
+		/** Answered with the number of armies to move into the captured territory. */
+		MOVE_IN,
+		/** Answered with the territory to fortify from, or null to skip fortification. */
+		FORTIFY_FROM,
+		/** Answered with the territory to fortify, or null to cancel. */
+		FORTIFY_TO,
+		/** Answered with the number of armies to move. */
+		FORTIFY_COUNT;
+	}
+
+	private Type type;
+	private Player player;
+	private Map<String,Territory> territoryOptions;
+	private List<Set<Card>> cardSets;
+	private Territory territory;
+	private Territory otherTerritory;
+	private int min;
+	private int max;
+	private boolean optional;
+
+	Decision() {
+		// Set by the session before each use
+	}
+
+	void set(final Type type, final Player player, final Map<String,Territory> territoryOptions,
+			final List<Set<Card>> cardSets, final Territory territory, final Territory otherTerritory,
+			final int min, final int max, final boolean optional) {
+		this.type = type;
+		this.player = player;
+		this.territoryOptions = territoryOptions;
+		this.cardSets = cardSets;
+		this.territory = territory;
+		this.otherTerritory = otherTerritory;
+		this.min = min;
+		this.max = max;
+		this.optional = optional;
+	}
+
+	public Type getType() {
+		return this.type;
+	}
+
+	/**
+	 * @return who has to decide; the defender for {@link Type#DEFEND_DICE}
+	 */
+	public Player getPlayer() {
+		return this.player;
+	}
+
+	/**
+	 * @return the territories to choose from, or null if the answer isn't a territory
+	 */
+	public Map<String,Territory> getTerritoryOptions() {
+		return this.territoryOptions;
+	}
+
+	/**
+	 * @return the card sets to choose from, or null if the answer isn't a card set
+	 */
+	public List<Set<Card>> getCardSets() {
+		return this.cardSets;
+	}
+
+	/**
+	 * @return the territory being reinforced, attacked from or fortified from, if any
+	 */
+	public Territory getTerritory() {
+		return this.territory;
+	}
+
+	/**
+	 * @return the territory being attacked, captured or fortified, if any
+	 */
+	public Territory getOtherTerritory() {
+		return this.otherTerritory;
+	}
+
+	public int getMin() {
+		return this.min;
+	}
+
+	public int getMax() {
+		return this.max;
+	}
+
+	/**
+	 * @return true if null is a legal answer
+	 */
+	public boolean isOptional() {
+		return this.optional;
+	}
+
+	/**
+	 * @param answer a possible answer
+	 * @return true if the game would accept it
+	 */
+	public boolean isValid(final Object answer) {
+		final boolean valid;
+		if (answer == null) {
+			valid = this.optional;
+		} else if (this.territoryOptions != null) {
+			valid = (answer instanceof Territory)
+					&& (this.territoryOptions.get(((Territory) answer).getName()) == answer);
+		} else if (this.cardSets != null) {
+			valid = this.cardSets.contains(answer);
+		} else if (this.type == Type.CONTINUE_ATTACK) {
+			valid = (answer instanceof Boolean);
+		} else {
+			valid = (answer instanceof Integer)
+					&& ((Integer) answer >= this.min) && ((Integer) answer <= this.max);
+		}
+		return valid;
+	}
+
+	/**
+	 * Asks the player's {@link DecisionProvider}.
+	 * @param session the game
+	 * @return the provider's answer
+	 */
+	public Object ask(final GameSession session) {
+		final DecisionProvider provider = this.player.getDecisionProvider();
+		final Object answer;
+		switch (this.type) {
+		case OCCUPY:
+			answer = provider.chooseTerritoryToOccupy(session, this.player, this.territoryOptions);
+			break;
+		case REINFORCE_TERRITORY:
+			answer = provider.chooseTerritoryToReinforce(session, this.player, this.territoryOptions);
+			break;
+		case REINFORCE_COUNT:
+			answer = provider.chooseNumReinforcements(session, this.player, this.territory, this.max);
+			break;
+		case TRADE_CARDS:
+			answer = provider.chooseCardSet(session, this.player, this.cardSets, !this.optional);
+			break;
+		case ATTACK_FROM:
+			answer = provider.chooseAttackingTerritory(session, this.player, this.territoryOptions);
+			break;
+		case ATTACK_TO:
+			answer = provider.chooseDefendingTerritory(session, this.player, this.territory, this.territoryOptions);
+			break;
+		case BLITZ:
+			answer = provider.chooseBlitzThreshold(session, this.player, this.territory, this.otherTerritory);
+			break;
+		case ATTACK_DICE:
+			answer = provider.chooseNumAttackingArmies(session, this.player, this.territory,
+					this.otherTerritory, this.max);
+			break;
+		case DEFEND_DICE:
+			answer = provider.chooseNumDefendingArmies(session, this.player, this.territory,
+					this.otherTerritory, this.max);
+			break;
+		case CONTINUE_ATTACK:
+			answer = provider.continueAttack(session, this.player, this.territory, this.otherTerritory);
+			break;
+		case MOVE_IN:
+			answer = provider.chooseNumArmiesToMove(session, this.player, this.territory,
+					this.otherTerritory, this.min, this.max);
+			break;
+		case FORTIFY_FROM:
+			answer = provider.chooseFortifySource(session, this.player, this.territoryOptions);
+			break;
+		case FORTIFY_TO:
+			answer = provider.chooseFortifyTarget(session, this.player, this.territory, this.territoryOptions);
+			break;
+		case FORTIFY_COUNT:
+			answer = provider.chooseNumArmiesToFortify(session, this.player, this.territory,
+					this.otherTerritory, this.max);
+			break;
+		default:
+			throw new IllegalStateException("Unknown decision type: " + this.type);
+		}
+		return answer;
+	}
+
+	@Override
+	public String toString() {
+		return this.type + " for " + this.player.getName();
+	}
+}
@@ -0,0 +1,96 @@
+package net.greghaines.risky.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Makes the decisions for a player seated in a {@link GameSession}. 
+ * Each method corresponds to a prompt in the game; the options passed in are always legal choices.
+ */
+public interface DecisionProvider {
+
+	/**
+	 * @return the free territory to occupy during setup
+	 */
+	Territory chooseTerritoryToOccupy(GameSession session, Player player, 
+			Map<String,Territory> freeTerritories);
+
+	/**
+	 * @return the occupied territory to place reinforcements on
+	 */
+	Territory chooseTerritoryToReinforce(GameSession session, Player player, 
+			Map<String,Territory> occupiedTerritories);
+
+	/**
+	 * @return the number of armies to place on the territory (1-max)
+	 */
+	int chooseNumReinforcements(GameSession session, Player player, Territory territory, int max);
+
+	/**
+	 * @param mandatory whether the player must trade in a set
+	 * @return the card set to trade in or null to keep the cards (only if not mandatory)
+	 */
+	Set<Card> chooseCardSet(GameSession session, Player player, List<Set<Card>> cardSets, boolean mandatory);
+
+	/**
+	 * @return the territory to attack from or null to end the attack phase
+	 */
+	Territory chooseAttackingTerritory(GameSession session, Player player, 
+			Map<String,Territory> usableTerritories);
+
+	/**
+	 * @return the territory to attack or null to cancel the attack
+	 */
+	Territory chooseDefendingTerritory(GameSession session, Player player, Territory attackingTerritory, 
+			Map<String,Territory> attackableTerritories);
+
+	/**
+	 * Offers to resolve the whole attack at once ("attack until done").
+	 * @return null to roll one attack at a time or the number of armies (1-less than the 
+	 * attacking territory's armies) at which to stop attacking if the territory hasn't fallen
+	 */
+	Integer chooseBlitzThreshold(GameSession session, Player player, Territory attackingTerritory, 
+			Territory defendingTerritory);
+
+	/**
+	 * @return the number of armies to attack with (1-max)
+	 */
+	int chooseNumAttackingArmies(GameSession session, Player player, Territory attackingTerritory, 
+			Territory defendingTerritory, int max);
+
+	/**
+	 * @return the number of armies to defend with (1-max)
+	 */
+	int chooseNumDefendingArmies(GameSession session, Player player, Territory attackingTerritory, 
+			Territory defendingTerritory, int max);
+
+	/**
+	 * @return true to roll again
+	 */
+	boolean continueAttack(GameSession session, Player player, Territory attackingTerritory, 
+			Territory defendingTerritory);
+
+	/**
+	 * @return the number of armies to move into a captured territory (min-max)
+	 */
+	int chooseNumArmiesToMove(GameSession session, Player player, Territory attackingTerritory, 
+			Territory capturedTerritory, int min, int max);
+
+	/**
+	 * @return the territory to fortify from or null to skip fortification
+	 */
+	Territory chooseFortifySource(GameSession session, Player player, Map<String,Territory> usableTerritories);
+
+	/**
+	 * @return the territory to fortify or null to cancel this fortification action
+	 */
+	Territory chooseFortifyTarget(GameSession session, Player player, Territory sourceTerritory, 
+			Map<String,Territory> fortifiableTerritories);
+
+	/**
+	 * @return the number of armies to move (1-max)
+	 */
+	int chooseNumArmiesToFortify(GameSession session, Player player, Territory sourceTerritory, 
+			Territory targetTerritory, int max);
+}
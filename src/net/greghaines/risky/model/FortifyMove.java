@@ -0,0 +1,41 @@
+package net.greghaines.risky.model;
+
+/**
+ * Moves armies between two of a player's territories.
+ */
+public class FortifyMove implements Move {
+	
+	private final Territory sourceTerritory;
+	private final Territory targetTerritory;
+	private final int numArmies;
+	
+	public FortifyMove(final Territory sourceTerritory, final Territory targetTerritory, final int numArmies) {
+		this.sourceTerritory = sourceTerritory;
+		this.targetTerritory = targetTerritory;
+		this.numArmies = numArmies;
+	}
+
+	public Territory getSourceTerritory() {
+		return this.sourceTerritory;
+	}
+
+	public Territory getTargetTerritory() {
+		return this.targetTerritory;
+	}
+
+	public int getNumArmies() {
+		return this.numArmies;
+	}
+
+	@Override
+	public void apply(final GameBoard board) {
+		board.changeArmies(this.sourceTerritory.getTerritoryID(), this.sourceTerritory.getArmySize() - this.numArmies);
+		board.changeArmies(this.targetTerritory.getTerritoryID(), this.targetTerritory.getArmySize() + this.numArmies);
+	}
+	
+	@Override
+	public String toString() {
+		return "fortify " + this.targetTerritory.getName() + " from " + 
+				this.sourceTerritory.getName() + " with " + this.numArmies;
+	}
+}
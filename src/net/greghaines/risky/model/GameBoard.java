@@ -4,7 +4,7 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
 
@@ -12,151 +12,140 @@ import net.greghaines.risky.model.Card.CardType;
 
 public class GameBoard {
 	
-	private final Map<String,Continent> continents = new TreeMap<String,Continent>();
-	private final Map<String,Territory> allTerritories = new TreeMap<String,Territory>();
+	private final MapTopology topology;
+	private final BoardCore core;
+	private final Map<String,Territory> allTerritories;
+	private final Continent[] continentsByID;
+	private final Territory[] territoriesByID;
+	private final Player[] playersByID = new Player[BoardCore.MAX_OWNER + 1];
 	private final List<Card> cards = new LinkedList<Card>();
-	private final List<Set<Card>> cardSetsTradedIn = new LinkedList<Set<Card>>();
+	private Map<String,Continent> continents = null;
+	private int numCardSetsTradedIn = 0;
+	private final UndoStack undoStack = new UndoStack();
 
 	public GameBoard() {
-		addContinent("Asia", 7, "Siberia", "Yakutsk", "Kamchatka", "Ural", "Irkutsk", "Afganistan", "China", "Mongolia", "Japan", "Middle East", "India", "Siam");
-		addContinent("Africa", 3, "North Africa", "Egypt", "East Africa", "Congo", "South Africa", "Madagascar");
-		addContinent("Austrailia", 2, "Indonesia", "New Guinea", "Western Austrailia", "Eastern Austrailia");
-		addContinent("Europe", 5, "Iceland", "Scandinavia", "Ukraine", "Great Britain", "Northern Europe", "Western Europe", "Southern Europe");
-		addContinent("North America", 5, "Greenland", "Alaska", "Northwest Territory", "Alberta", "Ontario", "Quebec", "Western United States", "Eastern United States", "Central America");
-		addContinent("South America", 2, "Venezuela", "Brazil", "Peru", "Argentina");
-		connect("Kamchatka", "Alaska");
-		connect("Alaska", "Northwest Territory");
-		connect("Alaska", "Alberta");
-		connect("Northwest Territory", "Alberta");
-		connect("Northwest Territory", "Ontario");
-		connect("Northwest Territory", "Greenland");
-		connect("Greenland", "Ontario");
-		connect("Greenland", "Quebec");
-		connect("Greenland", "Iceland");
-		connect("Alberta", "Ontario");
-		connect("Alberta", "Western United States");
-		connect("Ontario", "Western United States");
-		connect("Ontario", "Eastern United States");
-		connect("Ontario", "Quebec");
-		connect("Quebec", "Eastern United States");
-		connect("Western United States", "Eastern United States");
-		connect("Western United States", "Central America");
-		connect("Eastern United States", "Central America");
-		connect("Central America", "Venezuela");
-		connect("Venezuela", "Brazil");
-		connect("Venezuela", "Peru");
-		connect("Peru", "Brazil");
-		connect("Peru", "Argentina");
-		connect("Argentina", "Brazil");
-		connect("Brazil", "North Africa");
-		connect("Iceland", "Great Britain");
-		connect("Iceland", "Scandinavia");
-		connect("Great Britain", "Scandinavia");
-		connect("Great Britain", "Northern Europe");
-		connect("Great Britain", "Western Europe");
-		connect("Scandinavia", "Northern Europe");
-		connect("Scandinavia", "Ukraine");
-		connect("Ukraine", "Northern Europe");
-		connect("Ukraine", "Ural");
-		connect("Ukraine", "Afganistan");
-		connect("Ukraine", "Middle East");
-		connect("Ukraine", "Southern Europe");
-		connect("Northern Europe", "Western Europe");
-		connect("Northern Europe", "Southern Europe");
-		connect("Western Europe", "Southern Europe");
-		connect("Western Europe", "North Africa");
-		connect("Southern Europe", "North Africa");
-		connect("Southern Europe", "Egypt");
-		connect("Southern Europe", "Middle East");
-		connect("North Africa", "Egypt");
-		connect("North Africa", "East Africa");
-		connect("North Africa", "Congo");
-		connect("East Africa", "Middle East");
-		connect("East Africa", "Congo");
-		connect("East Africa", "South Africa");
-		connect("East Africa", "Madagascar");
-		connect("South Africa", "Madagascar");
-		connect("Ural", "Siberia");
-		connect("Ural", "Afganistan");
-		connect("Ural", "China");
-		connect("Siberia", "Yakutsk");
-		connect("Siberia", "Irkutsk");
-		connect("Siberia", "Mongolia");
-		connect("Siberia", "China");
-		connect("Yakutsk", "Irkutsk");
-		connect("Yakutsk", "Kamchatka");
-		connect("Kamchatka", "Irkutsk");
-		connect("Kamchatka", "Mongolia");
-		connect("Kamchatka", "Japan");
-		connect("Irkutsk", "Mongolia");
-		connect("Mongolia", "China");
-		connect("Mongolia", "Japan");
-		connect("Afganistan", "China");
-		connect("Afganistan", "Middle East");
-		connect("Afganistan", "India");
-		connect("China", "India");
-		connect("China", "Siam");
-		connect("India", "Siam");
-		connect("Siam", "Indonesia");
-		connect("Indonesia", "New Guinea");
-		connect("Indonesia", "Western Austrailia");
-		connect("New Guinea", "Western Austrailia");
-		connect("New Guinea", "Eastern Austrailia");
-		connect("Western Austrailia", "Eastern Austrailia");
-		createCardDeck();
-	}
-
-	private void createCardDeck() {
+		this(new Random());
+	}
+
+	public GameBoard(final Random random) {
+		this(MapTopology.classic(), random);
+	}
+
+	/**
+	 * Creates a board for a map. Only the board's state is allocated here; the topology is 
+	 * shared and the {@link Territory} and {@link Continent} objects are made as they're asked for.
+	 * @param topology the map
+	 * @param random shuffles the deck
+	 */
+	public GameBoard(final MapTopology topology, final Random random) {
+		this.topology = topology;
+		this.core = new BoardCore(topology);
+		this.continentsByID = new Continent[topology.getNumContinents()];
+		this.territoriesByID = new Territory[topology.getNumTerritories()];
+		this.allTerritories = new TerritoryMap(this, null, 0, this.territoriesByID.length);
+		createCardDeck(random);
+	}
+
+	private void createCardDeck(final Random random) {
 		final CardType[] nonWildTypes = { CardType.INFANTRY, CardType.CALVARY, CardType.ARTILLERY };
 		int i = 0;
 		// A card for each territory with a non-wild type
-		for (final Territory territory : this.allTerritories.values()) {
+		for (int t = 0; t < this.topology.getNumTerritories(); t++) {
 			final CardType type = nonWildTypes[(++i % nonWildTypes.length)];
-			this.cards.add(new Card(territory.getName(), type));
+			this.cards.add(new Card(this.topology.getTerritoryName(t), type));
 		}
 		// Plus two wild cards
 		this.cards.add(new Card(null, CardType.WILD));
 		this.cards.add(new Card(null, CardType.WILD));
 		// Shuffle the deck
-		Collections.shuffle(this.cards);
+		Collections.shuffle(this.cards, random);
+	}
+
+	public MapTopology getTopology() {
+		return this.topology;
 	}
 
-	private Continent addContinent(final String continentName, final int bonusArmies, 
-			final String... territoryNames) {
-		final Continent continent = new Continent(continentName, bonusArmies, this);
-		this.continents.put(continent.getName(), continent);
-		for (final String territoryName : territoryNames) {
-			this.allTerritories.put(territoryName, createTerritory(territoryName, continent));
+	public BoardCore getCore() {
+		return this.core;
+	}
+
+	public Territory getTerritory(final int territoryID) {
+		Territory territory = this.territoriesByID[territoryID];
+		if (territory == null) {
+			territory = new Territory(territoryID, this.topology.getTerritoryName(territoryID), 
+					getContinent(this.topology.getContinent(territoryID)), this);
+			this.territoriesByID[territoryID] = territory;
+		}
+		return territory;
+	}
+
+	public Continent getContinent(final int continentID) {
+		Continent continent = this.continentsByID[continentID];
+		if (continent == null) {
+			continent = new Continent(continentID, this.topology.getContinentName(continentID), 
+					this.topology.getContinentBonus(continentID), this);
+			this.continentsByID[continentID] = continent;
 		}
 		return continent;
 	}
-	
-	private static Territory createTerritory(final String name, final Continent continent) {
-		final Territory territory = new Territory(name, continent);
-		continent.getTerritories().put(name, territory);
-		return territory;
+
+	/**
+	 * @return a read-only view of the territory's neighbours by name
+	 */
+	Map<String,Territory> createNeighborMap(final int territoryID) {
+		final int start = this.topology.getNeighborStart(territoryID);
+		return new TerritoryMap(this, this.topology.getNeighborIDs(), start, 
+				start + this.topology.getNumNeighbors(territoryID));
 	}
-	
-	private void connect(final String terrName1, final String terrName2) {
-		final Territory terr1 = this.allTerritories.get(terrName1);
-		final Territory terr2 = this.allTerritories.get(terrName2);
-		terr1.getAdjacentTerritories().put(terrName2, terr2);
-		terr2.getAdjacentTerritories().put(terrName1, terr1);
+
+	/**
+	 * @return a read-only view of the continent's territories by name
+	 */
+	Map<String,Territory> createContinentMap(final int continentID) {
+		final int[] ids = this.topology.getContinentTerritoryIDs(continentID);
+		return new TerritoryMap(this, ids, 0, ids.length);
+	}
+
+	/**
+	 * @param playerID an owner from the {@link BoardCore}
+	 * @return the player or null for {@link BoardCore#NO_OWNER}
+	 */
+	public Player getPlayer(final int playerID) {
+		return this.playersByID[playerID];
+	}
+
+	void setOwner(final int territoryID, final Player owner) {
+		if (owner == null) {
+			this.core.setOwner(territoryID, BoardCore.NO_OWNER);
+		} else {
+			this.core.setOwner(territoryID, owner.getPlayerID());
+			this.playersByID[owner.getPlayerID()] = owner;
+		}
 	}
 
 	public Map<String, Continent> getContinents() {
+		if (this.continents == null) {
+			final Map<String,Continent> continents = new TreeMap<String,Continent>();
+			for (int c = 0; c < this.continentsByID.length; c++) {
+				continents.put(this.topology.getContinentName(c), getContinent(c));
+			}
+			this.continents = Collections.unmodifiableMap(continents);
+		}
 		return this.continents;
 	}
 
+	/**
+	 * @return a read-only view of every territory by name
+	 */
 	public Map<String, Territory> getAllTerritories() {
 		return this.allTerritories;
 	}
 
 	public Map<String, Continent> getOccupiedContinents(final Player player) {
 		final Map<String,Continent> occupiedContinents = new TreeMap<String,Continent>();
-		for (final Entry<String,Continent> e : this.continents.entrySet()) {
-			if (player.equals(e.getValue().getOwner())) {
-				occupiedContinents.put(e.getKey(), e.getValue());
+		for (int c = 0; c < this.continentsByID.length; c++) {
+			if (this.core.getContinentOwner(c) == player.getPlayerID()) {
+				occupiedContinents.put(this.topology.getContinentName(c), getContinent(c));
 			}
 		}
 		return occupiedContinents;
@@ -164,37 +153,65 @@ public class GameBoard {
 
 	public Map<String, Territory> getOccupiedTerritories(final Player player) {
 		final Map<String,Territory> occupiedTeritories = new TreeMap<String,Territory>();
-		for (final Entry<String,Territory> e : this.allTerritories.entrySet()) {
-			if (player.equals(e.getValue().getOwner())) {
-				occupiedTeritories.put(e.getKey(), e.getValue());
-			}
+		final int owner = player.getPlayerID();
+		for (int i = this.core.nextOwned(owner, 0); i >= 0; i = this.core.nextOwned(owner, i + 1)) {
+			occupiedTeritories.put(this.topology.getTerritoryName(i), getTerritory(i));
 		}
 		return occupiedTeritories;
 	}
 
 	public Map<String, Territory> getUsableTerritories(final Player player) {
 		final Map<String,Territory> usableTeritories = new TreeMap<String,Territory>();
-		for (final Entry<String,Territory> e : this.allTerritories.entrySet()) {
-			final Territory territory = e.getValue();
-			if (territory.isUsable() && player.equals(territory.getOwner())) {
-				usableTeritories.put(e.getKey(), territory);
-			}
+		final int owner = player.getPlayerID();
+		for (int i = this.core.nextUsable(owner, 0); i >= 0; i = this.core.nextUsable(owner, i + 1)) {
+			usableTeritories.put(this.topology.getTerritoryName(i), getTerritory(i));
 		}
 		return usableTeritories;
 	}
 
 	public Card drawCard() {
-		return this.cards.remove(0);
+		return (this.cards.isEmpty()) ? null : this.cards.remove(0);
+	}
+
+	/**
+	 * @return the cards left to draw, next first
+	 */
+	public List<Card> getDeck() {
+		return Collections.unmodifiableList(this.cards);
+	}
+
+	/**
+	 * Replaces the cards left to draw, e.g. when restoring a game.
+	 * @param deck the cards, next first
+	 */
+	public void setDeck(final List<Card> deck) {
+		this.cards.clear();
+		this.cards.addAll(deck);
 	}
 
 	public int getNumCardSetsTradedIn() {
-		return this.cardSetsTradedIn.size();
+		return this.numCardSetsTradedIn;
+	}
+
+	/**
+	 * Sets how many card sets have been traded in, e.g. when restoring a game.
+	 * @param numCardSetsTradedIn the number of sets traded in so far
+	 */
+	public void setNumCardSetsTradedIn(final int numCardSetsTradedIn) {
+		this.numCardSetsTradedIn = numCardSetsTradedIn;
 	}
 	
+	/**
+	 * @return the {@link Zobrist} hash of the board's territories and the number of card sets 
+	 * traded in; the order of the deck is left out, since nobody can see it
+	 */
+	public long getHash() {
+		return this.core.getHash() ^ Zobrist.tradeIns(this.numCardSetsTradedIn);
+	}
+
 	public int tradeInCardSet(final Set<Card> cardSet) {
 		int numNewArmies = 2;
-		this.cardSetsTradedIn.add(cardSet);
-		final int numCardSetsTradedIn = getNumCardSetsTradedIn();
+		final int numCardSetsTradedIn = ++this.numCardSetsTradedIn;
 		final int baseScore = Math.min(5, numCardSetsTradedIn);
 		numNewArmies += 2 * baseScore;
 		if (baseScore < numCardSetsTradedIn) {
@@ -203,4 +220,114 @@ public class GameBoard {
 		}
 		return numNewArmies;
 	}
+
+	/**
+	 * @return the player's territories that border someone else's
+	 */
+	public Map<String, Territory> getFrontierTerritories(final Player player) {
+		final Map<String,Territory> frontierTeritories = new TreeMap<String,Territory>();
+		final int owner = player.getPlayerID();
+		for (int i = this.core.nextFrontier(owner, 0); i >= 0; i = this.core.nextFrontier(owner, i + 1)) {
+			frontierTeritories.put(this.topology.getTerritoryName(i), getTerritory(i));
+		}
+		return frontierTeritories;
+	}
+
+	/**
+	 * Applies the move and records how to take it back.
+	 * @see #unmakeMove()
+	 */
+	public void makeMove(final Move move) {
+		this.undoStack.mark();
+		move.apply(this);
+	}
+
+	/**
+	 * Takes back the most recently made move, in time proportional to the fields it changed.
+	 */
+	public void unmakeMove() {
+		for (int n = this.undoStack.popMark(); n > 0; n--) {
+			final long record = this.undoStack.pop();
+			final int id = UndoStack.id(record);
+			final int oldValue = UndoStack.oldValue(record);
+			switch (UndoStack.kind(record)) {
+			case UndoStack.ARMIES:
+				this.core.setArmies(id, oldValue);
+				break;
+			case UndoStack.OWNER:
+				this.core.setOwner(id, oldValue);
+				break;
+			case UndoStack.ARMIES_IN_HAND:
+				this.playersByID[id].setNumArmiesInHand(oldValue);
+				break;
+			case UndoStack.ELIMINATED:
+				this.playersByID[id].setEliminated(oldValue != 0);
+				break;
+			case UndoStack.TRADE_IN:
+				@SuppressWarnings("unchecked")
+				final Set<Card> cardSet = (Set<Card>) this.undoStack.popObject();
+				this.numCardSetsTradedIn--;
+				for (final Card card : cardSet) {
+					this.playersByID[id].addCard(card);
+				}
+				break;
+			default:
+				throw new IllegalStateException("Unknown undo record: " + Long.toHexString(record));
+			}
+		}
+	}
+
+	/**
+	 * Applies the move for good; nothing is recorded unless a move is already being made.
+	 */
+	public void applyMove(final Move move) {
+		move.apply(this);
+	}
+
+	/**
+	 * @return the number of made moves that can be taken back
+	 */
+	public int getNumMovesMade() {
+		return this.undoStack.getDepth();
+	}
+
+	void changeArmies(final int territoryID, final int armySize) {
+		if (this.undoStack.isRecording()) {
+			this.undoStack.push(UndoStack.ARMIES, territoryID, this.core.getArmies(territoryID));
+		}
+		this.core.setArmies(territoryID, armySize);
+	}
+
+	void changeOwner(final int territoryID, final Player owner) {
+		if (this.undoStack.isRecording()) {
+			this.undoStack.push(UndoStack.OWNER, territoryID, this.core.getOwner(territoryID));
+		}
+		setOwner(territoryID, owner);
+	}
+
+	void changeArmiesInHand(final Player player, final int numArmiesInHand) {
+		this.playersByID[player.getPlayerID()] = player;
+		if (this.undoStack.isRecording()) {
+			this.undoStack.push(UndoStack.ARMIES_IN_HAND, player.getPlayerID(), player.getNumArmiesInHand());
+		}
+		player.setNumArmiesInHand(numArmiesInHand);
+	}
+
+	void changeEliminated(final Player player, final boolean eliminated) {
+		this.playersByID[player.getPlayerID()] = player;
+		if (this.undoStack.isRecording()) {
+			this.undoStack.push(UndoStack.ELIMINATED, player.getPlayerID(), (player.isEliminated()) ? 1 : 0);
+		}
+		player.setEliminated(eliminated);
+	}
+
+	int changeTradeIn(final Player player, final Set<Card> cardSet) {
+		this.playersByID[player.getPlayerID()] = player;
+		if (this.undoStack.isRecording()) {
+			this.undoStack.push(UndoStack.TRADE_IN, player.getPlayerID(), 0);
+			this.undoStack.pushObject(cardSet);
+		}
+		player.removeCardSet(cardSet);
+		return tradeInCardSet(cardSet);
+	}
 }
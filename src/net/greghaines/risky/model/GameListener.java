@@ -0,0 +1,57 @@
+package net.greghaines.risky.model;
+
+/**
+ * Is told about everything that happens in a game, as it happens. 
+ * Every change to the board arrives as the {@link Move} that made it; the rest are the 
+ * events between moves that a complete record of the game needs.
+ * @see GameSession#addListener(GameListener)
+ */
+public interface GameListener {
+
+	/**
+	 * A player's turn is starting, before they're awarded reinforcements.
+	 * @param session the game
+	 * @param turnNum the number of the turn, counting every player's turns from 1
+	 * @param player whose turn it is
+	 */
+	void turnStarted(GameSession session, int turnNum, Player player);
+
+	/**
+	 * @param session the game
+	 * @param move a move that has just been applied to the board
+	 */
+	void moveApplied(GameSession session, Move move);
+
+	/**
+	 * Dice were rolled for a single attack roll; blitzes don't roll dice.
+	 * @param session the game
+	 * @param attackerRolls the attacker's dice, highest first
+	 * @param numAttackerDice how many of attackerRolls were rolled
+	 * @param defenderRolls the defender's dice, highest first
+	 * @param numDefenderDice how many of defenderRolls were rolled
+	 */
+	void diceRolled(GameSession session, int[] attackerRolls, int numAttackerDice, 
+			int[] defenderRolls, int numDefenderDice);
+
+	/**
+	 * @param session the game
+	 * @param player who drew the card
+	 * @param card the card drawn
+	 */
+	void cardDrawn(GameSession session, Player player, Card card);
+
+	/**
+	 * Armies were added to a player's hand at the start of their turn for their territories 
+	 * and continents; armies for card sets come with their {@link TradeCardsMove}.
+	 * @param session the game
+	 * @param player who got the armies
+	 * @param numArmies how many
+	 */
+	void reinforcementsAwarded(GameSession session, Player player, int numArmies);
+
+	/**
+	 * @param session the game
+	 * @param victor who conquered the world
+	 */
+	void gameOver(GameSession session, Player victor);
+}
@@ -1,424 +1,1018 @@
 package net.greghaines.risky.model;
 
 import static net.greghaines.risky.utils.Dice.rollDice;
-import static net.greghaines.risky.utils.IOUtils.printf;
-import static net.greghaines.risky.utils.IOUtils.println;
 import static net.greghaines.risky.utils.IOUtils.readInteger;
 import static net.greghaines.risky.utils.IOUtils.readLine;
-import static net.greghaines.risky.utils.IOUtils.readOption;
 import static net.greghaines.risky.utils.IOUtils.readYesNo;
 import static net.greghaines.risky.utils.IOUtils.sprintf;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
 
+import net.greghaines.risky.ai.MctsDecisionProvider;
+import net.greghaines.risky.ai.TranspositionTable;
+import net.greghaines.risky.battle.BattleOdds;
+import net.greghaines.risky.battle.BattleOutcome;
+import net.greghaines.risky.utils.ConsoleOutputSink;
+import net.greghaines.risky.utils.Dice;
+import net.greghaines.risky.utils.OutputSink;
+
 public class GameSession {
+	
+	/**
+	 * Where a game is, as far as saving and resuming it goes.
+	 */
+	public enum Phase {
+		/** Not started yet. */
+		NEW,
+		/** Occupying territories and placing the starting armies. */
+		SETUP,
+		/** Taking turns. */
+		PLAYING,
+		/** Somebody conquered the world. */
+		OVER;
+	}
+	
+	/**
+	 * The steps the game goes through, in roughly this order. The *_CHOSEN steps take 
+	 * the answer to the decision asked by the step before.
+	 */
+	private enum Step {
+		SETUP, OCCUPY, OCCUPY_CHOSEN, PLACE_START, PLACE, SETUP_DONE, 
+		TURN_START, TRADE, TRADE_CHOSEN, AWARD, REINFORCE, REINFORCE_TERRITORY_CHOSEN, REINFORCE_COUNT_CHOSEN, 
+		ATTACK_FROM, ATTACK_FROM_CHOSEN, ATTACK_TO_CHOSEN, BLITZ_CHOSEN, ROLL, ATTACK_DICE_CHOSEN, 
+		DEFEND_DICE_CHOSEN, CONTINUE_CHOSEN, MOVE_IN_CHOSEN, ATTACK_DONE, DRAW_CARD, 
+		FORTIFY_FROM, FORTIFY_FROM_CHOSEN, FORTIFY_TO_CHOSEN, FORTIFY_COUNT_CHOSEN, TURN_END, GAME_OVER, FINISHED;
+	}
+	
+	public static final int MIN_PLAYERS = 3;
+	public static final int MAX_PLAYERS = 6;
+	private static final long COMPUTER_BUDGET_MILLIS = 1000;
+	private static final long COMPUTER_TABLE_BYTES = 64L << 20;
 
-	private final GameBoard gameBoard = new GameBoard();
+	private final Random random;
+	private final GameBoard gameBoard;
 	private final List<Player> players;
+	private final OutputSink out;
+	private final List<Integer> eliminationRounds = new ArrayList<Integer>(MAX_PLAYERS - 1);
+	private final int[] attackerRolls = new int[Dice.MAX_DICE];
+	private final int[] defenderRolls = new int[Dice.MAX_DICE];
+	private final List<GameListener> listeners = new ArrayList<GameListener>(1);
 	private Player victor = null;
+	private Phase phase = Phase.NEW;
+	private int roundNum = 0;
+	private int roundLimit = Integer.MAX_VALUE;
+	private int turnNum = 0;
+	private int turnIndex = -1;
+	private boolean atTurnStart = false;
+	/** Where the game is up to, while it plays; see {@link #run()}. */
+	private Step step = null;
+	/** Reused for every decision, since only one is ever pending. */
+	private final Decision decision = new Decision();
+	private Decision pending = null;
+	private Object answer = null;
+	private Player currentPlayer = null;
+	private Map<String,Territory> freeTerritories = null;
+	private int setupIndex = 0;
+	private int numEmptyPlayers = 0;
+	private int numNewArmies = 0;
+	private int cardArmies = 0;
+	private Player reinforcingPlayer = null;
+	private boolean oneAtATime = false;
+	private Step afterReinforcing = null;
+	private Map<String,Territory> occupiedTerritories = null;
+	private Territory selectedTerritory = null;
+	private Territory targetTerritory = null;
+	private AttackInfo attackInfo = null;
+	private boolean capturedTerritory = false;
+	private int minArmiesToMove = 0;
+	private boolean connectedFortify = false;
+	private ConnectedRegions regions = null;
 	
+	/**
+	 * Sets up a game on the classic map at the console, asking for the players and the house rules.
+	 */
 	public GameSession() {
-		this.players = readPlayers();
-	}
-	
-	public void play() {
-		randomizePlayers(); // Instead of rolling a die to see who places first
-		occupyTerritories();
-		sendReinforcements();
-		randomizePlayers(); // Instead of rolling a die to see who plays first
-		gameLoop();
-		printf("=== Congratulations, %s! You conquered the world! ===%n", this.victor.getName());
-	}
-
-	private void gameLoop() {
-		println("All armies placed... Let the game begin!");
-		int roundNum = 0;
-		while (this.victor == null) {
-			printf("--- Round #%d ---%n", ++roundNum);
-			for (final Player player : this.players) {
-				if (!player.isEliminated()) {
-					printf("%s, it is now your turn.%n", player.getName());
-					awardReinforcements(player);
-					while (player.getNumArmiesInHand() > 0) {
-						sendReinforcements(player, false);
-					}
-					attackLoop(player);
-					if (this.victor != null) {
-						break; // Someone won the game, exit the game loop
+		this(readPlayers(), ConsoleOutputSink.INSTANCE, new Random());
+		this.connectedFortify = readYesNo("Allow fortifying through any chain of your own territories?");
+	}
+	
+	public GameSession(final List<Player> players, final OutputSink out, final Random random) {
+		this(players, out, random, MapTopology.classic());
+	}
+	
+	/**
+	 * @param topology the map to play on; on maps with more territories than the starting 
+	 * armies can cover, everyone starts with enough armies to occupy their share
+	 */
+	public GameSession(final List<Player> players, final OutputSink out, final Random random, 
+			final MapTopology topology) {
+		if (players.size() < MIN_PLAYERS || players.size() > MAX_PLAYERS) {
+			throw new IllegalArgumentException("A game needs " + MIN_PLAYERS + "-" + MAX_PLAYERS + 
+					" players (players=" + players.size() + ")");
+		}
+		final Set<Integer> playerIDs = new HashSet<Integer>();
+		for (final Player player : players) {
+			if (player.getPlayerID() < 1 || player.getPlayerID() > BoardCore.MAX_OWNER) {
+				throw new IllegalArgumentException("Player IDs must be 1-" + BoardCore.MAX_OWNER + 
+						" (playerID=" + player.getPlayerID() + ")");
+			}
+			if (!playerIDs.add(player.getPlayerID())) {
+				throw new IllegalArgumentException("Duplicate player ID: " + player.getPlayerID());
+			}
+		}
+		this.random = random;
+		this.gameBoard = new GameBoard(topology, random);
+		this.players = new ArrayList<Player>(players);
+		this.out = out;
+		final int fairShare = (topology.getNumTerritories() + this.players.size() - 1) / this.players.size();
+		for (final Player player : this.players) {
+			player.setNumArmiesInHand(Math.max(50 - (5 * this.players.size()), fairShare));
+		}
+	}
+
+	public GameBoard getGameBoard() {
+		return this.gameBoard;
+	}
+
+	public List<Player> getPlayers() {
+		return Collections.unmodifiableList(this.players);
+	}
+
+	public Player getVictor() {
+		return this.victor;
+	}
+
+	public int getRoundNum() {
+		return this.roundNum;
+	}
+
+	/**
+	 * @return how many turns have started, counting every player's turns
+	 */
+	public int getTurnNum() {
+		return this.turnNum;
+	}
+
+	public List<Integer> getEliminationRounds() {
+		return Collections.unmodifiableList(this.eliminationRounds);
+	}
+	
+	public void addListener(final GameListener listener) {
+		this.listeners.add(listener);
+	}
+	
+	public void removeListener(final GameListener listener) {
+		this.listeners.remove(listener);
+	}
+	
+	public Phase getPhase() {
+		return this.phase;
+	}
+	
+	/**
+	 * A {@link Zobrist} hash of where the game stands: the board, the cards traded in, every 
+	 * player's hand and armies to place, whose turn it is and how far through it they are. 
+	 * The board's and the hands' parts are kept up to date as they change, so this is a few 
+	 * XORs per player. A restored game hashes the same as the game that was saved, so the hash 
+	 * can tell when two games have reached the same position.
+	 */
+	public long getStateHash() {
+		long hash = this.gameBoard.getHash() ^ Zobrist.phase(this.phase.ordinal());
+		for (final Player player : this.players) {
+			hash ^= player.getHandHash() ^ Zobrist.armiesInHand(player.getPlayerID(), player.getNumArmiesInHand());
+		}
+		final Player playerToMove = (this.turnIndex >= 0) ? this.players.get(this.turnIndex) : this.currentPlayer;
+		if (playerToMove != null) {
+			hash ^= Zobrist.player(playerToMove.getPlayerID());
+		}
+		if (this.phase == Phase.SETUP || this.phase == Phase.PLAYING) {
+			// A restored game hasn't started its turn yet
+			final Step step = (this.step == null) ? Step.TURN_START : this.step;
+			hash ^= Zobrist.phase(Phase.values().length + step.ordinal());
+		}
+		return hash;
+	}
+
+	public boolean isConnectedFortify() {
+		return this.connectedFortify;
+	}
+	
+	/**
+	 * Chooses between the standard rule, fortifying only a neighbouring territory, and the house 
+	 * rule of moving armies through any chain of the player's own territories. 
+	 * The rule is saved with the game.
+	 * @param connectedFortify true for the house rule
+	 */
+	public void setConnectedFortify(final boolean connectedFortify) {
+		this.connectedFortify = connectedFortify;
+	}
+	
+	/**
+	 * Plays the game from wherever it is: from the start, or from the turn it was saved at, 
+	 * asking each player's {@link DecisionProvider} for every decision.
+	 * @return the victor
+	 * @see #save(ByteBuffer)
+	 */
+	public Player play() {
+		return play(Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Plays the game like {@link #play()}, but gives up once the given round is over, e.g. so 
+	 * players that never attack can't keep a simulation going forever.
+	 * @param maxRounds the last round to play
+	 * @return the victor, or null if nobody had won by the end of that round
+	 */
+	public Player play(final int maxRounds) {
+		this.roundLimit = maxRounds;
+		Decision decision = start();
+		while (decision != null) {
+			decision = proceed(decision.ask(this)); // Providers only ever answer with the options they're given
+		}
+		return this.victor;
+	}
+	
+	/**
+	 * Runs the game from wherever it is up to the first decision a player has to make. 
+	 * Together with {@link #decide(Object)}, this plays the game a decision at a time 
+	 * without blocking, e.g. from an event loop.
+	 * @return the decision the game is waiting on, or null if the game is over
+	 */
+	public Decision start() {
+		if (this.step == null) {
+			switch (this.phase) {
+			case NEW:
+				this.step = Step.SETUP;
+				break;
+			case PLAYING:
+				this.step = Step.TURN_START;
+				break;
+			case OVER:
+				this.step = Step.GAME_OVER;
+				break;
+			default:
+				throw new IllegalStateException("Cannot start a game in phase " + this.phase);
+			}
+			if (this.connectedFortify) {
+				this.out.println("House rule: armies can fortify through any chain of their own territories.");
+			}
+			run();
+		}
+		return this.pending;
+	}
+	
+	/**
+	 * @return the decision the game is waiting on, or null if it hasn't started or is over
+	 */
+	public Decision getPendingDecision() {
+		return this.pending;
+	}
+	
+	/**
+	 * Answers the decision the game is waiting on and runs the game up to the next one.
+	 * @param answer a legal answer to the pending decision
+	 * @return the next decision, or null if the game is over
+	 * @throws IllegalStateException if the game isn't waiting on a decision
+	 * @throws IllegalArgumentException if the answer isn't legal
+	 * @see Decision#isValid(Object)
+	 */
+	public Decision decide(final Object answer) {
+		if (this.pending == null) {
+			throw new IllegalStateException("The game is not waiting on a decision");
+		}
+		if (!this.pending.isValid(answer)) {
+			throw new IllegalArgumentException("Not a legal answer to " + this.pending + ": " + answer);
+		}
+		return proceed(answer);
+	}
+	
+	private Decision proceed(final Object answer) {
+		this.answer = answer;
+		this.pending = null;
+		run();
+		return this.pending;
+	}
+	
+	/**
+	 * Takes steps until the game needs a decision or is over. 
+	 * Each step that asks a question names the step that takes the answer.
+	 */
+	private void run() {
+		while (this.pending == null && this.step != Step.FINISHED 
+				&& !(this.step == Step.TURN_END && this.roundNum >= this.roundLimit && isLastTurnOfRound())) {
+			switch (this.step) {
+			case SETUP:
+				this.phase = Phase.SETUP;
+				randomizePlayers(); // Instead of rolling a die to see who places first
+				this.freeTerritories = new TreeMap<String,Territory>(this.gameBoard.getAllTerritories());
+				this.setupIndex = 0;
+				this.step = Step.OCCUPY;
+				break;
+			case OCCUPY:
+				this.currentPlayer = this.players.get(this.setupIndex);
+				ask(Decision.Type.OCCUPY, this.currentPlayer, this.freeTerritories, 
+						null, null, null, 0, 0, false, Step.OCCUPY_CHOSEN);
+				break;
+			case OCCUPY_CHOSEN:
+				occupy((Territory) this.answer);
+				break;
+			case PLACE_START:
+				this.out.println("All territories occupied... send in the reinforcements!");
+				this.setupIndex = 0;
+				this.numEmptyPlayers = 0;
+				this.step = Step.PLACE;
+				break;
+			case PLACE:
+				place();
+				break;
+			case SETUP_DONE:
+				randomizePlayers(); // Instead of rolling a die to see who plays first
+				this.out.println("All armies placed... Let the game begin!");
+				this.phase = Phase.PLAYING;
+				this.freeTerritories = null;
+				nextTurn();
+				this.step = Step.TURN_START;
+				break;
+			case TURN_START:
+				startTurn();
+				break;
+			case TRADE:
+				offerCardSets();
+				break;
+			case TRADE_CHOSEN:
+				tradeInCardSet(uncheckedCardSet(this.answer));
+				break;
+			case AWARD:
+				awardReinforcements();
+				break;
+			case REINFORCE:
+				if (this.currentPlayer.getNumArmiesInHand() > 0) {
+					beginReinforcing(this.currentPlayer, false, Step.REINFORCE);
+				} else {
+					this.capturedTerritory = false;
+					this.step = Step.ATTACK_FROM;
+				}
+				break;
+			case REINFORCE_TERRITORY_CHOSEN:
+				chooseNumReinforcements((Territory) this.answer);
+				break;
+			case REINFORCE_COUNT_CHOSEN:
+				reinforce((Integer) this.answer);
+				break;
+			case ATTACK_FROM:
+				ask(Decision.Type.ATTACK_FROM, this.currentPlayer, 
+						this.gameBoard.getUsableTerritories(this.currentPlayer), null, null, null, 0, 0, true, 
+						Step.ATTACK_FROM_CHOSEN);
+				break;
+			case ATTACK_FROM_CHOSEN:
+				if (this.answer == null) {
+					this.step = Step.DRAW_CARD;
+				} else {
+					this.selectedTerritory = (Territory) this.answer;
+					ask(Decision.Type.ATTACK_TO, this.currentPlayer, 
+							this.selectedTerritory.getAttackableTerritories(), null, this.selectedTerritory, null, 0, 0, true, 
+							Step.ATTACK_TO_CHOSEN);
+				}
+				break;
+			case ATTACK_TO_CHOSEN:
+				if (this.answer == null) {
+					this.step = Step.ATTACK_FROM; // Cancel this attack and continue the attack phase
+				} else {
+					beginAttack(this.selectedTerritory, (Territory) this.answer);
+				}
+				break;
+			case BLITZ_CHOSEN:
+				if (this.answer == null) {
+					this.step = Step.ROLL;
+				} else {
+					this.capturedTerritory |= doBlitz(this.attackInfo, (Integer) this.answer);
+					handleAttackAftermath();
+				}
+				break;
+			case ROLL:
+				chooseNumAttackingArmies();
+				break;
+			case ATTACK_DICE_CHOSEN:
+				chooseNumDefendingArmies((Integer) this.answer);
+				break;
+			case DEFEND_DICE_CHOSEN:
+				roll((Integer) this.answer);
+				break;
+			case CONTINUE_CHOSEN:
+				this.step = ((Boolean) this.answer) ? Step.ROLL : Step.ATTACK_DONE;
+				break;
+			case MOVE_IN_CHOSEN:
+				moveIn((Integer) this.answer);
+				break;
+			case ATTACK_DONE:
+				this.step = (checkForVictory()) ? Step.DRAW_CARD : Step.ATTACK_FROM;
+				break;
+			case DRAW_CARD:
+				drawCard();
+				if (this.victor == null) {
+					if (this.connectedFortify) {
+						findRegions(); // Nothing changes hands again until the next turn
 					}
-					fortify(player);
+					this.step = Step.FORTIFY_FROM;
+				} else {
+					this.step = Step.GAME_OVER;
+				}
+				break;
+			case FORTIFY_FROM:
+				ask(Decision.Type.FORTIFY_FROM, this.currentPlayer, 
+						(this.connectedFortify) ? getConnectedSources() : this.gameBoard.getUsableTerritories(this.currentPlayer), 
+						null, null, null, 0, 0, true, Step.FORTIFY_FROM_CHOSEN);
+				break;
+			case FORTIFY_FROM_CHOSEN:
+				if (this.answer == null) {
+					this.step = Step.TURN_END;
+				} else {
+					this.selectedTerritory = (Territory) this.answer;
+					ask(Decision.Type.FORTIFY_TO, this.currentPlayer, 
+							(this.connectedFortify) ? getConnectedTargets(this.selectedTerritory) 
+									: this.selectedTerritory.getFortifiableTerritories(), 
+							null, this.selectedTerritory, null, 0, 0, true, Step.FORTIFY_TO_CHOSEN);
 				}
+				break;
+			case FORTIFY_TO_CHOSEN:
+				if (this.answer == null) {
+					this.step = Step.FORTIFY_FROM; // Cancel this fortification action and choose again
+				} else {
+					chooseNumArmiesToFortify((Territory) this.answer);
+				}
+				break;
+			case FORTIFY_COUNT_CHOSEN:
+				fortify((Integer) this.answer);
+				break;
+			case TURN_END:
+				this.out.flush(); // Show each turn as a whole
+				nextTurn();
+				this.step = Step.TURN_START;
+				break;
+			case GAME_OVER:
+				this.phase = Phase.OVER;
+				this.out.printf("=== Congratulations, %s! You conquered the world! ===%n", this.victor.getName());
+				this.out.flush();
+				for (final GameListener listener : this.listeners) {
+					listener.gameOver(this, this.victor);
+				}
+				this.step = Step.FINISHED;
+				break;
+			default:
+				throw new IllegalStateException("Unknown step: " + this.step);
 			}
 		}
 	}
+	
+	private void ask(final Decision.Type type, final Player player, final Map<String,Territory> territoryOptions, 
+			final List<Set<Card>> cardSets, final Territory territory, final Territory otherTerritory, 
+			final int min, final int max, final boolean optional, final Step next) {
+		this.decision.set(type, player, territoryOptions, cardSets, territory, otherTerritory, min, max, optional);
+		this.pending = this.decision;
+		this.step = next;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Set<Card> uncheckedCardSet(final Object answer) {
+		return (Set<Card>) answer;
+	}
 
-	private void attackLoop(final Player player) {
-		boolean capturedAtLeastOneTerritory = false;
-		boolean attacking = true;
-		while (attacking) {
-			final Map<String, Territory> usableTerritories = 
-					this.gameBoard.getUsableTerritories(player);
-			final Territory attackingTerritory = readOption(
-					player.getName() + ", select a territory from which to attack (type 'done' to end attack phase):", 
-					"Please select a territory or type 'done'...", 
-					usableTerritories, true);
-			if (attackingTerritory == null) {
-				attacking = false;
-			} else {
-				final Map<String,Territory> attackableTerritories = 
-						attackingTerritory.getAttackableTerritories();
-				final Territory defendingTerritory = readOption(
-						player.getName() + ", select a territory to attack (type 'done' to cancel the attack):", 
-						"Please select a territory or type 'done'...", 
-						attackableTerritories, true);
-				if (defendingTerritory != null) {
-					capturedAtLeastOneTerritory |= doAttacks(attackingTerritory, defendingTerritory);
-					attacking = !checkForVictory();
-				} // Else, cancel this attack and continue the loop
+	/**
+	 * Moves on to the next player still in the game, starting a new round when the order wraps.
+	 */
+	/**
+	 * @return true if no one after the current player is left to take a turn this round
+	 */
+	private boolean isLastTurnOfRound() {
+		boolean last = true;
+		for (int i = this.turnIndex + 1; i < this.players.size() && last; i++) {
+			last = this.players.get(i).isEliminated();
+		}
+		return last;
+	}
+
+	private void nextTurn() {
+		do {
+			this.turnIndex = (this.turnIndex + 1) % this.players.size();
+			if (this.turnIndex == 0) {
+				this.out.printf("--- Round #%d ---%n", ++this.roundNum);
 			}
+		} while (this.players.get(this.turnIndex).isEliminated());
+		this.turnNum++;
+	}
+
+	/**
+	 * Writes the whole state of the game to the buffer, so it can be resumed later with 
+	 * {@link #load(ByteBuffer, List, OutputSink, Random, MapTopology)}. A game can be saved before it 
+	 * starts, once it's over, or from a {@link GameListener#turnStarted} callback; 
+	 * in the middle of a turn there are decisions under way that can't be saved.
+	 * @param buf where to write the game, with at least {@link #maxSaveSize(MapTopology)} bytes remaining
+	 * @throws IllegalStateException if the game is in the middle of setup or of a turn
+	 * @throws IllegalArgumentException if the buffer has less room than that
+	 */
+	public void save(final ByteBuffer buf) {
+		if (this.phase == Phase.SETUP || (this.phase == Phase.PLAYING && !this.atTurnStart)) {
+			throw new IllegalStateException("A game can only be saved between turns (phase=" + this.phase + ")");
 		}
-		if (capturedAtLeastOneTerritory) {
-			final Card drawnCard = this.gameBoard.drawCard();
-			if (drawnCard == null) {
-				printf("Sorry, %s, there are no more Risk(y) cards available...%n", player.getName());
+		SessionSnapshot.write(this, buf);
+	}
+
+	/**
+	 * @param topology a map
+	 * @return the most bytes {@link #save(ByteBuffer)} will write for a game on it
+	 */
+	public static int maxSaveSize(final MapTopology topology) {
+		return SessionSnapshot.maxSize(topology);
+	}
+
+	/**
+	 * Restores a game saved on the classic map.
+	 * @see #load(ByteBuffer, List, OutputSink, Random, MapTopology)
+	 */
+	public static GameSession load(final ByteBuffer buf, final List<Player> players, 
+			final OutputSink out, final Random random) {
+		return load(buf, players, out, random, MapTopology.classic());
+	}
+
+	/**
+	 * Restores a saved game, ready to {@link #play()} on from where it was saved.
+	 * @param buf the saved game
+	 * @param players the players, with the same IDs as when the game was saved, in any order
+	 * @param out where to write the game's messages
+	 * @param random the source of randomness for the rest of the game
+	 * @param topology the map the game was saved on
+	 * @return the restored game
+	 * @throws IllegalArgumentException if the save is corrupt, was made on another map or 
+	 * the players don't match it
+	 */
+	public static GameSession load(final ByteBuffer buf, final List<Player> players, 
+			final OutputSink out, final Random random, final MapTopology topology) {
+		final GameSession session = new GameSession(players, out, random, topology);
+		SessionSnapshot.read(session, buf);
+		return session;
+	}
+
+	void restore(final Phase phase, final int roundNum, final int turnNum, final int turnIndex, 
+			final List<Player> turnOrder, final List<Integer> eliminationRounds, final Player victor, 
+			final boolean connectedFortify) {
+		this.phase = phase;
+		this.roundNum = roundNum;
+		this.turnNum = turnNum;
+		this.turnIndex = turnIndex;
+		this.players.clear();
+		this.players.addAll(turnOrder);
+		this.eliminationRounds.clear();
+		this.eliminationRounds.addAll(eliminationRounds);
+		this.victor = victor;
+		this.connectedFortify = connectedFortify;
+		this.atTurnStart = (phase == Phase.PLAYING); // The saved turn hasn't started yet
+	}
+
+	int getTurnIndex() {
+		return this.turnIndex;
+	}
+
+	private void occupy(final Territory territory) {
+		this.freeTerritories.remove(territory.getName());
+		applyMove(new OccupyMove(territory, this.currentPlayer));
+		this.setupIndex = (this.setupIndex + 1) % this.players.size();
+		this.step = (this.freeTerritories.isEmpty()) ? Step.PLACE_START : Step.OCCUPY;
+	}
+	
+	/**
+	 * Goes around the table placing one army at a time, until a whole round finds nobody with armies left.
+	 */
+	private void place() {
+		if (this.setupIndex == this.players.size()) {
+			if (this.numEmptyPlayers == this.players.size()) {
+				this.step = Step.SETUP_DONE;
 			} else {
-				player.addCard(drawnCard);
-				printf("%s captured at least one territory and drew a '%s' card.%n", player.getName(), drawnCard);
+				this.setupIndex = 0;
+				this.numEmptyPlayers = 0;
+			}
+		} else {
+			final Player player = this.players.get(this.setupIndex++);
+			if (player.getNumArmiesInHand() == 0) {
+				this.numEmptyPlayers++;
+			} else {
+				beginReinforcing(player, true, Step.PLACE);
 			}
 		}
 	}
+	
+	private void startTurn() {
+		this.currentPlayer = this.players.get(this.turnIndex);
+		this.out.printf("%s, it is now your turn.%n", this.currentPlayer.getName());
+		this.atTurnStart = true;
+		for (final GameListener listener : this.listeners) {
+			listener.turnStarted(this, this.turnNum, this.currentPlayer);
+		}
+		this.atTurnStart = false;
+		this.numNewArmies = awardTerritoryArmies(this.currentPlayer) + awardContinentReinforcements(this.currentPlayer);
+		this.cardArmies = 0;
+		this.step = Step.TRADE;
+	}
+	
+	private void offerCardSets() {
+		if (!this.currentPlayer.hasCardSet()) {
+			this.step = Step.AWARD;
+		} else {
+			final List<Set<Card>> cardSets = this.currentPlayer.calculateCardSets();
+			this.out.println("NOTE: On a single turn, you may receive no more than 2 extra armies above and " +
+					"beyond those you receive for the matched sets of cards you trade in.");
+			final boolean mandatory = (this.currentPlayer.getNumCards() >= 5);
+			ask(Decision.Type.TRADE_CARDS, this.currentPlayer, null, cardSets, 
+					null, null, 0, 0, !mandatory, Step.TRADE_CHOSEN);
+		}
+	}
+	
+	private void tradeInCardSet(final Set<Card> cardSet) {
+		if (cardSet == null) {
+			this.step = Step.AWARD;
+		} else {
+			final TradeCardsMove tradeCardsMove = new TradeCardsMove(this.currentPlayer, cardSet);
+			applyMove(tradeCardsMove);
+			final int setArmies = tradeCardsMove.getNumArmies();
+			this.out.printf("%s received %d armies for turning in a card set.%n", this.currentPlayer.getName(), setArmies);
+			this.cardArmies += setArmies;
+			this.step = Step.TRADE;
+		}
+	}
 
-	private boolean checkForVictory() {
-		Player player = null;
-		boolean allTerritoriesOwnedBySamePlayer = true;
-		for (final Territory territory : this.gameBoard.getAllTerritories().values()) {
-			if (player == null) {
-				player = territory.getOwner();
-			} else if (!player.equals(territory.getOwner())) {
-				allTerritoriesOwnedBySamePlayer = false;
-				break;
-			}
+	private void awardReinforcements() {
+		final Player player = this.currentPlayer;
+		final int totalNewArmies;
+		if (this.cardArmies == 0) {
+			totalNewArmies = this.numNewArmies;
+		} else {
+			totalNewArmies = Math.max(this.cardArmies, Math.min(this.cardArmies + 2, this.numNewArmies));
 		}
-		if (allTerritoriesOwnedBySamePlayer) {
-			this.victor = player;
+		this.out.printf("%s received %d new armies this turn.%n", player.getName(), totalNewArmies);
+		// The card armies are already in hand
+		player.setNumArmiesInHand(player.getNumArmiesInHand() + totalNewArmies - this.cardArmies);
+		for (final GameListener listener : this.listeners) {
+			listener.reinforcementsAwarded(this, player, totalNewArmies - this.cardArmies);
 		}
-		return allTerritoriesOwnedBySamePlayer;
+		this.step = Step.REINFORCE;
 	}
 
-	private boolean doAttacks(final Territory attackingTerritory,
-			final Territory defendingTerritory) {
-		boolean capturedTerritory = false;
+	/**
+	 * Places armies from the player's hand on one of their territories, then carries on with the next step.
+	 */
+	private void beginReinforcing(final Player player, final boolean oneAtATime, final Step next) {
+		this.reinforcingPlayer = player;
+		this.oneAtATime = oneAtATime;
+		this.afterReinforcing = next;
+		this.occupiedTerritories = this.gameBoard.getOccupiedTerritories(player);
+		this.out.printf("%s, you have %d armies remaining to place on the board.%n", 
+				player.getName(), player.getNumArmiesInHand());
+		if (this.occupiedTerritories.size() > 1) {
+			ask(Decision.Type.REINFORCE_TERRITORY, player, this.occupiedTerritories, 
+					null, null, null, 0, 0, false, Step.REINFORCE_TERRITORY_CHOSEN);
+		} else {
+			final Territory territory = this.occupiedTerritories.values().iterator().next();
+			this.out.printf("%s, has reinforced %s with %d armies.%n", 
+					player.getName(), territory.getName(), player.getNumArmiesInHand());
+			chooseNumReinforcements(territory);
+		}
+	}
+	
+	private void chooseNumReinforcements(final Territory territory) {
+		final Player player = this.reinforcingPlayer;
+		this.selectedTerritory = territory;
+		if (this.oneAtATime || player.getNumArmiesInHand() == 1) {
+			reinforce(1);
+		} else if (this.occupiedTerritories.size() > 1) {
+			ask(Decision.Type.REINFORCE_COUNT, player, null, null, territory, null, 
+					1, player.getNumArmiesInHand(), false, Step.REINFORCE_COUNT_CHOSEN);
+		} else {
+			reinforce(player.getNumArmiesInHand());
+		}
+	}
+	
+	private void reinforce(final int numReinforcements) {
+		applyMove(new ReinforceMove(this.selectedTerritory, numReinforcements));
+		this.occupiedTerritories = null;
+		this.step = this.afterReinforcing;
+	}
+
+	private void beginAttack(final Territory attackingTerritory, final Territory defendingTerritory) {
 		final AttackInfo attackInfo = new AttackInfo();
 		attackInfo.setAttackingTerritory(attackingTerritory);
 		attackInfo.setDefendingTerritory(defendingTerritory);
 		attackInfo.setAttackingPlayer(attackingTerritory.getOwner());
 		attackInfo.setDefendingPlayer(defendingTerritory.getOwner());
-		printf("%s is attacking %s in %s from %s!%n", attackInfo.getAttackingPlayer().getName(), 
+		this.attackInfo = attackInfo;
+		this.out.printf("%s is attacking %s in %s from %s!%n", attackInfo.getAttackingPlayer().getName(), 
 				attackInfo.getDefendingPlayer().getName(), defendingTerritory.getName(), attackingTerritory.getName());
-		boolean attacking = true;
-		while (attacking && attackingTerritory.getArmySize() > 1) {
-			attackInfo.setNumAttackingArmies(readInteger(
-					sprintf("%s, how many armies do you wish to attack with?", attackInfo.getAttackingPlayer().getName()),
-					1, Math.min(3, attackingTerritory.getArmySize() - 1)));
-			final int numDefendingArmies;
-			if (defendingTerritory.getArmySize() > 1) {
-				numDefendingArmies = readInteger(
-						sprintf("%s, how many armies do you wish to defend with?", attackInfo.getDefendingPlayer().getName()),
-						1, Math.min(2, defendingTerritory.getArmySize()));
+		ask(Decision.Type.BLITZ, attackInfo.getAttackingPlayer(), null, null, attackingTerritory, 
+				defendingTerritory, 1, attackingTerritory.getArmySize() - 1, true, Step.BLITZ_CHOSEN);
+	}
+	
+	private void chooseNumAttackingArmies() {
+		final Territory attackingTerritory = this.attackInfo.getAttackingTerritory();
+		if (attackingTerritory.getArmySize() > 1) {
+			ask(Decision.Type.ATTACK_DICE, this.attackInfo.getAttackingPlayer(), null, null, 
+					attackingTerritory, this.attackInfo.getDefendingTerritory(), 
+					1, Math.min(3, attackingTerritory.getArmySize() - 1), false, Step.ATTACK_DICE_CHOSEN);
+		} else {
+			this.step = Step.ATTACK_DONE;
+		}
+	}
+	
+	private void chooseNumDefendingArmies(final int numAttackingArmies) {
+		final Territory defendingTerritory = this.attackInfo.getDefendingTerritory();
+		this.attackInfo.setNumAttackingArmies(numAttackingArmies);
+		if (defendingTerritory.getArmySize() > 1) {
+			ask(Decision.Type.DEFEND_DICE, this.attackInfo.getDefendingPlayer(), null, null, 
+					this.attackInfo.getAttackingTerritory(), defendingTerritory, 
+					1, Math.min(2, defendingTerritory.getArmySize()), false, Step.DEFEND_DICE_CHOSEN);
+		} else {
+			this.out.printf("%s, is defending with their sole army%n", this.attackInfo.getDefendingPlayer().getName());
+			roll(defendingTerritory.getArmySize());
+		}
+	}
+	
+	private void roll(final int numDefendingArmies) {
+		this.attackInfo.setNumDefendingArmies(numDefendingArmies);
+		this.capturedTerritory |= doAttack(this.attackInfo);
+		handleAttackAftermath();
+	}
+
+	private void handleAttackAftermath() {
+		final AttackInfo attackInfo = this.attackInfo;
+		this.step = Step.ATTACK_DONE;
+		if (attackInfo.getDefendingTerritory().getArmySize() == 0) {
+			// The armies that rolled in the last attack move in right away; the attacker may then send more
+			final int maxArmiesToMove = attackInfo.getAttackingTerritory().getArmySize() - 1;
+			final int minArmiesToMove = Math.min(maxArmiesToMove, attackInfo.getNumAttackingArmies());
+			applyMove(new CaptureMove(attackInfo.getAttackingTerritory(), 
+					attackInfo.getDefendingTerritory(), minArmiesToMove));
+			this.out.printf("%s has captured %s from %s!%n", attackInfo.getAttackingPlayer().getName(), 
+					attackInfo.getDefendingTerritory().getName(), attackInfo.getDefendingPlayer().getName());
+			if (attackInfo.getDefendingPlayer().isEliminated()) {
+				this.eliminationRounds.add(this.roundNum);
+				this.out.printf("%s no longer controls any territories and has been eliminated!%n", 
+						attackInfo.getDefendingPlayer().getName());
+			}
+			if (!attackInfo.getDefendingPlayer().isEliminated() || !checkForVictory()) {
+				if (minArmiesToMove == maxArmiesToMove) {
+					this.out.printf("%s is forced to move %d armies from %s to %s.%n", attackInfo.getAttackingPlayer().getName(), 
+							minArmiesToMove, attackInfo.getAttackingTerritory().getName(), attackInfo.getDefendingTerritory().getName());
+				} else {
+					this.minArmiesToMove = minArmiesToMove;
+					ask(Decision.Type.MOVE_IN, attackInfo.getAttackingPlayer(), null, null, 
+							attackInfo.getAttackingTerritory(), attackInfo.getDefendingTerritory(), 
+							minArmiesToMove, maxArmiesToMove, false, Step.MOVE_IN_CHOSEN);
+				}
+			}
+		} else if (attackInfo.getAttackingTerritory().getArmySize() == 1) {
+			this.out.printf("%s's attack on %s has halted due to insufficient armies in %s.%n", 
+					attackInfo.getAttackingPlayer().getName(), attackInfo.getDefendingTerritory().getName(), 
+					attackInfo.getAttackingTerritory().getName());
+		} else if (attackInfo.isBlitz()) {
+			this.out.printf("%s's attack on %s has halted with %d armies remaining in %s.%n", 
+					attackInfo.getAttackingPlayer().getName(), attackInfo.getDefendingTerritory().getName(), 
+					attackInfo.getAttackingTerritory().getArmySize(), attackInfo.getAttackingTerritory().getName());
+		} else {
+			ask(Decision.Type.CONTINUE_ATTACK, attackInfo.getAttackingPlayer(), null, null, 
+					attackInfo.getAttackingTerritory(), attackInfo.getDefendingTerritory(), 0, 0, false, 
+					Step.CONTINUE_CHOSEN);
+		}
+	}
+	
+	private void moveIn(final int numArmiesToMove) {
+		if (numArmiesToMove > this.minArmiesToMove) {
+			applyMove(new FortifyMove(this.attackInfo.getAttackingTerritory(), 
+					this.attackInfo.getDefendingTerritory(), numArmiesToMove - this.minArmiesToMove));
+		}
+		this.step = Step.ATTACK_DONE;
+	}
+	
+	private void drawCard() {
+		if (this.capturedTerritory) {
+			final Player player = this.currentPlayer;
+			final Card drawnCard = this.gameBoard.drawCard();
+			if (drawnCard == null) {
+				this.out.printf("Sorry, %s, there are no more Risk(y) cards available...%n", player.getName());
 			} else {
-				printf("%s, is defending with their sole army%n", attackInfo.getDefendingPlayer().getName());
-				numDefendingArmies = defendingTerritory.getArmySize();
+				player.addCard(drawnCard);
+				for (final GameListener listener : this.listeners) {
+					listener.cardDrawn(this, player, drawnCard);
+				}
+				this.out.printf("%s captured at least one territory and drew a '%s' card.%n", player.getName(), drawnCard);
+			}
+		}
+	}
+	
+	private void findRegions() {
+		if (this.regions == null) {
+			this.regions = new ConnectedRegions(this.gameBoard.getCore());
+		} else {
+			this.regions.rebuild();
+		}
+	}
+	
+	/**
+	 * @return the usable territories with another territory of the player's connected to them
+	 */
+	private Map<String,Territory> getConnectedSources() {
+		final Map<String,Territory> sources = new TreeMap<String,Territory>();
+		final BoardCore core = this.gameBoard.getCore();
+		final int owner = this.currentPlayer.getPlayerID();
+		for (int t = core.nextUsable(owner, 0); t >= 0; t = core.nextUsable(owner, t + 1)) {
+			if (this.regions.getRegionSize(t) > 1) {
+				final Territory territory = this.gameBoard.getTerritory(t);
+				sources.put(territory.getName(), territory);
 			}
-			attackInfo.setNumDefendingArmies(numDefendingArmies);
-			capturedTerritory |= doAttack(attackInfo);
-			attacking = handleAttackAftermath(attackInfo);
 		}
-		return capturedTerritory;
+		return sources;
+	}
+	
+	/**
+	 * @return every other territory in the source's region
+	 */
+	private Map<String,Territory> getConnectedTargets(final Territory source) {
+		final Map<String,Territory> targets = new TreeMap<String,Territory>();
+		final int start = source.getTerritoryID();
+		for (int t = this.regions.nextInRegion(start); t != start; t = this.regions.nextInRegion(t)) {
+			final Territory territory = this.gameBoard.getTerritory(t);
+			targets.put(territory.getName(), territory);
+		}
+		return targets;
+	}
+	
+	private void chooseNumArmiesToFortify(final Territory targetTerritory) {
+		this.targetTerritory = targetTerritory;
+		if (this.selectedTerritory.getArmySize() == 2) {
+			fortify(1);
+		} else {
+			ask(Decision.Type.FORTIFY_COUNT, this.currentPlayer, null, null, this.selectedTerritory, 
+					targetTerritory, 1, this.selectedTerritory.getArmySize() - 1, false, Step.FORTIFY_COUNT_CHOSEN);
+		}
+	}
+	
+	private void fortify(final int numArmies) {
+		applyMove(new FortifyMove(this.selectedTerritory, this.targetTerritory, numArmies));
+		this.out.printf("%s fortified %s with %d armies from %s.%n", this.currentPlayer.getName(), 
+				this.targetTerritory.getName(), numArmies, this.selectedTerritory.getName());
+		this.step = Step.TURN_END;
+	}
+
+	private boolean checkForVictory() {
+		final int soleOwner = this.gameBoard.getCore().getSoleOwner();
+		final boolean allTerritoriesOwnedBySamePlayer = (soleOwner != BoardCore.NO_OWNER);
+		if (allTerritoriesOwnedBySamePlayer) {
+			this.victor = this.gameBoard.getPlayer(soleOwner);
+		}
+		return allTerritoriesOwnedBySamePlayer;
 	}
 
-	private static boolean doAttack(final AttackInfo attackInfo) {
+	private boolean doBlitz(final AttackInfo attackInfo, final int minArmiesToKeep) {
+		final Territory attackingTerritory = attackInfo.getAttackingTerritory();
+		final Territory defendingTerritory = attackInfo.getDefendingTerritory();
+		final int attackers = attackingTerritory.getArmySize() - 1;
+		final int defenders = defendingTerritory.getArmySize();
+		final BattleOutcome outcome = BattleOdds.getOutcome(attackers, defenders, minArmiesToKeep - 1);
+		final int endState = outcome.sample(this.random);
+		final int attackersLeft = outcome.getEndStateAttackers(endState);
+		final int defendersLeft = outcome.getEndStateDefenders(endState);
+		applyMove(new AttackResultMove(attackingTerritory, defendingTerritory, 
+				attackers - attackersLeft, defenders - defendersLeft));
+		attackInfo.setNumAttackingArmies(Math.min(3, attackersLeft));
+		attackInfo.setBlitz(true);
+		if (this.out.isEnabled()) {
+			this.out.printf("%s lost %d armies and %s lost %d armies in the attack! (%d armies remain in %s and %d in %s)%n", 
+					attackInfo.getAttackingPlayer().getName(), attackers - attackersLeft, 
+					attackInfo.getDefendingPlayer().getName(), defenders - defendersLeft, 
+					attackingTerritory.getArmySize(), attackingTerritory.getName(), 
+					defendingTerritory.getArmySize(), defendingTerritory.getName());
+		}
+		return (defendersLeft == 0);
+	}
+
+	private boolean doAttack(final AttackInfo attackInfo) {
 		final int attackResult = rollDiceForAttack(attackInfo.getAttackingPlayer(), 
 				attackInfo.getNumAttackingArmies(), attackInfo.getDefendingPlayer(), attackInfo.getNumDefendingArmies());
+		final int numCompared = Math.min(attackInfo.getNumAttackingArmies(), attackInfo.getNumDefendingArmies());
+		applyMove(new AttackResultMove(attackInfo.getAttackingTerritory(), attackInfo.getDefendingTerritory(), 
+				(numCompared - attackResult) / 2, (numCompared + attackResult) / 2));
+		if (this.out.isEnabled()) {
+			printAttackResult(attackInfo, attackResult);
+		}
+		return (attackInfo.getDefendingTerritory().getArmySize() == 0);
+	}
+
+	private void printAttackResult(final AttackInfo attackInfo, final int attackResult) {
 		switch (attackResult) {
 		case -2: // Attacker lost 2 armies
-			attackInfo.getAttackingTerritory().setArmySize(attackInfo.getAttackingTerritory().getArmySize() - 2);
-			printf("%s, lost 2 armies in the attack! (%d armies remain in %s)%n", 
+			this.out.printf("%s, lost 2 armies in the attack! (%d armies remain in %s)%n", 
 					attackInfo.getAttackingPlayer().getName(), attackInfo.getAttackingTerritory().getArmySize(), 
 					attackInfo.getAttackingTerritory().getName());
 			break;
 		case -1: // Attacker lost 1 army
-			attackInfo.getAttackingTerritory().setArmySize(attackInfo.getAttackingTerritory().getArmySize() - 1);
-			printf("%s, lost an army in the attack! (%d armies remain in %s)%n", 
+			this.out.printf("%s, lost an army in the attack! (%d armies remain in %s)%n", 
 					attackInfo.getAttackingPlayer().getName(), attackInfo.getAttackingTerritory().getArmySize(), 
 					attackInfo.getAttackingTerritory().getName());
 			break;
 		case 0: // Both players lost an army
-			attackInfo.getAttackingTerritory().setArmySize(attackInfo.getAttackingTerritory().getArmySize() - 1);
-			attackInfo.getDefendingTerritory().setArmySize(attackInfo.getDefendingTerritory().getArmySize() - 1);
-			printf("Both %s and %s lost an army in the attack! (%d armies remain in %s and %d in %s)%n", 
+			this.out.printf("Both %s and %s lost an army in the attack! (%d armies remain in %s and %d in %s)%n", 
 					attackInfo.getAttackingPlayer().getName(), attackInfo.getDefendingPlayer().getName(), 
 					attackInfo.getAttackingTerritory().getArmySize(), attackInfo.getAttackingTerritory().getName(), 
 					attackInfo.getDefendingTerritory().getArmySize(), attackInfo.getDefendingTerritory().getName());
 			break;
 		case 1: // Defender lost 1 army
-			attackInfo.getDefendingTerritory().setArmySize(attackInfo.getDefendingTerritory().getArmySize() - 1);
-			printf("%s, lost an army while defending the attack! (%d armies remain in %s)%n", 
+			this.out.printf("%s, lost an army while defending the attack! (%d armies remain in %s)%n", 
 					attackInfo.getDefendingPlayer().getName(), attackInfo.getDefendingTerritory().getArmySize(), 
 					attackInfo.getDefendingTerritory().getName());
 			break;
 		case 2: // Defender lost 2 armies
-			attackInfo.getDefendingTerritory().setArmySize(attackInfo.getDefendingTerritory().getArmySize() - 2);
-			printf("%s, lost 2 armies while defending the attack! (%d armies remain in %s)%n", 
+			this.out.printf("%s, lost 2 armies while defending the attack! (%d armies remain in %s)%n", 
 					attackInfo.getDefendingPlayer().getName(), attackInfo.getDefendingTerritory().getArmySize(), 
 					attackInfo.getDefendingTerritory().getName());
 			break;
+		default:
+			throw new IllegalStateException("Unknown attack result: " + attackResult);
 		}
-		return (attackInfo.getDefendingTerritory().getArmySize() == 0);
 	}
 
-	private static int rollDiceForAttack(final Player attackingPlayer, 
+	private int rollDiceForAttack(final Player attackingPlayer, 
 			final int numAttackingArmies, final Player defendingPlayer, 
 			final int numDefendingArmies) {
-		final List<Integer> attackerRolls = rollDice(numAttackingArmies);
-		printf("%s rolled %s...%n", attackingPlayer.getName(), attackerRolls);
-		final List<Integer> defenderRolls = rollDice(numDefendingArmies);
-		printf("%s rolled %s...%n", defendingPlayer.getName(), defenderRolls);
-		int attackResult = 0;
-		while (!attackerRolls.isEmpty() && !defenderRolls.isEmpty()) {
-			 final int compareResult = attackerRolls.remove(0).compareTo(defenderRolls.remove(0));
-			 if (compareResult > 0) {
-				 attackResult++;
-			 } else {
-				 attackResult--;
-			 }
+		rollDice(this.random, this.attackerRolls, numAttackingArmies);
+		rollDice(this.random, this.defenderRolls, numDefendingArmies);
+		for (final GameListener listener : this.listeners) {
+			listener.diceRolled(this, this.attackerRolls, numAttackingArmies, this.defenderRolls, numDefendingArmies);
 		}
-		return attackResult;
-	}
-
-	private boolean handleAttackAftermath(final AttackInfo attackInfo) {
-		final boolean attacking;
-		if (attackInfo.getDefendingTerritory().getArmySize() == 0) {
-			attackInfo.getDefendingTerritory().setOwner(attackInfo.getAttackingPlayer());
-			printf("%s has captured %s from %s!%n", attackInfo.getAttackingPlayer().getName(), 
-					attackInfo.getDefendingTerritory().getName(), attackInfo.getDefendingPlayer().getName());
-			if (this.gameBoard.getOccupiedTerritories(attackInfo.getDefendingPlayer()).isEmpty()) {
-				attackInfo.getDefendingPlayer().setEliminated(true);
-				printf("%s no longer controls any territories and has been eliminated!%n", 
-						attackInfo.getDefendingPlayer().getName());
-			}
-			if (!attackInfo.getDefendingPlayer().isEliminated() || !checkForVictory()) {
-				final int maxArmiesToMove = attackInfo.getAttackingTerritory().getArmySize() - 1;
-				final int minArmiesToMove = Math.min(maxArmiesToMove, attackInfo.getNumAttackingArmies());
-				final int numArmiesToMove;
-				if (minArmiesToMove == maxArmiesToMove) {
-					numArmiesToMove = minArmiesToMove;
-					printf("%s is forced to move %d armies from %s to %s.%n", attackInfo.getAttackingPlayer().getName(), 
-							minArmiesToMove, attackInfo.getAttackingTerritory().getName(), attackInfo.getDefendingTerritory().getName());
-				} else {
-					numArmiesToMove = readInteger(
-							sprintf("%s, select the number of armies to move from %s to %s", 
-									attackInfo.getAttackingPlayer().getName(), attackInfo.getAttackingTerritory().getName(), 
-									attackInfo.getDefendingTerritory().getName()), 
-							minArmiesToMove, maxArmiesToMove);
-				}
-				attackInfo.getAttackingTerritory().setArmySize(attackInfo.getAttackingTerritory().getArmySize() - numArmiesToMove);
-				attackInfo.getDefendingTerritory().setArmySize(numArmiesToMove);
-			}
-			attacking = false;
-		} else if (attackInfo.getAttackingTerritory().getArmySize() == 1) {
-			printf("%s's attack on %s has halted due to insufficient armies in %s.%n", 
-					attackInfo.getAttackingPlayer().getName(), attackInfo.getDefendingTerritory().getName(), 
-					attackInfo.getAttackingTerritory().getName());
-			attacking = false;
-		} else {
-			attacking = readYesNo(sprintf("%s, do you with to continue the attack?", 
-					attackInfo.getAttackingPlayer().getName()));
-		}
-		return attacking;
-	}
-
-	private void fortify(final Player player) {
-		boolean fortifying = true;
-		while (fortifying) {
-			final Map<String, Territory> usableTerritories = 
-					this.gameBoard.getUsableTerritories(player);
-			final Territory sourceTerritory = readOption(
-					player.getName() + ", select a territory from which to fortify (type 'done' to skip fortification):", 
-					"Please select a territory or type 'done'...", 
-					usableTerritories, true);
-			if (sourceTerritory == null) {
-				fortifying = false;
+		if (this.out.isEnabled()) {
+			this.out.printf("%s rolled %s...%n", attackingPlayer.getName(), Dice.toString(this.attackerRolls, numAttackingArmies));
+			this.out.printf("%s rolled %s...%n", defendingPlayer.getName(), Dice.toString(this.defenderRolls, numDefendingArmies));
+		}
+		int attackResult = 0;
+		final int numCompared = Math.min(numAttackingArmies, numDefendingArmies);
+		for (int i = 0; i < numCompared; i++) {
+			if (this.attackerRolls[i] > this.defenderRolls[i]) {
+				attackResult++;
 			} else {
-				final Map<String, Territory> fortifiableTerritories = 
-						sourceTerritory.getFortifiableTerritories();
-				final Territory targetTerritory = readOption(
-						player.getName() + ", select a territory to fortify (type 'done' to cancel this fortification action):", 
-						"Please select a territory or type 'done'...", 
-						fortifiableTerritories, true);
-				if (targetTerritory != null) {
-					final int numArmies;
-					if (sourceTerritory.getArmySize() == 2) {
-						numArmies = 1;
-					} else {
-						numArmies = readInteger(sprintf(
-								"%s, how many armies do you wish to move?", player.getName()), 
-								1, sourceTerritory.getArmySize() - 1);
-					}
-					sourceTerritory.setArmySize(sourceTerritory.getArmySize() - numArmies);
-					targetTerritory.setArmySize(targetTerritory.getArmySize() + numArmies);
-					printf("%s fortified %s with %d armies from %s.%n", player.getName(), 
-							targetTerritory.getName(), numArmies, sourceTerritory.getName());
-					fortifying = false;
-				} // Else, cancel this fortification action and continue the loop
+				attackResult--;
 			}
 		}
+		return attackResult;
 	}
 
-	private void awardReinforcements(final Player player) {
-		final int numTerritoryArmies = awardTerritoryArmies(player);
-		final int numContinentArmies = awardContinentReinforcements(player);
-		final int cardArmies = awardCardSetReinforcements(player);
-		final int totalNewArmies;
-		if (cardArmies == 0) {
-			totalNewArmies = numTerritoryArmies + numContinentArmies;
-		} else {
-			totalNewArmies = Math.max(cardArmies, Math.min(cardArmies + 2, numTerritoryArmies + numContinentArmies));
-		}
-		printf("%s received %d new armies this turn.%n", player.getName(), totalNewArmies);
-		player.setNumArmiesInHand(player.getNumArmiesInHand() + totalNewArmies);
-	}
-	
 	private int awardTerritoryArmies(final Player player) {
-		final Map<String, Territory> occupiedTeritories = 
-				this.gameBoard.getOccupiedTerritories(player);
-		final int numTerritoryArmies = Math.max(3, occupiedTeritories.size() / 3);
-		printf("%s controls %d territories (%d armies awarded)%n", player.getName(), 
-				occupiedTeritories.size(), numTerritoryArmies);
+		final int numOccupiedTerritories = this.gameBoard.getCore().getNumOwned(player.getPlayerID());
+		final int numTerritoryArmies = Math.max(3, numOccupiedTerritories / 3);
+		this.out.printf("%s controls %d territories (%d armies awarded)%n", player.getName(), 
+				numOccupiedTerritories, numTerritoryArmies);
 		return numTerritoryArmies;
 	}
 
 	private int awardContinentReinforcements(final Player player) {
-		int numContinentArmies = 0;
-		final Map<String, Continent> occupiedContients = 
-				this.gameBoard.getOccupiedContinents(player);
-		for (final Continent occupiedContient : occupiedContients.values()) {
-			numContinentArmies += occupiedContient.getBonusArmies();
-			printf("%s controls %s (%d armies awarded)%n", player.getName(), occupiedContient.getName(), 
-					occupiedContient.getBonusArmies());
+		final int numContinentArmies = this.gameBoard.getCore().getContinentBonus(player.getPlayerID());
+		if (numContinentArmies > 0 && this.out.isEnabled()) {
+			final Map<String, Continent> occupiedContients = 
+					this.gameBoard.getOccupiedContinents(player);
+			for (final Continent occupiedContient : occupiedContients.values()) {
+				this.out.printf("%s controls %s (%d armies awarded)%n", player.getName(), occupiedContient.getName(), 
+						occupiedContient.getBonusArmies());
+			}
 		}
 		return numContinentArmies;
 	}
 
-	private int awardCardSetReinforcements(final Player player) {
-		int cardArmies = 0;
-		boolean doneWithCards = false;
-		while (!doneWithCards) {
-			final List<Set<Card>> cardSets = player.calculateCardSets();
-			if (cardSets.isEmpty()) {
-				doneWithCards = true;
-			} else {
-				println("NOTE: On a single turn, you may receive no more than 2 extra armies above and " +
-						"beyond those you receive for the matched sets of cards you trade in.");
-				final Map<String, Set<Card>> cardMap = new LinkedHashMap<String, Set<Card>>();
-				for (int i = 0; i < cardSets.size(); i++) {
-					cardMap.put(cardSets.get(i).toString(), cardSets.get(i));
-				}
-				final boolean allowDone = (player.getNumCards() < 5);
-				final Set<Card> cardSet = readOption(player.getName() + ", select a set to turn in:", 
-						"Please select a set number...", cardMap, allowDone);
-				if (cardSet == null) {
-					doneWithCards = true;
-				} else {
-					player.removeCardSet(cardSet);
-					final int setArmies = this.gameBoard.tradeInCardSet(cardSet);
-					printf("%s received %d armies for turning in a card set.%n", player.getName(), setArmies);
-					cardArmies += setArmies;
-				}
-			}
+	private void applyMove(final Move move) {
+		this.gameBoard.applyMove(move);
+		for (final GameListener listener : this.listeners) {
+			listener.moveApplied(this, move);
 		}
-		return cardArmies;
 	}
 
 	private void randomizePlayers() {
-		println("Randomizing player order...");
-		Collections.shuffle(this.players);
-	}
-
-	private void occupyTerritories() {
-		final Map<String,Territory> freeTeritories = 
-				new TreeMap<String,Territory>(this.gameBoard.getAllTerritories());
-		while (!freeTeritories.isEmpty()) {
-			for (final Player player : this.players) {
-				final Territory territory = readOption(
-						player.getName() + ", choose a territory to occupy:", 
-						"Please select a free territory...", freeTeritories, false);
-				freeTeritories.remove(territory.getName());
-				territory.setArmySize(1);
-				territory.setOwner(player);
-				player.setNumArmiesInHand(player.getNumArmiesInHand() - 1);
-				if (freeTeritories.isEmpty()) {
-					break;
-				}
-			}
-		}
-	}
-
-	private void sendReinforcements() {
-		println("All territories occupied... send in the reinforcements!");
-		int emptyPlayers = 0;
-		while (emptyPlayers < this.players.size()) {
-			emptyPlayers = 0;
-			for (final Player player : this.players) {
-				if (player.getNumArmiesInHand() == 0) {
-					emptyPlayers++;
-				} else {
-					sendReinforcements(player, true);
-				}
-			}
-		}
-	}
-
-	private void sendReinforcements(final Player player, final boolean oneAtATime) {
-		final Map<String, Territory> occupiedTeritories = this.gameBoard.getOccupiedTerritories(player);
-		printf("%s, you have %d armies remaining to place on the board.%n", 
-				player.getName(), player.getNumArmiesInHand());
-		final Territory territory;
-		if (occupiedTeritories.size() > 1) {
-			territory = readOption(
-					player.getName() + ", choose an occupied territory to reinforce:", 
-					"Please select an occupied territory...", occupiedTeritories, false);
-		} else {
-			territory = occupiedTeritories.values().iterator().next();
-			printf("%s, has reinforced %s with %d armies.%n", 
-					player.getName(), territory.getName(), player.getNumArmiesInHand());
-		}
-		final int numReinforcements;
-		if (oneAtATime || player.getNumArmiesInHand() == 1) {
-			numReinforcements = 1;
-		} else if (occupiedTeritories.size() > 1) {
-			numReinforcements = readInteger("Select number of armies to reinforce with", 
-				1, player.getNumArmiesInHand());
-		} else {
-			numReinforcements = player.getNumArmiesInHand();
-		}
-		territory.setArmySize(territory.getArmySize() + numReinforcements);
-		player.setNumArmiesInHand(player.getNumArmiesInHand() - numReinforcements);
+		this.out.println("Randomizing player order...");
+		Collections.shuffle(this.players, this.random);
 	}
 
 	private static List<Player> readPlayers() {
-		final int numPlayers = readInteger("Enter number of players", 3, 6);
+		final int numPlayers = readInteger("Enter number of players", MIN_PLAYERS, MAX_PLAYERS);
 		final List<Player> players = new ArrayList<Player>(numPlayers);
 		for (int i = 0; i < numPlayers; i++) {
 			final String playerName = readLine("Player %d's name: ", i + 1);
-			final Player player = new Player(playerName);
-			player.setNumArmiesInHand(50 - (5 * numPlayers));
-			players.add(player);
+			if (readYesNo(sprintf("Is %s a computer player?", playerName))) {
+				players.add(new Player(i + 1, playerName, new MctsDecisionProvider(new Random(), 
+						COMPUTER_BUDGET_MILLIS, Runtime.getRuntime().availableProcessors(), 
+						new TranspositionTable(COMPUTER_TABLE_BYTES))));
+			} else {
+				players.add(new Player(i + 1, playerName));
+			}
 		}
 		final StringBuilder buf = new StringBuilder(128);
 		buf.append("Welcome ");
@@ -428,7 +1022,7 @@ public class GameSession {
 			prefix = (i == (numPlayers - 2)) ? " and " : ", ";
 		}
 		buf.append("!");
-		println(buf.toString());
+		ConsoleOutputSink.INSTANCE.println(buf.toString());
 		return players;
 	}
 	
@@ -440,6 +1034,7 @@ public class GameSession {
 		private Player defendingPlayer;
 		private int numAttackingArmies;
 		private int numDefendingArmies;
+		private boolean blitz;
 		
 		public Territory getAttackingTerritory() {
 			return this.attackingTerritory;
@@ -488,5 +1083,13 @@ public class GameSession {
 		public void setNumDefendingArmies(final int numDefendingArmies) {
 			this.numDefendingArmies = numDefendingArmies;
 		}
+		
+		public boolean isBlitz() {
+			return this.blitz;
+		}
+		
+		public void setBlitz(final boolean blitz) {
+			this.blitz = blitz;
+		}
 	}
 }
@@ -0,0 +1,175 @@
+package net.greghaines.risky.model;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Reads and writes maps in a compact text format, one statement per line:
+ * <pre>
+ * # A comment
+ * map Classic
+ * continent North America 5: Alaska, Alberta, ...
+ * borders Alaska: Alberta, Kamchatka, ...
+ * </pre>
+ * Continents list their territories and the bonus for holding them all, and each
+ * <code>borders</code> line connects a territory to the others, both ways. Names may contain
+ * spaces but not commas or colons.
+ * @author Greg Haines
+ */
+public final class MapFile {
+
+	/** The classpath resource holding the classic map. */
+	public static final String CLASSIC_RESOURCE = "/net/greghaines/risky/model/classic.map";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String MAP = "map";
+	private static final String CONTINENT = "continent";
+	private static final String BORDERS = "borders";
+
+	/**
+	 * Reads and compiles a map.
+	 * @param reader the map's text
+	 * @return the map's topology
+	 * @throws IOException if the text can't be read
+	 * @throws IllegalArgumentException if the text isn't a valid map, giving the line at fault
+	 */
+	public static MapTopology read(final Reader reader) throws IOException {
+		final BufferedReader in = (reader instanceof BufferedReader)
+				? (BufferedReader) reader : new BufferedReader(reader);
+		MapTopology.Builder builder = null;
+		int lineNum = 0;
+		String line;
+		while ((line = in.readLine()) != null) {
+			lineNum++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			try {
+				final int space = line.indexOf(' ');
+				final String keyword = (space < 0) ? line : line.substring(0, space);
+				final String rest = (space < 0) ? "" : line.substring(space + 1).trim();
+				if (MAP.equals(keyword)) {
+					if (builder != null) {
+						throw new IllegalArgumentException("The map has already been named");
+					}
+					builder = new MapTopology.Builder(rest);
+				} else if (builder == null) {
+					throw new IllegalArgumentException("Expected '" + MAP + " <name>' first");
+				} else if (CONTINENT.equals(keyword)) {
+					final int colon = colon(rest);
+					final String nameAndBonus = rest.substring(0, colon).trim();
+					final int bonusStart = nameAndBonus.lastIndexOf(' ');
+					if (bonusStart < 0) {
+						throw new IllegalArgumentException("Expected '" + CONTINENT + " <name> <bonus>: <territories>'");
+					}
+					final int bonus = Integer.parseInt(nameAndBonus.substring(bonusStart + 1));
+					builder.addContinent(nameAndBonus.substring(0, bonusStart).trim(), bonus,
+							names(rest.substring(colon + 1)));
+				} else if (BORDERS.equals(keyword)) {
+					final int colon = colon(rest);
+					final String territoryName = rest.substring(0, colon).trim();
+					for (final String neighborName : names(rest.substring(colon + 1))) {
+						builder.connect(territoryName, neighborName);
+					}
+				} else {
+					throw new IllegalArgumentException("Unknown statement: " + keyword);
+				}
+			} catch (RuntimeException re) { // Including NumberFormatException for a bad bonus
+				throw new IllegalArgumentException("Line " + lineNum + ": " + re.getMessage(), re);
+			}
+		}
+		if (builder == null) {
+			throw new IllegalArgumentException("The map is empty");
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Reads and compiles a map from a UTF-8 file.
+	 * @see #read(Reader)
+	 */
+	public static MapTopology load(final File file) throws IOException {
+		try (final InputStream in = new FileInputStream(file)) {
+			return read(new InputStreamReader(in, UTF_8));
+		}
+	}
+
+	/**
+	 * Reads and compiles a map from a UTF-8 classpath resource.
+	 * @param resource the resource's absolute path, e.g. {@link #CLASSIC_RESOURCE}
+	 * @see #read(Reader)
+	 */
+	public static MapTopology loadResource(final String resource) throws IOException {
+		final InputStream stream = MapFile.class.getResourceAsStream(resource);
+		if (stream == null) {
+			throw new IOException("No such map: " + resource);
+		}
+		try (final InputStream in = stream) {
+			return read(new InputStreamReader(in, UTF_8));
+		}
+	}
+
+	/**
+	 * Writes a map so that {@link #read(Reader)} gives back the same topology.
+	 * @param topology the map
+	 * @param writer where to write it; not closed
+	 * @throws IOException if the map can't be written
+	 */
+	public static void write(final MapTopology topology, final Writer writer) throws IOException {
+		final StringBuilder line = new StringBuilder(256);
+		writer.write(MAP + " " + topology.getName() + "\n");
+		for (int c = 0; c < topology.getNumContinents(); c++) {
+			line.setLength(0);
+			line.append(CONTINENT).append(' ').append(topology.getContinentName(c)).append(' ')
+				.append(topology.getContinentBonus(c)).append(':');
+			for (int i = 0; i < topology.getContinentSize(c); i++) {
+				line.append((i == 0) ? " " : ", ").append(topology.getTerritoryName(topology.getContinentTerritory(c, i)));
+			}
+			writer.write(line.append('\n').toString());
+		}
+		for (int t = 0; t < topology.getNumTerritories(); t++) {
+			line.setLength(0);
+			for (int n = 0; n < topology.getNumNeighbors(t); n++) {
+				final int neighbor = topology.getNeighbor(t, n);
+				if (neighbor > t) { // Each border once
+					line.append((line.length() == 0) ? " " : ", ").append(topology.getTerritoryName(neighbor));
+				}
+			}
+			if (line.length() > 0) {
+				writer.write(BORDERS + " " + topology.getTerritoryName(t) + ":" + line + "\n");
+			}
+		}
+		writer.flush();
+	}
+
+	private static int colon(final String text) {
+		final int colon = text.indexOf(':');
+		if (colon < 0) {
+			throw new IllegalArgumentException("Expected a ':' after the name");
+		}
+		return colon;
+	}
+
+	private static String[] names(final String list) {
+		final String[] names = list.split(",");
+		for (int i = 0; i < names.length; i++) {
+			names[i] = names[i].trim();
+			if (names[i].isEmpty()) {
+				throw new IllegalArgumentException("Empty name in list: " + list.trim());
+			}
+		}
+		return names;
+	}
+
+	private MapFile() {
+		// Utility class
+	}
+}
@@ -0,0 +1,205 @@
+package net.greghaines.risky.model;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates maps of any size from a seed, e.g. to see how the game copes with thousands of
+ * territories. Territories sit on a grid, each bordering some of its eight neighbours
+ * without any borders crossing, so the map is planar like a real one and always connected.
+ * Continents are grown outwards from random capitals, and each is worth more the bigger it is
+ * and the more borders it has to hold, roughly as on the classic map.
+ * The map is built through {@link MapTopology.Builder}, the same as a map file.
+ * @author Greg Haines
+ */
+public final class MapGenerator {
+
+	/** The chance of keeping a border that isn't needed to keep the map connected. */
+	private static final double EXTRA_BORDER_CHANCE = 0.5;
+
+	/**
+	 * @param numTerritories how many territories, at least 2
+	 * @param numContinents how many continents, from 1 to numTerritories
+	 * @param seed the same seed always gives the same map
+	 * @return the map, named after its size and seed
+	 */
+	public static MapTopology generate(final int numTerritories, final int numContinents, final long seed) {
+		if (numTerritories < 2) {
+			throw new IllegalArgumentException("A map needs at least 2 territories: " + numTerritories);
+		}
+		if (numContinents < 1 || numContinents > numTerritories) {
+			throw new IllegalArgumentException("numContinents must be 1-" + numTerritories +
+					" (numContinents=" + numContinents + ")");
+		}
+		final Random random = new Random(seed);
+		final int[][] neighbors = createBorders(numTerritories, random);
+		final int[] continents = createContinents(neighbors, numContinents, random);
+		final String[] territoryNames = names("T", numTerritories);
+		final String[] continentNames = names("C", numContinents);
+		final List<List<String>> members = new ArrayList<List<String>>(numContinents);
+		final int[] numBorders = new int[numContinents];
+		for (int c = 0; c < numContinents; c++) {
+			members.add(new ArrayList<String>());
+		}
+		for (int t = 0; t < numTerritories; t++) {
+			members.get(continents[t]).add(territoryNames[t]);
+			for (final int neighbor : neighbors[t]) {
+				if (continents[neighbor] != continents[t]) {
+					numBorders[continents[t]]++;
+					break;
+				}
+			}
+		}
+		final MapTopology.Builder builder = new MapTopology.Builder(
+				String.format("Generated %d/%d #%d", numTerritories, numContinents, seed));
+		for (int c = 0; c < numContinents; c++) {
+			final int bonus = Math.max(1, Math.round((members.get(c).size() + numBorders[c]) / 2.5f));
+			builder.addContinent(continentNames[c], bonus,
+					members.get(c).toArray(new String[members.get(c).size()]));
+		}
+		for (int t = 0; t < numTerritories; t++) {
+			for (final int neighbor : neighbors[t]) {
+				if (neighbor > t) {
+					builder.connect(territoryNames[t], territoryNames[neighbor]);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Lays the territories out row by row on a square grid and picks their borders from the
+	 * grid's edges and one diagonal per square: a random spanning tree, plus a share of the rest.
+	 * @return each territory's neighbours
+	 */
+	private static int[][] createBorders(final int numTerritories, final Random random) {
+		final int width = (int) Math.ceil(Math.sqrt(numTerritories));
+		final List<long[]> candidates = new ArrayList<long[]>(numTerritories * 3);
+		for (int t = 0; t < numTerritories; t++) {
+			final int col = t % width;
+			final boolean hasRight = (col + 1 < width && t + 1 < numTerritories);
+			final boolean hasBelow = (t + width < numTerritories);
+			if (hasRight) {
+				candidates.add(new long[] { t, t + 1 });
+			}
+			if (hasBelow) {
+				candidates.add(new long[] { t, t + width });
+			}
+			if (hasRight && t + width + 1 < numTerritories) {
+				candidates.add(random.nextBoolean()
+						? new long[] { t, t + width + 1 } : new long[] { t + 1, t + width });
+			}
+		}
+		Collections.shuffle(candidates, random);
+		final int[] components = new int[numTerritories];
+		for (int t = 0; t < numTerritories; t++) {
+			components[t] = t;
+		}
+		final int[] degrees = new int[numTerritories];
+		final List<long[]> borders = new ArrayList<long[]>(candidates.size());
+		for (final long[] candidate : candidates) {
+			final int a = find(components, (int) candidate[0]);
+			final int b = find(components, (int) candidate[1]);
+			if (a != b || random.nextDouble() < EXTRA_BORDER_CHANCE) {
+				components[a] = b;
+				borders.add(candidate);
+				degrees[(int) candidate[0]]++;
+				degrees[(int) candidate[1]]++;
+			}
+		}
+		final int[][] neighbors = new int[numTerritories][];
+		for (int t = 0; t < numTerritories; t++) {
+			neighbors[t] = new int[degrees[t]];
+			degrees[t] = 0;
+		}
+		for (final long[] border : borders) {
+			final int a = (int) border[0];
+			final int b = (int) border[1];
+			neighbors[a][degrees[a]++] = b;
+			neighbors[b][degrees[b]++] = a;
+		}
+		return neighbors;
+	}
+
+	private static int find(final int[] components, final int territory) {
+		int root = territory;
+		while (components[root] != root) {
+			components[root] = components[components[root]]; // Halve the path as we go
+			root = components[root];
+		}
+		return root;
+	}
+
+	/**
+	 * Grows every continent a territory at a time from its capital, taking turns in random order.
+	 * @return each territory's continent
+	 */
+	private static int[] createContinents(final int[][] neighbors, final int numContinents, final Random random) {
+		final int numTerritories = neighbors.length;
+		final int[] continents = new int[numTerritories];
+		Arrays.fill(continents, -1);
+		final int[] queue = new int[numTerritories];
+		int head = 0;
+		int tail = 0;
+		final List<Integer> capitals = new ArrayList<Integer>(numTerritories);
+		for (int t = 0; t < numTerritories; t++) {
+			capitals.add(t);
+		}
+		Collections.shuffle(capitals, random);
+		for (int c = 0; c < numContinents; c++) {
+			final int capital = capitals.get(c);
+			continents[capital] = c;
+			queue[tail++] = capital;
+		}
+		while (head < tail) {
+			// Pick a random territory still to grow from, so continents grow unevenly
+			final int pick = head + random.nextInt(tail - head);
+			final int t = queue[pick];
+			queue[pick] = queue[head];
+			queue[head++] = t;
+			for (final int neighbor : neighbors[t]) {
+				if (continents[neighbor] < 0) {
+					continents[neighbor] = continents[t];
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+		return continents;
+	}
+
+	/**
+	 * @return the names prefix0 to prefixN-1, zero-padded so name order is number order
+	 */
+	private static String[] names(final String prefix, final int count) {
+		final String format = prefix + "%0" + String.valueOf(count - 1).length() + "d";
+		final String[] names = new String[count];
+		for (int i = 0; i < count; i++) {
+			names[i] = String.format(format, i);
+		}
+		return names;
+	}
+
+	/**
+	 * Writes a generated map to standard out in the {@link MapFile} format.
+	 * @param args the number of territories, the number of continents and optionally the seed
+	 * @throws IOException if the map can't be written
+	 */
+	public static void main(final String... args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: MapGenerator <territories> <continents> [seed]");
+			System.exit(1);
+		}
+		final long seed = (args.length > 2) ? Long.parseLong(args[2]) : System.nanoTime();
+		final MapTopology topology = generate(Integer.parseInt(args[0]), Integer.parseInt(args[1]), seed);
+		MapFile.write(topology, new OutputStreamWriter(System.out, "UTF-8"));
+	}
+
+	private MapGenerator() {
+		// Utility class
+	}
+}
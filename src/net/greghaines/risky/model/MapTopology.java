@@ -0,0 +1,377 @@
+package net.greghaines.risky.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The immutable shape of a map: territories, continents and borders. 
+ * Territories and continents get dense IDs in name order. Borders are kept as sorted 
+ * neighbour lists and, for maps of up to 64 territories, as one adjacency bitmask per territory. 
+ * A topology is compiled once per map and shared by every board played on it.
+ * @see MapFile
+ */
+public final class MapTopology {
+	
+	/**
+	 * The most territories for which adjacency fits in a single long.
+	 */
+	public static final int MAX_MASK_TERRITORIES = Long.SIZE;
+	
+	private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+	private static final long FNV_PRIME = 0x100000001B3L;
+	
+	private final String name;
+	private final String[] territoryNames;
+	private final int[] territoryContinents;
+	private final Map<String,Integer> territoryIDs;
+	private final String[] continentNames;
+	private final int[] continentBonuses;
+	private final int[][] continentTerritories;
+	private final int[] neighborOffsets;
+	private final int[] neighbors;
+	private final long[] adjacencyMasks;
+	private final long[] continentMasks;
+	private final long fingerprint;
+	private volatile TopologyIndex index = null;
+	
+	private MapTopology(final Builder builder) {
+		this.name = builder.name;
+		final int numTerritories = builder.territoryContinents.size();
+		this.territoryNames = builder.territoryContinents.keySet().toArray(new String[numTerritories]);
+		this.territoryIDs = new HashMap<String,Integer>(numTerritories * 2);
+		for (int i = 0; i < numTerritories; i++) {
+			this.territoryIDs.put(this.territoryNames[i], i);
+		}
+		final int numContinents = builder.continentBonuses.size();
+		this.continentNames = builder.continentBonuses.keySet().toArray(new String[numContinents]);
+		this.continentBonuses = new int[numContinents];
+		final Map<String,Integer> continentIDs = new HashMap<String,Integer>(numContinents * 2);
+		for (int c = 0; c < numContinents; c++) {
+			this.continentBonuses[c] = builder.continentBonuses.get(this.continentNames[c]);
+			continentIDs.put(this.continentNames[c], c);
+		}
+		this.territoryContinents = new int[numTerritories];
+		final int[] continentSizes = new int[numContinents];
+		for (int i = 0; i < numTerritories; i++) {
+			final int c = continentIDs.get(builder.territoryContinents.get(this.territoryNames[i]));
+			this.territoryContinents[i] = c;
+			continentSizes[c]++;
+		}
+		this.continentTerritories = new int[numContinents][];
+		for (int c = 0; c < numContinents; c++) {
+			this.continentTerritories[c] = new int[continentSizes[c]];
+			continentSizes[c] = 0;
+		}
+		for (int i = 0; i < numTerritories; i++) {
+			final int c = this.territoryContinents[i];
+			this.continentTerritories[c][continentSizes[c]++] = i;
+		}
+		this.neighborOffsets = new int[numTerritories + 1];
+		final int[][] adjacent = new int[numTerritories][];
+		for (int i = 0; i < numTerritories; i++) {
+			final TreeSet<String> adjNames = builder.borders.get(this.territoryNames[i]);
+			adjacent[i] = new int[(adjNames == null) ? 0 : adjNames.size()];
+			if (adjNames != null) {
+				int n = 0;
+				for (final String adjName : adjNames) {
+					adjacent[i][n++] = this.territoryIDs.get(adjName);
+				}
+			}
+			this.neighborOffsets[i + 1] = this.neighborOffsets[i] + adjacent[i].length;
+		}
+		this.neighbors = new int[this.neighborOffsets[numTerritories]];
+		for (int i = 0; i < numTerritories; i++) {
+			System.arraycopy(adjacent[i], 0, this.neighbors, this.neighborOffsets[i], adjacent[i].length);
+		}
+		if (numTerritories <= MAX_MASK_TERRITORIES) {
+			this.adjacencyMasks = new long[numTerritories];
+			for (int i = 0; i < numTerritories; i++) {
+				for (final int adj : adjacent[i]) {
+					this.adjacencyMasks[i] |= 1L << adj;
+				}
+			}
+			this.continentMasks = new long[numContinents];
+			for (int i = 0; i < numTerritories; i++) {
+				this.continentMasks[this.territoryContinents[i]] |= 1L << i;
+			}
+		} else {
+			this.adjacencyMasks = null;
+			this.continentMasks = null;
+		}
+		this.fingerprint = fingerprint();
+	}
+	
+	/**
+	 * FNV-1a over the territory and continent names, continent bonuses and borders.
+	 */
+	private long fingerprint() {
+		long hash = fnv(FNV_OFFSET_BASIS, this.territoryNames.length);
+		for (int i = 0; i < this.territoryNames.length; i++) {
+			hash = fnv(fnv(hash, this.territoryNames[i].hashCode()), this.territoryContinents[i]);
+		}
+		hash = fnv(hash, this.continentNames.length);
+		for (int c = 0; c < this.continentNames.length; c++) {
+			hash = fnv(fnv(hash, this.continentNames[c].hashCode()), this.continentBonuses[c]);
+		}
+		for (int i = 0; i < this.neighborOffsets.length; i++) {
+			hash = fnv(hash, this.neighborOffsets[i]);
+		}
+		for (int i = 0; i < this.neighbors.length; i++) {
+			hash = fnv(hash, this.neighbors[i]);
+		}
+		return hash;
+	}
+	
+	private static long fnv(final long hash, final int value) {
+		long result = hash;
+		for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+			result = (result ^ ((value >>> shift) & 0xFF)) * FNV_PRIME;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the classic map, loaded from {@link MapFile#CLASSIC_RESOURCE} the first time it's needed
+	 */
+	public static MapTopology classic() {
+		return Classic.TOPOLOGY;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @return a hash of the map's territories, continents, bonuses and borders but not its name, 
+	 * the same in every JVM, so a saved game or log can tell if it's being read onto another map
+	 */
+	public long getFingerprint() {
+		return this.fingerprint;
+	}
+
+	public int getNumTerritories() {
+		return this.territoryNames.length;
+	}
+
+	public int getNumContinents() {
+		return this.continentNames.length;
+	}
+
+	/**
+	 * @return the territory's ID or -1 if there is no such territory
+	 */
+	public int getTerritoryID(final String territoryName) {
+		final Integer id = this.territoryIDs.get(territoryName);
+		return (id == null) ? -1 : id;
+	}
+
+	public String getTerritoryName(final int territory) {
+		return this.territoryNames[territory];
+	}
+
+	public int getContinent(final int territory) {
+		return this.territoryContinents[territory];
+	}
+
+	public String getContinentName(final int continent) {
+		return this.continentNames[continent];
+	}
+
+	public int getContinentBonus(final int continent) {
+		return this.continentBonuses[continent];
+	}
+
+	public int getContinentSize(final int continent) {
+		return this.continentTerritories[continent].length;
+	}
+
+	public int getContinentTerritory(final int continent, final int index) {
+		return this.continentTerritories[continent][index];
+	}
+
+	public int getNumNeighbors(final int territory) {
+		return this.neighborOffsets[territory + 1] - this.neighborOffsets[territory];
+	}
+
+	/**
+	 * @param territory the territory's ID
+	 * @param index 0 to {@link #getNumNeighbors(int)}-1
+	 * @return the ID of the neighbour; neighbours are in ID order
+	 */
+	public int getNeighbor(final int territory, final int index) {
+		return this.neighbors[this.neighborOffsets[territory] + index];
+	}
+
+	/**
+	 * @return the index in {@link #getNeighborIDs()} of the territory's first neighbour
+	 */
+	int getNeighborStart(final int territory) {
+		return this.neighborOffsets[territory];
+	}
+
+	/**
+	 * @return every territory's neighbours, one sorted run after another; not to be changed
+	 */
+	int[] getNeighborIDs() {
+		return this.neighbors;
+	}
+
+	/**
+	 * @return the continent's territories in ID order; not to be changed
+	 */
+	int[] getContinentTerritoryIDs(final int continent) {
+		return this.continentTerritories[continent];
+	}
+
+	/**
+	 * @return distances, continent borders and articulation points for this map, 
+	 * worked out the first time they're asked for
+	 */
+	public TopologyIndex getIndex() {
+		TopologyIndex result = this.index;
+		if (result == null) {
+			synchronized (this) {
+				result = this.index;
+				if (result == null) {
+					result = new TopologyIndex(this);
+					this.index = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	public boolean isAdjacent(final int territory1, final int territory2) {
+		final boolean adjacent;
+		if (this.adjacencyMasks != null) {
+			adjacent = (this.adjacencyMasks[territory1] & (1L << territory2)) != 0;
+		} else {
+			adjacent = Arrays.binarySearch(this.neighbors, this.neighborOffsets[territory1], 
+					this.neighborOffsets[territory1 + 1], territory2) >= 0;
+		}
+		return adjacent;
+	}
+
+	/**
+	 * @return true if adjacency and ownership of the whole map each fit in a single long
+	 */
+	public boolean hasMasks() {
+		return (this.adjacencyMasks != null);
+	}
+
+	/**
+	 * Only available when {@link #hasMasks()} is true.
+	 * @return a bitmask of the territory's neighbours, bit N set for territory ID N
+	 */
+	public long getAdjacencyMask(final int territory) {
+		return this.adjacencyMasks[territory];
+	}
+
+	/**
+	 * Only available when {@link #hasMasks()} is true.
+	 * @return a bitmask of the continent's territories, bit N set for territory ID N
+	 */
+	public long getContinentMask(final int continent) {
+		return this.continentMasks[continent];
+	}
+	
+	@Override
+	public String toString() {
+		return this.name + " (" + this.territoryNames.length + " territories, " + 
+				this.continentNames.length + " continents)";
+	}
+
+	/**
+	 * Holds the classic map, so it's only loaded once something asks for it.
+	 */
+	private static final class Classic {
+		
+		private static final MapTopology TOPOLOGY;
+		
+		static {
+			try {
+				TOPOLOGY = MapFile.loadResource(MapFile.CLASSIC_RESOURCE);
+			} catch (IOException ioe) {
+				throw new IllegalStateException("Could not load the classic map", ioe);
+			}
+		}
+	}
+
+	/**
+	 * Collects continents, territories and borders by name and compiles them into a {@link MapTopology}.
+	 */
+	public static final class Builder {
+		
+		private final String name;
+		private final Map<String,Integer> continentBonuses = new TreeMap<String,Integer>();
+		private final Map<String,String> territoryContinents = new TreeMap<String,String>();
+		private final Map<String,TreeSet<String>> borders = new HashMap<String,TreeSet<String>>();
+		
+		public Builder(final String name) {
+			this.name = name;
+		}
+		
+		public Builder addContinent(final String continentName, final int bonusArmies, 
+				final String... territoryNames) {
+			if (this.continentBonuses.containsKey(continentName)) {
+				throw new IllegalArgumentException("Duplicate continent: " + continentName);
+			}
+			this.continentBonuses.put(continentName, bonusArmies);
+			for (final String territoryName : territoryNames) {
+				addTerritory(territoryName, continentName);
+			}
+			return this;
+		}
+		
+		public Builder addTerritory(final String territoryName, final String continentName) {
+			if (!this.continentBonuses.containsKey(continentName)) {
+				throw new IllegalArgumentException("Unknown continent: " + continentName);
+			}
+			if (this.territoryContinents.containsKey(territoryName)) {
+				throw new IllegalArgumentException("Duplicate territory: " + territoryName);
+			}
+			this.territoryContinents.put(territoryName, continentName);
+			return this;
+		}
+		
+		public Builder connect(final String territoryName1, final String territoryName2) {
+			if (!this.territoryContinents.containsKey(territoryName1)) {
+				throw new IllegalArgumentException("Unknown territory: " + territoryName1);
+			}
+			if (!this.territoryContinents.containsKey(territoryName2)) {
+				throw new IllegalArgumentException("Unknown territory: " + territoryName2);
+			}
+			if (territoryName1.equals(territoryName2)) {
+				throw new IllegalArgumentException("A territory cannot border itself: " + territoryName1);
+			}
+			getBorders(territoryName1).add(territoryName2);
+			getBorders(territoryName2).add(territoryName1);
+			return this;
+		}
+
+		private TreeSet<String> getBorders(final String territoryName) {
+			TreeSet<String> adjNames = this.borders.get(territoryName);
+			if (adjNames == null) {
+				adjNames = new TreeSet<String>();
+				this.borders.put(territoryName, adjNames);
+			}
+			return adjNames;
+		}
+		
+		public MapTopology build() {
+			final List<String> emptyContinents = new ArrayList<String>(this.continentBonuses.keySet());
+			emptyContinents.removeAll(new HashSet<String>(this.territoryContinents.values()));
+			if (!emptyContinents.isEmpty()) {
+				throw new IllegalStateException("Continents without territories: " + emptyContinents);
+			}
+			return new MapTopology(this);
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package net.greghaines.risky.model;
+
+/**
+ * A change to the state of a game. 
+ * Moves are made with {@link GameBoard#makeMove(Move)}, which records how to take them back 
+ * with {@link GameBoard#unmakeMove()}, or applied for good with {@link GameBoard#applyMove(Move)}.
+ */
+public interface Move {
+
+	/**
+	 * Changes the board, only through the board's recording mutators.
+	 * @param board the board to change
+	 */
+	void apply(GameBoard board);
+}
@@ -0,0 +1,35 @@
+package net.greghaines.risky.model;
+
+/**
+ * Claims a free territory with one army from the player's hand during setup.
+ */
+public class OccupyMove implements Move {
+	
+	private final Territory territory;
+	private final Player player;
+	
+	public OccupyMove(final Territory territory, final Player player) {
+		this.territory = territory;
+		this.player = player;
+	}
+
+	public Territory getTerritory() {
+		return this.territory;
+	}
+
+	public Player getPlayer() {
+		return this.player;
+	}
+
+	@Override
+	public void apply(final GameBoard board) {
+		board.changeOwner(this.territory.getTerritoryID(), this.player);
+		board.changeArmies(this.territory.getTerritoryID(), 1);
+		board.changeArmiesInHand(this.player, this.player.getNumArmiesInHand() - 1);
+	}
+	
+	@Override
+	public String toString() {
+		return this.player.getName() + " occupies " + this.territory.getName();
+	}
+}
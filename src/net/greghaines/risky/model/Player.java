@@ -1,30 +1,44 @@
 package net.greghaines.risky.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import net.greghaines.risky.model.Card.CardType;
-import net.greghaines.risky.utils.Combinations;
 
 public class Player {
 	
-	private static final AtomicInteger PLAYER_COUNTER = new AtomicInteger(0);
+	public static final int SET_THREE_INFANTRY = 1;
+	public static final int SET_THREE_CALVARY = 1 << 1;
+	public static final int SET_THREE_ARTILLERY = 1 << 2;
+	public static final int SET_RUN = 1 << 3;
+	public static final int SET_WILD = 1 << 4;
+	
 	private static final int CARD_SET_SIZE = 3;
+	/** Indexed by the ordinal of the card type. */
+	private static final int[] THREE_OF_A_KIND_SETS = { SET_THREE_INFANTRY, SET_THREE_CALVARY, SET_THREE_ARTILLERY };
 	
 	private final int playerID;
 	private final String name;
-	private final List<Card> cards = new LinkedList<Card>();
+	private final DecisionProvider decisionProvider;
+	private final int[] typeCounts = new int[CardType.values().length];
+	private Card[] cards = new Card[8];
+	private int numCards = 0;
+	private long handHash = 0L;
 	private int numArmiesInHand = 0;
 	private boolean eliminated = false;
 
-	public Player(final String name) {
-		this.playerID = PLAYER_COUNTER.incrementAndGet();
+	public Player(final int playerID, final String name) {
+		this(playerID, name, new ConsoleDecisionProvider());
+	}
+
+	public Player(final int playerID, final String name, final DecisionProvider decisionProvider) {
+		this.playerID = playerID;
 		this.name = name;
+		this.decisionProvider = decisionProvider;
 	}
 
 	public int getPlayerID() {
@@ -35,6 +49,10 @@ public class Player {
 		return this.name;
 	}
 
+	public DecisionProvider getDecisionProvider() {
+		return this.decisionProvider;
+	}
+
 	public boolean isEliminated() {
 		return this.eliminated;
 	}
@@ -44,82 +62,204 @@ public class Player {
 	}
 	
 	public int getNumCards() {
-		return this.cards.size();
+		return this.numCards;
+	}
+	
+	/**
+	 * @param type a card type
+	 * @return how many cards of that type are in the hand
+	 */
+	public int getNumCards(final CardType type) {
+		return this.typeCounts[type.ordinal()];
+	}
+
+	/**
+	 * @param index 0 to {@link #getNumCards()}-1
+	 * @return the card at that position in the hand
+	 */
+	public Card getCard(final int index) {
+		if (index < 0 || index >= this.numCards) {
+			throw new IndexOutOfBoundsException("index=" + index + ",numCards=" + this.numCards);
+		}
+		return this.cards[index];
 	}
 
 	public void addCard(final Card card) {
-		this.cards.add(card);
+		if (this.numCards == this.cards.length) {
+			this.cards = Arrays.copyOf(this.cards, this.numCards * 2);
+		}
+		this.cards[this.numCards++] = card;
+		countCard(card.getType().ordinal(), 1);
 	}
 	
 	public void removeCardSet(final Set<Card> cardSet) {
-		this.cards.removeAll(cardSet);
-	}
-	
-	public List<Set<Card>> calculateCardSets() {
-		final List<Set<Card>> cardSets;
-		if (this.cards.size() < 3) {
-			cardSets = Collections.<Set<Card>>emptyList();
-		} else {
-			final List<List<Card>> combos = Combinations.combinations(this.cards, CARD_SET_SIZE);
-			cardSets = new ArrayList<Set<Card>>(combos.size());
-			for (final List<Card> combo : combos) {
-				if (isValidCardSet(combo)) {
-					cardSets.add(new LinkedHashSet<Card>(combo));
+		for (final Card card : cardSet) {
+			for (int i = 0; i < this.numCards; i++) {
+				if (this.cards[i].equals(card)) {
+					System.arraycopy(this.cards, i + 1, this.cards, i, this.numCards - i - 1);
+					this.cards[--this.numCards] = null;
+					countCard(card.getType().ordinal(), -1);
+					break;
 				}
 			}
 		}
-		return cardSets;
+	}
+	
+	/**
+	 * Empties the hand.
+	 */
+	public void clearCards() {
+		Arrays.fill(this.cards, 0, this.numCards, null);
+		Arrays.fill(this.typeCounts, 0);
+		this.numCards = 0;
+		this.handHash = 0L;
 	}
 
-	private static boolean isValidCardSet(final List<Card> combo) {
-		return isWildSet(combo) || isRunSet(combo) || isThreeOfAKindSet(combo);
+	private void countCard(final int type, final int change) {
+		this.handHash ^= Zobrist.hand(this.playerID, type, this.typeCounts[type]);
+		this.typeCounts[type] += change;
+		this.handHash ^= Zobrist.hand(this.playerID, type, this.typeCounts[type]);
 	}
 
-	private static boolean isWildSet(final List<Card> combo) {
-		boolean hasOnlyOneWild = false;
-		for (final Card card : combo) {
-			if (CardType.WILD.equals(card.getType())) {
-				// There are only 2 wild cards in the deck so, don't have to worry about 3 wilds-case
-				hasOnlyOneWild = !hasOnlyOneWild;
+	/**
+	 * @return the {@link Zobrist} hash of how many cards of each type the player holds
+	 */
+	public long getHandHash() {
+		return this.handHash;
+	}
+	
+	/**
+	 * @return true if the hand holds at least one set that can be traded in
+	 */
+	public boolean hasCardSet() {
+		return (getCardSetTypes() != 0);
+	}
+	
+	/**
+	 * Works the legal sets out from the counts of each card type alone.
+	 * @return a bit for each SET_* type the hand can trade in
+	 */
+	public int getCardSetTypes() {
+		final int infantry = this.typeCounts[CardType.INFANTRY.ordinal()];
+		final int calvary = this.typeCounts[CardType.CALVARY.ordinal()];
+		final int artillery = this.typeCounts[CardType.ARTILLERY.ordinal()];
+		int setTypes = 0;
+		if (infantry >= CARD_SET_SIZE) {
+			setTypes |= SET_THREE_INFANTRY;
+		}
+		if (calvary >= CARD_SET_SIZE) {
+			setTypes |= SET_THREE_CALVARY;
+		}
+		if (artillery >= CARD_SET_SIZE) {
+			setTypes |= SET_THREE_ARTILLERY;
+		}
+		if (infantry > 0 && calvary > 0 && artillery > 0) {
+			setTypes |= SET_RUN;
+		}
+		// Exactly one wild; there are only 2 in the deck and two wilds never make a set
+		if (this.typeCounts[CardType.WILD.ordinal()] > 0 && (infantry + calvary + artillery) >= 2) {
+			setTypes |= SET_WILD;
+		}
+		return setTypes;
+	}
+	
+	/**
+	 * Every set is worth the same number of armies, so the best one is whichever leaves the 
+	 * most useful hand: a three of a kind of the most common type, then a run, and a wild last.
+	 * @return the SET_* type to trade in, or 0 if the hand holds no set
+	 */
+	public int getBestCardSetType() {
+		final int setTypes = getCardSetTypes();
+		int best = 0;
+		int bestCount = 0;
+		for (int i = 0; i < THREE_OF_A_KIND_SETS.length; i++) {
+			if ((setTypes & THREE_OF_A_KIND_SETS[i]) != 0 && this.typeCounts[i] > bestCount) {
+				bestCount = this.typeCounts[i];
+				best = THREE_OF_A_KIND_SETS[i];
 			}
 		}
-		return hasOnlyOneWild;
-	}
-
-	private static boolean isRunSet(final List<Card> combo) {
-		boolean hasInfantry = false;
-		boolean hasCalvary = false;
-		boolean hasArtillery = false;
-		for (final Card card : combo) {
-			switch (card.getType()) {
-			case INFANTRY:
-				hasInfantry = true;
-				break;
-			case CALVARY:
-				hasCalvary = true;
-				break;
-			case ARTILLERY:
-				hasArtillery = true;
-				break;
-			default:
-				// Don't care about WILD or null
-				break;
+		if (best == 0) {
+			best = ((setTypes & SET_RUN) != 0) ? SET_RUN : (setTypes & SET_WILD);
+		}
+		return best;
+	}
+	
+	/**
+	 * @return the cards of the best set to trade in, or null if the hand holds no set
+	 * @see #getBestCardSetType()
+	 */
+	public Set<Card> getBestCardSet() {
+		final int setType = getBestCardSetType();
+		return (setType == 0) ? null : getCardSet(setType);
+	}
+	
+	/**
+	 * @param setType one of the SET_* types the hand can trade in
+	 * @return the cards that make up a set of that type
+	 */
+	public Set<Card> getCardSet(final int setType) {
+		if ((getCardSetTypes() & setType) == 0 || Integer.bitCount(setType) != 1) {
+			throw new IllegalArgumentException("Not a set this hand can trade in: " + setType);
+		}
+		final int[] needed = new int[CardType.values().length];
+		switch (setType) {
+		case SET_THREE_INFANTRY:
+			needed[CardType.INFANTRY.ordinal()] = CARD_SET_SIZE;
+			break;
+		case SET_THREE_CALVARY:
+			needed[CardType.CALVARY.ordinal()] = CARD_SET_SIZE;
+			break;
+		case SET_THREE_ARTILLERY:
+			needed[CardType.ARTILLERY.ordinal()] = CARD_SET_SIZE;
+			break;
+		case SET_RUN:
+			needed[CardType.INFANTRY.ordinal()] = 1;
+			needed[CardType.CALVARY.ordinal()] = 1;
+			needed[CardType.ARTILLERY.ordinal()] = 1;
+			break;
+		default: // SET_WILD: the wild plus two of the most plentiful other cards
+			needed[CardType.WILD.ordinal()] = 1;
+			final int[] remaining = Arrays.copyOf(this.typeCounts, CardType.WILD.ordinal());
+			for (int n = 0; n < CARD_SET_SIZE - 1; n++) {
+				int most = 0;
+				for (int i = 1; i < remaining.length; i++) {
+					if (remaining[i] > remaining[most]) {
+						most = i;
+					}
+				}
+				remaining[most]--;
+				needed[most]++;
+			}
+			break;
+		}
+		final Set<Card> cardSet = new LinkedHashSet<Card>(CARD_SET_SIZE * 2);
+		for (int i = 0; i < this.numCards; i++) {
+			final int type = this.cards[i].getType().ordinal();
+			if (needed[type] > 0) {
+				needed[type]--;
+				cardSet.add(this.cards[i]);
 			}
 		}
-		return hasInfantry && hasCalvary && hasArtillery;
+		return cardSet;
 	}
-
-	private static boolean isThreeOfAKindSet(final List<Card> combo) {
-		CardType type = null;
-		for (final Card card : combo) {
-			if (type == null) {
-				type = card.getType();
-			} else if (!type.equals(card.getType())) {
-				type = null; // null to indicate no match
-				break;
+	
+	/**
+	 * @return one set for each type of set the hand can trade in, best first
+	 */
+	public List<Set<Card>> calculateCardSets() {
+		final int setTypes = getCardSetTypes();
+		final List<Set<Card>> cardSets;
+		if (setTypes == 0) {
+			cardSets = Collections.<Set<Card>>emptyList();
+		} else {
+			final int best = getBestCardSetType();
+			cardSets = new ArrayList<Set<Card>>(Integer.bitCount(setTypes));
+			cardSets.add(getCardSet(best));
+			for (int rest = setTypes & ~best; rest != 0; rest &= rest - 1) {
+				cardSets.add(getCardSet(Integer.lowestOneBit(rest)));
 			}
 		}
-		return (type != null);
+		return cardSets;
 	}
 
 	public int getNumArmiesInHand() {
@@ -0,0 +1,134 @@
+package net.greghaines.risky.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Makes uniformly random legal decisions, always rolling the most dice allowed.
+ * Mostly useful for simulations and as a baseline for smarter players.
+ */
+public class RandomDecisionProvider implements DecisionProvider {
+	
+	private static final double END_ATTACK_PHASE_CHANCE = 0.1;
+	private static final double SKIP_FORTIFY_CHANCE = 0.5;
+
+	private final Random random;
+	
+	public RandomDecisionProvider(final Random random) {
+		this.random = random;
+	}
+
+	@Override
+	public Territory chooseTerritoryToOccupy(final GameSession session, final Player player, 
+			final Map<String,Territory> freeTerritories) {
+		return pick(freeTerritories);
+	}
+
+	@Override
+	public Territory chooseTerritoryToReinforce(final GameSession session, final Player player, 
+			final Map<String,Territory> occupiedTerritories) {
+		return pick(occupiedTerritories);
+	}
+
+	@Override
+	public int chooseNumReinforcements(final GameSession session, final Player player, 
+			final Territory territory, final int max) {
+		return 1 + this.random.nextInt(max);
+	}
+
+	@Override
+	public Set<Card> chooseCardSet(final GameSession session, final Player player, 
+			final List<Set<Card>> cardSets, final boolean mandatory) {
+		return cardSets.get(this.random.nextInt(cardSets.size()));
+	}
+
+	@Override
+	public Territory chooseAttackingTerritory(final GameSession session, final Player player, 
+			final Map<String,Territory> usableTerritories) {
+		final List<Territory> candidates = new ArrayList<Territory>(usableTerritories.size());
+		for (final Territory territory : usableTerritories.values()) {
+			if (session.getGameBoard().getCore().hasAttackable(territory.getTerritoryID())) {
+				candidates.add(territory);
+			}
+		}
+		return (candidates.isEmpty() || this.random.nextDouble() < END_ATTACK_PHASE_CHANCE) 
+				? null : candidates.get(this.random.nextInt(candidates.size()));
+	}
+
+	@Override
+	public Territory chooseDefendingTerritory(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Map<String,Territory> attackableTerritories) {
+		return pick(attackableTerritories);
+	}
+
+	@Override
+	public Integer chooseBlitzThreshold(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory) {
+		return 1; // Same as always rolling the most dice and never stopping, in one step
+	}
+
+	@Override
+	public int chooseNumAttackingArmies(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory, final int max) {
+		return max;
+	}
+
+	@Override
+	public int chooseNumDefendingArmies(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory, final int max) {
+		return max;
+	}
+
+	@Override
+	public boolean continueAttack(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory) {
+		return true;
+	}
+
+	@Override
+	public int chooseNumArmiesToMove(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory capturedTerritory, final int min, final int max) {
+		return min + this.random.nextInt(max - min + 1);
+	}
+
+	@Override
+	public Territory chooseFortifySource(final GameSession session, final Player player, 
+			final Map<String,Territory> usableTerritories) {
+		final List<Territory> candidates = new ArrayList<Territory>(usableTerritories.size());
+		for (final Territory territory : usableTerritories.values()) {
+			if (session.getGameBoard().getCore().hasFortifiable(territory.getTerritoryID())) {
+				candidates.add(territory);
+			}
+		}
+		return (candidates.isEmpty() || this.random.nextDouble() < SKIP_FORTIFY_CHANCE) 
+				? null : candidates.get(this.random.nextInt(candidates.size()));
+	}
+
+	@Override
+	public Territory chooseFortifyTarget(final GameSession session, final Player player, 
+			final Territory sourceTerritory, final Map<String,Territory> fortifiableTerritories) {
+		return pick(fortifiableTerritories);
+	}
+
+	@Override
+	public int chooseNumArmiesToFortify(final GameSession session, final Player player, 
+			final Territory sourceTerritory, final Territory targetTerritory, final int max) {
+		return 1 + this.random.nextInt(max);
+	}
+
+	private <V> V pick(final Map<String,V> options) {
+		V selection = null;
+		if (!options.isEmpty()) {
+			final Iterator<V> iter = options.values().iterator();
+			for (int i = this.random.nextInt(options.size()); i > 0; i--) {
+				iter.next();
+			}
+			selection = iter.next();
+		}
+		return selection;
+	}
+}
@@ -0,0 +1,35 @@
+package net.greghaines.risky.model;
+
+/**
+ * Places armies from the owner's hand on one of their territories.
+ */
+public class ReinforceMove implements Move {
+	
+	private final Territory territory;
+	private final int numArmies;
+	
+	public ReinforceMove(final Territory territory, final int numArmies) {
+		this.territory = territory;
+		this.numArmies = numArmies;
+	}
+
+	public Territory getTerritory() {
+		return this.territory;
+	}
+
+	public int getNumArmies() {
+		return this.numArmies;
+	}
+
+	@Override
+	public void apply(final GameBoard board) {
+		final Player owner = this.territory.getOwner();
+		board.changeArmies(this.territory.getTerritoryID(), this.territory.getArmySize() + this.numArmies);
+		board.changeArmiesInHand(owner, owner.getNumArmiesInHand() - this.numArmies);
+	}
+	
+	@Override
+	public String toString() {
+		return "reinforce " + this.territory.getName() + " with " + this.numArmies;
+	}
+}
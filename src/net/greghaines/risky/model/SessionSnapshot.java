@@ -0,0 +1,201 @@
+package net.greghaines.risky.model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.greghaines.risky.model.Card.CardType;
+
+/**
+ * The binary format of a saved game. Numbers are big-endian; territories and counts of 
+ * territories or cards are ints, and cards are a territory (-1 for a wild) followed by the 
+ * card type's ordinal.
+ * <pre>
+ * int MAGIC, short VERSION, short mapNameLength, UTF-8 map name, long map fingerprint, 
+ * byte phase, int roundNum, int turnNum, byte turnIndex, byte victor, byte connectedFortify,
+ * byte numEliminations, numEliminations x int round,
+ * int numTerritories, numTerritories x (byte owner, int armies),
+ * int numCardSetsTradedIn, int deckSize, deckSize x card,
+ * byte numPlayers, numPlayers in turn order x (byte playerID, int armiesInHand, byte eliminated, 
+ *                                              int numCards, numCards x card)
+ * </pre>
+ * The classic board with a full deck comes to about 500 bytes.
+ */
+final class SessionSnapshot {
+	
+	private static final int MAGIC = 0x52534B53; // "RSKS"
+	private static final short VERSION = 4;
+	private static final int WILD = -1;
+	private static final int CARD_BYTES = 4 + 1;
+	private static final int NUM_WILDS = 2;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final GameSession.Phase[] PHASES = GameSession.Phase.values();
+	private static final CardType[] CARD_TYPES = CardType.values();
+	
+	/**
+	 * @return the most bytes a save of a game on the map can take: every elimination, 
+	 * and every card in the deck or a hand
+	 */
+	static int maxSize(final MapTopology topology) {
+		final long size = 4 + 2 + 2 + mapNameBytes(topology).length + 8 
+				+ 1 + 4 + 4 + 1 + 1 + 1 
+				+ 1 + (GameSession.MAX_PLAYERS * 4) 
+				+ 4 + (topology.getNumTerritories() * (1L + 4)) 
+				+ 4 + 4 
+				+ 1 + (GameSession.MAX_PLAYERS * (1 + 4 + 1 + 4)) 
+				+ ((topology.getNumTerritories() + (long) NUM_WILDS) * CARD_BYTES);
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Saves of " + topology + " don't fit in a buffer");
+		}
+		return (int) size;
+	}
+	
+	private static byte[] mapNameBytes(final MapTopology topology) {
+		final byte[] bytes = topology.getName().getBytes(UTF_8);
+		if (bytes.length > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Map name is too long to save (" + bytes.length + " bytes)");
+		}
+		return bytes;
+	}
+	
+	static void write(final GameSession session, final ByteBuffer buf) {
+		final GameBoard board = session.getGameBoard();
+		final BoardCore core = board.getCore();
+		final int maxSize = maxSize(board.getTopology());
+		if (buf.remaining() < maxSize) {
+			throw new IllegalArgumentException("A save of " + board.getTopology() + " needs " + maxSize + 
+					" bytes, but the buffer has " + buf.remaining());
+		}
+		final byte[] mapName = mapNameBytes(board.getTopology());
+		buf.putInt(MAGIC).putShort(VERSION).putShort((short) mapName.length).put(mapName)
+			.putLong(board.getTopology().getFingerprint()).put((byte) session.getPhase().ordinal())
+			.putInt(session.getRoundNum()).putInt(session.getTurnNum()).put((byte) session.getTurnIndex())
+			.put((byte) ((session.getVictor() == null) ? BoardCore.NO_OWNER : session.getVictor().getPlayerID()))
+			.put((byte) (session.isConnectedFortify() ? 1 : 0));
+		buf.put((byte) session.getEliminationRounds().size());
+		for (final Integer round : session.getEliminationRounds()) {
+			buf.putInt(round);
+		}
+		buf.putInt(core.getNumTerritories());
+		for (int t = 0; t < core.getNumTerritories(); t++) {
+			buf.put((byte) core.getOwner(t)).putInt(core.getArmies(t));
+		}
+		buf.putInt(board.getNumCardSetsTradedIn());
+		buf.putInt(board.getDeck().size());
+		for (final Card card : board.getDeck()) {
+			putCard(board, card, buf);
+		}
+		buf.put((byte) session.getPlayers().size());
+		for (final Player player : session.getPlayers()) {
+			buf.put((byte) player.getPlayerID()).putInt(player.getNumArmiesInHand())
+				.put((byte) (player.isEliminated() ? 1 : 0)).putInt(player.getNumCards());
+			for (int i = 0; i < player.getNumCards(); i++) {
+				putCard(board, player.getCard(i), buf);
+			}
+		}
+	}
+	
+	static void read(final GameSession session, final ByteBuffer buf) {
+		try {
+			if (buf.getInt() != MAGIC) {
+				throw new IllegalArgumentException("Not a saved game");
+			}
+			final short version = buf.getShort();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported saved game version: " + version);
+			}
+			final byte[] mapName = new byte[buf.getShort()];
+			buf.get(mapName);
+			final MapTopology topology = session.getGameBoard().getTopology();
+			if (buf.getLong() != topology.getFingerprint()) {
+				throw new IllegalArgumentException("Saved game is for the map " + new String(mapName, UTF_8) + 
+						", not " + topology.getName());
+			}
+			final GameSession.Phase phase = PHASES[buf.get()];
+			final int roundNum = buf.getInt();
+			final int turnNum = buf.getInt();
+			final int turnIndex = buf.get();
+			final int victorID = buf.get();
+			final boolean connectedFortify = (buf.get() != 0);
+			final int numEliminations = buf.get();
+			final List<Integer> eliminationRounds = new ArrayList<Integer>(numEliminations);
+			for (int i = 0; i < numEliminations; i++) {
+				eliminationRounds.add(buf.getInt());
+			}
+			final GameBoard board = session.getGameBoard();
+			final int numTerritories = buf.getInt();
+			if (numTerritories != board.getCore().getNumTerritories()) {
+				throw new IllegalArgumentException("Saved game is for a map with " + numTerritories + " territories");
+			}
+			final int[] owners = new int[numTerritories];
+			final int[] armies = new int[numTerritories];
+			for (int t = 0; t < numTerritories; t++) {
+				owners[t] = buf.get();
+				armies[t] = buf.getInt();
+			}
+			board.setNumCardSetsTradedIn(buf.getInt());
+			final int deckSize = buf.getInt();
+			if (deckSize < 0 || deckSize > numTerritories + NUM_WILDS) {
+				throw new IllegalArgumentException("Saved game is corrupt (deckSize=" + deckSize + ")");
+			}
+			final List<Card> deck = new ArrayList<Card>(deckSize);
+			for (int i = 0; i < deckSize; i++) {
+				deck.add(readCard(board, buf));
+			}
+			board.setDeck(deck);
+			final int numPlayers = buf.get();
+			if (numPlayers != session.getPlayers().size()) {
+				throw new IllegalArgumentException("Saved game has " + numPlayers + " players, not " + 
+						session.getPlayers().size());
+			}
+			final List<Player> turnOrder = new ArrayList<Player>(numPlayers);
+			for (int i = 0; i < numPlayers; i++) {
+				final Player player = findPlayer(session, buf.get());
+				player.setNumArmiesInHand(buf.getInt());
+				player.setEliminated(buf.get() != 0);
+				player.clearCards(); // Players may be reused from an earlier game
+				final int numCards = buf.getInt();
+				for (int c = 0; c < numCards; c++) {
+					player.addCard(readCard(board, buf));
+				}
+				turnOrder.add(player);
+			}
+			for (int t = 0; t < numTerritories; t++) {
+				board.getTerritory(t).setOwner((owners[t] == BoardCore.NO_OWNER) ? null : findPlayer(session, owners[t]));
+				board.getTerritory(t).setArmySize(armies[t]);
+			}
+			session.restore(phase, roundNum, turnNum, turnIndex, turnOrder, eliminationRounds, 
+					(victorID == BoardCore.NO_OWNER) ? null : findPlayer(session, victorID), connectedFortify);
+		} catch (BufferUnderflowException bue) {
+			throw new IllegalArgumentException("Saved game is truncated", bue);
+		} catch (ArrayIndexOutOfBoundsException aioobe) {
+			throw new IllegalArgumentException("Saved game is corrupt", aioobe);
+		}
+	}
+	
+	private static Player findPlayer(final GameSession session, final int playerID) {
+		for (final Player player : session.getPlayers()) {
+			if (player.getPlayerID() == playerID) {
+				return player;
+			}
+		}
+		throw new IllegalArgumentException("No player with ID " + playerID + " for the saved game");
+	}
+	
+	private static void putCard(final GameBoard board, final Card card, final ByteBuffer buf) {
+		buf.putInt((card.isWild()) ? WILD : board.getTopology().getTerritoryID(card.getTerritoryName()))
+			.put((byte) card.getType().ordinal());
+	}
+	
+	private static Card readCard(final GameBoard board, final ByteBuffer buf) {
+		final int territory = buf.getInt();
+		final CardType type = CARD_TYPES[buf.get()];
+		return new Card((territory == WILD) ? null : board.getTopology().getTerritoryName(territory), type);
+	}
+	
+	private SessionSnapshot() {
+		// Utility class
+	}
+}
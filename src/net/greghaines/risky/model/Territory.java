@@ -1,20 +1,27 @@
 package net.greghaines.risky.model;
 
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.TreeMap;
 
 public class Territory {
 	
+	private final int territoryID;
 	private final String name;
 	private final Continent continent;
-	private final Map<String,Territory> adjacentTerritories = new TreeMap<String,Territory>();
-	private Player owner;
-	private int armySize;
+	private final GameBoard gameBoard;
+	private final BoardCore core;
+	private Map<String,Territory> adjacentTerritories = null;
 	
-	public Territory(final String name, final Continent continent) {
+	public Territory(final int territoryID, final String name, final Continent continent, final GameBoard gameBoard) {
+		this.territoryID = territoryID;
 		this.name = name;
 		this.continent = continent;
+		this.gameBoard = gameBoard;
+		this.core = gameBoard.getCore();
+	}
+
+	public int getTerritoryID() {
+		return this.territoryID;
 	}
 
 	public String getName() {
@@ -25,58 +32,81 @@ public class Territory {
 		return this.continent;
 	}
 
+	/**
+	 * @return a read-only view of the neighbours by name
+	 */
 	public Map<String,Territory> getAdjacentTerritories() {
+		if (this.adjacentTerritories == null) {
+			this.adjacentTerritories = this.gameBoard.createNeighborMap(this.territoryID);
+		}
 		return this.adjacentTerritories;
 	}
 	
 	public Map<String,Territory> getAttackableTerritories() {
-		final Map<String,Territory> attackableTerritories = new TreeMap<String,Territory>();
-		if (this.owner != null && isUsable()) {
-			for (final Entry<String,Territory> e : this.adjacentTerritories.entrySet()) {
-				if (!this.owner.equals(e.getValue().getOwner())) {
-					attackableTerritories.put(e.getKey(), e.getValue());
-				}
-			}
-		}
-		return attackableTerritories;
+		return getNeighbors(false);
 	}
 	
 	public Map<String,Territory> getFortifiableTerritories() {
-		final Map<String,Territory> fortifiableTerritories = new TreeMap<String,Territory>();
-		if (this.owner != null && isUsable()) {
-			for (final Entry<String,Territory> e : this.adjacentTerritories.entrySet()) {
-				if (this.owner.equals(e.getValue().getOwner())) {
-					fortifiableTerritories.put(e.getKey(), e.getValue());
+		return getNeighbors(true);
+	}
+	
+	private Map<String,Territory> getNeighbors(final boolean sameOwner) {
+		final Map<String,Territory> neighbors = new TreeMap<String,Territory>();
+		final int owner = this.core.getOwner(this.territoryID);
+		if (owner != BoardCore.NO_OWNER && isUsable()) {
+			if (this.core.getTopology().hasMasks()) {
+				long bits = (sameOwner) ? this.core.getFortifiableMask(this.territoryID) 
+						: this.core.getAttackableMask(this.territoryID);
+				for (; bits != 0; bits &= (bits - 1)) {
+					final Territory neighbor = this.gameBoard.getTerritory(Long.numberOfTrailingZeros(bits));
+					neighbors.put(neighbor.getName(), neighbor);
+				}
+			} else {
+				final MapTopology topology = this.core.getTopology();
+				for (int i = 0; i < topology.getNumNeighbors(this.territoryID); i++) {
+					final int neighborID = topology.getNeighbor(this.territoryID, i);
+					if ((this.core.getOwner(neighborID) == owner) == sameOwner) {
+						final Territory neighbor = this.gameBoard.getTerritory(neighborID);
+						neighbors.put(neighbor.getName(), neighbor);
+					}
 				}
 			}
 		}
-		return fortifiableTerritories;
+		return neighbors;
 	}
 
 	public Player getOwner() {
-		return this.owner;
+		return this.gameBoard.getPlayer(this.core.getOwner(this.territoryID));
 	}
 
 	public void setOwner(final Player owner) {
-		this.owner = owner;
+		this.gameBoard.setOwner(this.territoryID, owner);
 	}
 
 	public int getArmySize() {
-		return this.armySize;
+		return this.core.getArmies(this.territoryID);
 	}
 
 	public void setArmySize(final int armySize) {
-		this.armySize = armySize;
+		this.core.setArmies(this.territoryID, armySize);
 	}
 	
 	public boolean isUsable() {
-		return (this.armySize > 1);
+		return this.core.isUsable(this.territoryID);
+	}
+
+	/**
+	 * @return the total armies on the neighbours held by someone other than this territory's owner
+	 */
+	public int getThreat() {
+		return this.core.getThreat(this.territoryID);
 	}
 	
 	@Override
 	public String toString() {
-		final String ownerName = (this.owner == null) ? "NONE" : this.owner.getName();
-		return this.name + " (" + ownerName + " => " + this.armySize + ")";
+		final Player owner = getOwner();
+		final String ownerName = (owner == null) ? "NONE" : owner.getName();
+		return this.name + " (" + ownerName + " => " + getArmySize() + ")";
 	}
 
 	@Override
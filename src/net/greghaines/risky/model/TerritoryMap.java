@@ -0,0 +1,102 @@
+package net.greghaines.risky.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only, name-ordered map of territories by name, viewing a sorted run of territory IDs
+ * in the topology's arrays instead of copying them. Since IDs are given in name order, ID order
+ * is the order a TreeMap would have; lookups by name are a hash lookup and a binary search.
+ */
+final class TerritoryMap extends AbstractMap<String,Territory> {
+
+	private final GameBoard gameBoard;
+	/** The IDs in the map, or null for every territory from {@link #from} to {@link #to}. */
+	private final int[] ids;
+	private final int from;
+	private final int to;
+	private Set<Map.Entry<String,Territory>> entrySet = null;
+
+	/**
+	 * @param ids sorted territory IDs, or null for the IDs from-to themselves
+	 * @param from the first index in ids
+	 * @param to one past the last index in ids
+	 */
+	TerritoryMap(final GameBoard gameBoard, final int[] ids, final int from, final int to) {
+		this.gameBoard = gameBoard;
+		this.ids = ids;
+		this.from = from;
+		this.to = to;
+	}
+
+	private int id(final int index) {
+		return (this.ids == null) ? index : this.ids[index];
+	}
+
+	@Override
+	public int size() {
+		return this.to - this.from;
+	}
+
+	@Override
+	public Territory get(final Object key) {
+		Territory territory = null;
+		if (key instanceof String) {
+			final int id = this.gameBoard.getTopology().getTerritoryID((String) key);
+			if (id >= 0 && ((this.ids == null) ? (id >= this.from && id < this.to)
+					: Arrays.binarySearch(this.ids, this.from, this.to, id) >= 0)) {
+				territory = this.gameBoard.getTerritory(id);
+			}
+		}
+		return territory;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return (get(key) != null);
+	}
+
+	@Override
+	public Set<Map.Entry<String,Territory>> entrySet() {
+		if (this.entrySet == null) {
+			this.entrySet = new AbstractSet<Map.Entry<String,Territory>>() {
+				@Override
+				public int size() {
+					return TerritoryMap.this.size();
+				}
+
+				@Override
+				public Iterator<Map.Entry<String,Territory>> iterator() {
+					return new Iterator<Map.Entry<String,Territory>>() {
+						private int index = TerritoryMap.this.from;
+
+						@Override
+						public boolean hasNext() {
+							return (this.index < TerritoryMap.this.to);
+						}
+
+						@Override
+						public Map.Entry<String,Territory> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							final Territory territory = TerritoryMap.this.gameBoard.getTerritory(id(this.index++));
+							return new AbstractMap.SimpleImmutableEntry<String,Territory>(territory.getName(), territory);
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException("Territory maps are read-only");
+						}
+					};
+				}
+			};
+		}
+		return this.entrySet;
+	}
+}
@@ -0,0 +1,281 @@
+package net.greghaines.risky.model;
+
+import java.util.Arrays;
+
+/**
+ * Static facts about a map's graph, worked out once when first asked for and shared like the
+ * {@link MapTopology} itself: the distance between every pair of territories, each continent's
+ * border territories, the territories it can be entered from and the continents next to it,
+ * and the articulation points, whose loss splits the map in two.
+ * Distances are kept in a matrix on maps of up to {@link #MAX_MATRIX_TERRITORIES} territories;
+ * on bigger maps they're found by a breadth-first search on each call.
+ * @see MapTopology#getIndex()
+ */
+public final class TopologyIndex {
+
+	/**
+	 * The most territories for which all distances are kept, in a matrix of 2 bytes per pair.
+	 */
+	public static final int MAX_MATRIX_TERRITORIES = 2048;
+	/**
+	 * The distance between territories that can't reach each other.
+	 */
+	public static final int UNREACHABLE = -1;
+
+	private final MapTopology topology;
+	private final short[] distances;
+	private final boolean[] borders;
+	private final int[][] continentBorders;
+	private final int[][] continentEntryPoints;
+	private final int[][] adjacentContinents;
+	private final boolean[] articulationPoints;
+	private final int[] articulationPointList;
+
+	TopologyIndex(final MapTopology topology) {
+		this.topology = topology;
+		final int numTerritories = topology.getNumTerritories();
+		final int numContinents = topology.getNumContinents();
+		if (numTerritories <= MAX_MATRIX_TERRITORIES) {
+			this.distances = new short[numTerritories * numTerritories];
+			final int[] row = new int[numTerritories];
+			final int[] queue = new int[numTerritories];
+			for (int from = 0; from < numTerritories; from++) {
+				distancesFrom(from, row, queue);
+				for (int to = 0; to < numTerritories; to++) {
+					this.distances[(from * numTerritories) + to] = (short) row[to];
+				}
+			}
+		} else {
+			this.distances = null;
+		}
+		this.borders = new boolean[numTerritories];
+		this.continentBorders = new int[numContinents][];
+		this.continentEntryPoints = new int[numContinents][];
+		this.adjacentContinents = new int[numContinents][];
+		final boolean[] entryPoint = new boolean[numTerritories];
+		final boolean[] adjacent = new boolean[numContinents];
+		final int[] found = new int[numTerritories];
+		for (int c = 0; c < numContinents; c++) {
+			int numBorders = 0;
+			int numEntryPoints = 0;
+			for (int i = 0; i < topology.getContinentSize(c); i++) {
+				final int t = topology.getContinentTerritory(c, i);
+				for (int n = 0; n < topology.getNumNeighbors(t); n++) {
+					final int neighbor = topology.getNeighbor(t, n);
+					if (topology.getContinent(neighbor) != c) {
+						if (!this.borders[t]) {
+							this.borders[t] = true;
+							numBorders++;
+						}
+						if (!entryPoint[neighbor]) {
+							entryPoint[neighbor] = true;
+							found[numEntryPoints++] = neighbor;
+						}
+						adjacent[topology.getContinent(neighbor)] = true;
+					}
+				}
+			}
+			this.continentBorders[c] = new int[numBorders];
+			numBorders = 0;
+			for (int i = 0; i < topology.getContinentSize(c); i++) {
+				final int t = topology.getContinentTerritory(c, i);
+				if (this.borders[t]) {
+					this.continentBorders[c][numBorders++] = t;
+				}
+			}
+			this.continentEntryPoints[c] = Arrays.copyOf(found, numEntryPoints);
+			Arrays.sort(this.continentEntryPoints[c]);
+			int numAdjacent = 0;
+			for (int a = 0; a < numContinents; a++) {
+				if (adjacent[a]) {
+					found[numAdjacent++] = a;
+					adjacent[a] = false;
+				}
+			}
+			this.adjacentContinents[c] = Arrays.copyOf(found, numAdjacent);
+			for (final int t : this.continentEntryPoints[c]) {
+				entryPoint[t] = false;
+			}
+		}
+		this.articulationPoints = findArticulationPoints(topology);
+		int numArticulationPoints = 0;
+		for (int t = 0; t < numTerritories; t++) {
+			if (this.articulationPoints[t]) {
+				found[numArticulationPoints++] = t;
+			}
+		}
+		this.articulationPointList = Arrays.copyOf(found, numArticulationPoints);
+	}
+
+	/**
+	 * Fills the row with the number of borders to cross from the territory to every other one.
+	 */
+	private void distancesFrom(final int from, final int[] row, final int[] queue) {
+		Arrays.fill(row, UNREACHABLE);
+		row[from] = 0;
+		queue[0] = from;
+		int head = 0;
+		int tail = 1;
+		while (head < tail) {
+			final int t = queue[head++];
+			for (int n = 0; n < this.topology.getNumNeighbors(t); n++) {
+				final int neighbor = this.topology.getNeighbor(t, n);
+				if (row[neighbor] == UNREACHABLE) {
+					row[neighbor] = row[t] + 1;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tarjan's low-link search, with an explicit stack so big maps don't overflow the thread's.
+	 */
+	private static boolean[] findArticulationPoints(final MapTopology topology) {
+		final int numTerritories = topology.getNumTerritories();
+		final boolean[] articulationPoints = new boolean[numTerritories];
+		final int[] discovered = new int[numTerritories];
+		final int[] low = new int[numTerritories];
+		final int[] parents = new int[numTerritories];
+		final int[] nextNeighbor = new int[numTerritories];
+		final int[] stack = new int[numTerritories];
+		int time = 0;
+		for (int root = 0; root < numTerritories; root++) {
+			if (discovered[root] != 0) {
+				continue;
+			}
+			int rootChildren = 0;
+			int depth = 0;
+			stack[depth++] = root;
+			parents[root] = -1;
+			discovered[root] = low[root] = ++time;
+			while (depth > 0) {
+				final int t = stack[depth - 1];
+				if (nextNeighbor[t] < topology.getNumNeighbors(t)) {
+					final int neighbor = topology.getNeighbor(t, nextNeighbor[t]++);
+					if (discovered[neighbor] == 0) {
+						parents[neighbor] = t;
+						discovered[neighbor] = low[neighbor] = ++time;
+						stack[depth++] = neighbor;
+						if (t == root) {
+							rootChildren++;
+						}
+					} else if (neighbor != parents[t]) {
+						low[t] = Math.min(low[t], discovered[neighbor]);
+					}
+				} else {
+					depth--;
+					final int parent = parents[t];
+					if (parent >= 0) {
+						low[parent] = Math.min(low[parent], low[t]);
+						if (parent != root && low[t] >= discovered[parent]) {
+							articulationPoints[parent] = true;
+						}
+					}
+				}
+			}
+			articulationPoints[root] = (rootChildren > 1);
+		}
+		return articulationPoints;
+	}
+
+	public MapTopology getTopology() {
+		return this.topology;
+	}
+
+	/**
+	 * @return true if distances are read from a matrix rather than searched for
+	 */
+	public boolean hasDistanceMatrix() {
+		return (this.distances != null);
+	}
+
+	/**
+	 * @return the fewest borders to cross from one territory to the other,
+	 * or {@link #UNREACHABLE} if there's no way between them
+	 */
+	public int getDistance(final int fromTerritory, final int toTerritory) {
+		final int distance;
+		if (this.distances != null) {
+			distance = this.distances[(fromTerritory * this.topology.getNumTerritories()) + toTerritory];
+		} else {
+			final int numTerritories = this.topology.getNumTerritories();
+			final int[] row = new int[numTerritories];
+			distancesFrom(fromTerritory, row, new int[numTerritories]);
+			distance = row[toTerritory];
+		}
+		return distance;
+	}
+
+	/**
+	 * @return true if the territory borders another continent
+	 */
+	public boolean isBorder(final int territory) {
+		return this.borders[territory];
+	}
+
+	/**
+	 * @return the number of the continent's territories that border other continents
+	 */
+	public int getNumBorders(final int continent) {
+		return this.continentBorders[continent].length;
+	}
+
+	/**
+	 * @param index 0 to {@link #getNumBorders(int)}-1
+	 * @return the ID of one of the continent's border territories, in ID order;
+	 * holding all of them secures the continent
+	 */
+	public int getBorder(final int continent, final int index) {
+		return this.continentBorders[continent][index];
+	}
+
+	/**
+	 * @return the number of territories outside the continent that it can be attacked from
+	 */
+	public int getNumEntryPoints(final int continent) {
+		return this.continentEntryPoints[continent].length;
+	}
+
+	/**
+	 * @param index 0 to {@link #getNumEntryPoints(int)}-1
+	 * @return the ID of a territory outside the continent that borders it, in ID order
+	 */
+	public int getEntryPoint(final int continent, final int index) {
+		return this.continentEntryPoints[continent][index];
+	}
+
+	/**
+	 * @return the number of other continents the continent borders
+	 */
+	public int getNumAdjacentContinents(final int continent) {
+		return this.adjacentContinents[continent].length;
+	}
+
+	/**
+	 * @param index 0 to {@link #getNumAdjacentContinents(int)}-1
+	 * @return the ID of a continent bordering this one, in ID order
+	 */
+	public int getAdjacentContinent(final int continent, final int index) {
+		return this.adjacentContinents[continent][index];
+	}
+
+	/**
+	 * @return true if losing the territory would cut the map, or its part of it, in two
+	 */
+	public boolean isArticulationPoint(final int territory) {
+		return this.articulationPoints[territory];
+	}
+
+	public int getNumArticulationPoints() {
+		return this.articulationPointList.length;
+	}
+
+	/**
+	 * @param index 0 to {@link #getNumArticulationPoints()}-1
+	 * @return the ID of an articulation point, in ID order
+	 */
+	public int getArticulationPoint(final int index) {
+		return this.articulationPointList[index];
+	}
+}
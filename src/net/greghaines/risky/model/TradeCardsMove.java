@@ -0,0 +1,44 @@
+package net.greghaines.risky.model;
+
+import java.util.Set;
+
+/**
+ * Trades in a set of cards, putting the armies it earns in the player's hand.
+ */
+public class TradeCardsMove implements Move {
+	
+	private final Player player;
+	private final Set<Card> cardSet;
+	private int numArmies = 0;
+	
+	public TradeCardsMove(final Player player, final Set<Card> cardSet) {
+		this.player = player;
+		this.cardSet = cardSet;
+	}
+
+	public Player getPlayer() {
+		return this.player;
+	}
+
+	public Set<Card> getCardSet() {
+		return this.cardSet;
+	}
+
+	@Override
+	public void apply(final GameBoard board) {
+		this.numArmies = board.changeTradeIn(this.player, this.cardSet);
+		board.changeArmiesInHand(this.player, this.player.getNumArmiesInHand() + this.numArmies);
+	}
+
+	/**
+	 * @return the armies earned the last time this move was applied
+	 */
+	public int getNumArmies() {
+		return this.numArmies;
+	}
+	
+	@Override
+	public String toString() {
+		return this.player.getName() + " trades in " + this.cardSet;
+	}
+}
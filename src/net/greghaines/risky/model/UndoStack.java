@@ -0,0 +1,94 @@
+package net.greghaines.risky.model;
+
+import java.util.Arrays;
+
+/**
+ * The undo records of the moves made on a {@link GameBoard}. 
+ * Each record is a single long holding the kind of field changed, the territory or player 
+ * it belongs to and its old value; anything that doesn't fit (traded-in cards) goes on a 
+ * parallel object stack. Nothing is recorded unless a move is being made.
+ */
+final class UndoStack {
+	
+	static final int ARMIES = 1;
+	static final int OWNER = 2;
+	static final int ARMIES_IN_HAND = 3;
+	static final int ELIMINATED = 4;
+	static final int TRADE_IN = 5;
+	
+	private static final int KIND_SHIFT = 60;
+	private static final int ID_SHIFT = 32;
+	private static final int MAX_ID = (1 << (KIND_SHIFT - ID_SHIFT)) - 1;
+	
+	private long[] records = new long[64];
+	private int numRecords = 0;
+	private int[] marks = new int[16];
+	private int numMarks = 0;
+	private Object[] objects = new Object[8];
+	private int numObjects = 0;
+	
+	boolean isRecording() {
+		return (this.numMarks > 0);
+	}
+	
+	int getDepth() {
+		return this.numMarks;
+	}
+	
+	void mark() {
+		if (this.numMarks == this.marks.length) {
+			this.marks = Arrays.copyOf(this.marks, this.marks.length * 2);
+		}
+		this.marks[this.numMarks++] = this.numRecords;
+	}
+	
+	/**
+	 * @return the number of records belonging to the most recent move, which are then forgotten
+	 */
+	int popMark() {
+		if (this.numMarks == 0) {
+			throw new IllegalStateException("There are no moves to undo");
+		}
+		return this.numRecords - this.marks[--this.numMarks];
+	}
+	
+	void push(final int kind, final int id, final int oldValue) {
+		if (id < 0 || id > MAX_ID) {
+			throw new IllegalArgumentException("id must be 0-" + MAX_ID + " (id=" + id + ")");
+		}
+		if (this.numRecords == this.records.length) {
+			this.records = Arrays.copyOf(this.records, this.records.length * 2);
+		}
+		this.records[this.numRecords++] = ((long) kind << KIND_SHIFT) | ((long) id << ID_SHIFT) 
+				| (oldValue & 0xFFFFFFFFL);
+	}
+	
+	void pushObject(final Object obj) {
+		if (this.numObjects == this.objects.length) {
+			this.objects = Arrays.copyOf(this.objects, this.objects.length * 2);
+		}
+		this.objects[this.numObjects++] = obj;
+	}
+	
+	long pop() {
+		return this.records[--this.numRecords];
+	}
+	
+	Object popObject() {
+		final Object obj = this.objects[--this.numObjects];
+		this.objects[this.numObjects] = null;
+		return obj;
+	}
+	
+	static int kind(final long record) {
+		return (int) (record >>> KIND_SHIFT);
+	}
+	
+	static int id(final long record) {
+		return (int) (record >>> ID_SHIFT) & MAX_ID;
+	}
+	
+	static int oldValue(final long record) {
+		return (int) record;
+	}
+}
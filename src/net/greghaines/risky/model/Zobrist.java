@@ -0,0 +1,104 @@
+package net.greghaines.risky.model;
+
+/**
+ * The random keys that Zobrist hashes of game states are made from: a state's hash is the XOR
+ * of the keys of its features, so changing one feature only takes two XORs, one to remove the
+ * old key and one to add the new. Keys are worked out from the feature with a fixed mixing
+ * function rather than drawn into tables, so huge maps need no memory for them and every JVM
+ * gets the same hashes for the same state, e.g. to match up saved games.
+ * Army counts are bucketed: 0 to 3 exactly, then 4-7, 8-15 and so on, so states that only
+ * differ by a few armies on a big stack hash the same.
+ * @author Greg Haines
+ */
+public final class Zobrist {
+
+	private static final int OWNER = 1;
+	private static final int ARMIES = 2;
+	private static final int PLAYER = 3;
+	private static final int PHASE = 4;
+	private static final int HAND = 5;
+	private static final int TRADE_INS = 6;
+	private static final int ARMIES_IN_HAND = 7;
+	private static final int CAPTURE = 8;
+	private static final int BUCKETS_EXACT = 4;
+
+	/**
+	 * @return the key of the territory being held by the owner, 0 for {@link BoardCore#NO_OWNER}
+	 */
+	public static long owner(final int territory, final int owner) {
+		return (owner == BoardCore.NO_OWNER) ? 0L : key(OWNER, territory, owner);
+	}
+
+	/**
+	 * @return the key of the territory's army count, 0 for no armies
+	 */
+	public static long armies(final int territory, final int armies) {
+		return (armies == 0) ? 0L : key(ARMIES, territory, getArmyBucket(armies));
+	}
+
+	/**
+	 * @return 0 to 3 for that many armies, then one more for each doubling
+	 */
+	public static int getArmyBucket(final int armies) {
+		return (armies < BUCKETS_EXACT) ? armies : (BUCKETS_EXACT - 2) + (31 - Integer.numberOfLeadingZeros(armies));
+	}
+
+	/**
+	 * @return the key of it being the player's turn
+	 */
+	public static long player(final int playerID) {
+		return key(PLAYER, playerID, 0);
+	}
+
+	/**
+	 * @param phase a phase or step number of whichever state is being hashed
+	 * @return the key of the game being at that point of the turn
+	 */
+	public static long phase(final int phase) {
+		return key(PHASE, phase, 0);
+	}
+
+	/**
+	 * @param type the ordinal of a {@link Card.CardType}
+	 * @return the key of the player holding that many cards of the type, 0 for none
+	 */
+	public static long hand(final int playerID, final int type, final int count) {
+		return (count == 0) ? 0L : key(HAND, (playerID * Card.CardType.values().length) + type, count);
+	}
+
+	/**
+	 * @return the key of that many card sets having been traded in, 0 for none
+	 */
+	public static long tradeIns(final int numCardSetsTradedIn) {
+		return (numCardSetsTradedIn == 0) ? 0L : key(TRADE_INS, numCardSetsTradedIn, 0);
+	}
+
+	/**
+	 * @return the key of the player having armies left to place, 0 for none
+	 */
+	public static long armiesInHand(final int playerID, final int armies) {
+		return (armies == 0) ? 0L : key(ARMIES_IN_HAND, playerID, armies);
+	}
+
+	/**
+	 * @return the key of armies waiting to move into a just captured territory
+	 */
+	public static long capture(final int fromTerritory, final int toTerritory) {
+		return key(CAPTURE, fromTerritory, toTerritory);
+	}
+
+	/**
+	 * Packs the feature into a long and scrambles it with the SplitMix64 finaliser.
+	 */
+	private static long key(final int kind, final int index, final int value) {
+		long z = ((long) kind << 56) ^ ((long) index << 24) ^ value;
+		z *= 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private Zobrist() {
+		// Utility class
+	}
+}
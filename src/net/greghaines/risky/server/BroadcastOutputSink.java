@@ -0,0 +1,72 @@
+package net.greghaines.risky.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.greghaines.risky.utils.OutputSink;
+
+/**
+ * Shows the game's messages to every player at the table who is still connected. 
+ * Each message is formatted once, however many players see it.
+ * @author Greg Haines
+ */
+public class BroadcastOutputSink implements OutputSink {
+	
+	private final List<ClientConnection> connections;
+
+	/**
+	 * @param connections the players at the table
+	 */
+	public BroadcastOutputSink(final List<? extends ClientConnection> connections) {
+		this.connections = new ArrayList<ClientConnection>(connections);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEnabled() {
+		for (final ClientConnection connection : this.connections) {
+			if (connection.isConnected()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void printf(final String message, final Object... args) {
+		if (isEnabled()) {
+			print(String.format(message, args));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void println(final String message) {
+		if (isEnabled()) {
+			print(message + System.lineSeparator());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush() {
+		for (final ClientConnection connection : this.connections) {
+			connection.flush();
+		}
+	}
+	
+	private void print(final String text) {
+		for (final ClientConnection connection : this.connections) {
+			connection.print(text);
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package net.greghaines.risky.server;
+
+/**
+ * A player's connection to one of the servers, as far as showing them the game goes.
+ * @author Greg Haines
+ */
+public interface ClientConnection {
+
+	/**
+	 * @return false once the player has disconnected or the connection was closed
+	 */
+	boolean isConnected();
+
+	/**
+	 * Writes text as it is, without formatting it. Writes are dropped once the player has gone.
+	 * @param text the text to write
+	 */
+	void print(String text);
+
+	/**
+	 * Sends everything written so far.
+	 */
+	void flush();
+}
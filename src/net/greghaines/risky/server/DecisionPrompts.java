@@ -0,0 +1,202 @@
+package net.greghaines.risky.server;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.greghaines.risky.model.Card;
+import net.greghaines.risky.model.ConsoleDecisionProvider;
+import net.greghaines.risky.model.Decision;
+import net.greghaines.risky.model.Territory;
+
+/**
+ * Puts a pending {@link Decision} to a player as text and reads their answer back, without
+ * blocking for it. The prompts follow {@link ConsoleDecisionProvider}'s, with a menu of
+ * numbered options wherever there's a choice of territories or card sets.
+ * @author Greg Haines
+ */
+final class DecisionPrompts {
+
+	/** Returned by {@link #parse(Decision, String)} for an answer that isn't legal. */
+	static final Object INVALID = new Object();
+	/** Returned by {@link #trivialAnswer(Decision)} if the player has to be asked. */
+	static final Object ASK = new Object();
+
+	private static final String DONE = "done";
+	private static final String NEW_LINE = System.lineSeparator();
+
+	/**
+	 * Menus with nothing to choose are never shown, as at the console:
+	 * an empty optional menu is 'done' and a menu with a single required option picks it.
+	 * @param decision the pending decision
+	 * @return the only possible answer, or {@link #ASK}
+	 */
+	static Object trivialAnswer(final Decision decision) {
+		final int numOptions = numOptions(decision);
+		Object answer = ASK;
+		if (numOptions == 0 && decision.isOptional()) {
+			answer = null;
+		} else if (numOptions == 1 && !decision.isOptional()) {
+			answer = option(decision, 1);
+		}
+		return answer;
+	}
+
+	/**
+	 * @param decision the pending decision
+	 * @return the question to put to the player, ending in a prompt without a line break
+	 */
+	static String prompt(final Decision decision) {
+		final String name = decision.getPlayer().getName();
+		final StringBuilder buf = new StringBuilder(256);
+		switch (decision.getType()) {
+		case OCCUPY:
+			menu(buf, name + ", choose a territory to occupy:", decision);
+			break;
+		case REINFORCE_TERRITORY:
+			menu(buf, name + ", choose an occupied territory to reinforce:", decision);
+			break;
+		case TRADE_CARDS:
+			menu(buf, name + ", select a set to turn in:", decision);
+			break;
+		case ATTACK_FROM:
+			menu(buf, name + ", select a territory from which to attack (type 'done' to end attack phase):", decision);
+			break;
+		case ATTACK_TO:
+			menu(buf, name + ", select a territory to attack (type 'done' to cancel the attack):", decision);
+			break;
+		case FORTIFY_FROM:
+			menu(buf, name + ", select a territory from which to fortify (type 'done' to skip fortification):",
+					decision);
+			break;
+		case FORTIFY_TO:
+			menu(buf, name + ", select a territory to fortify (type 'done' to cancel this fortification action):",
+					decision);
+			break;
+		case REINFORCE_COUNT:
+			range(buf, "Select number of armies to reinforce with", decision);
+			break;
+		case BLITZ:
+			range(buf, String.format("%s, to attack until done, enter the number of armies in %s at which to stop",
+					name, decision.getTerritory().getName()), decision);
+			buf.setLength(buf.length() - 2); // Drop the ": " to add the other choice
+			buf.append(" or '").append(DONE).append("' to roll one attack at a time: ");
+			break;
+		case ATTACK_DICE:
+			range(buf, name + ", how many armies do you wish to attack with?", decision);
+			break;
+		case DEFEND_DICE:
+			range(buf, name + ", how many armies do you wish to defend with?", decision);
+			break;
+		case MOVE_IN:
+			range(buf, String.format("%s, select the number of armies to move from %s to %s", name,
+					decision.getTerritory().getName(), decision.getOtherTerritory().getName()), decision);
+			break;
+		case FORTIFY_COUNT:
+			range(buf, name + ", how many armies do you wish to move?", decision);
+			break;
+		case CONTINUE_ATTACK:
+			buf.append(name).append(", do you wish to continue the attack? (y/n): ");
+			break;
+		default:
+			throw new IllegalStateException("Unknown decision type: " + decision.getType());
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * @param decision the pending decision
+	 * @param line what the player typed
+	 * @return the answer to pass to the session, or {@link #INVALID}
+	 */
+	static Object parse(final Decision decision, final String line) {
+		final String text = line.trim();
+		Object answer = INVALID;
+		if (decision.getType() == Decision.Type.CONTINUE_ATTACK) {
+			if ("y".equalsIgnoreCase(text) || "yes".equalsIgnoreCase(text)) {
+				answer = Boolean.TRUE;
+			} else if ("n".equalsIgnoreCase(text) || "no".equalsIgnoreCase(text)) {
+				answer = Boolean.FALSE;
+			}
+		} else if (decision.isOptional() && DONE.equalsIgnoreCase(text)) {
+			answer = null;
+		} else {
+			try {
+				final int number = Integer.parseInt(text);
+				final int numOptions = numOptions(decision);
+				if (numOptions >= 0) {
+					if (number >= 1 && number <= numOptions) {
+						answer = option(decision, number);
+					}
+				} else if (number >= decision.getMin() && number <= decision.getMax()) {
+					answer = number;
+				}
+			} catch (NumberFormatException nfe) {
+				// Not a number, so not an answer
+			}
+		}
+		return answer;
+	}
+
+	/**
+	 * @return the number of options on the menu, or -1 if the answer is a number or yes/no
+	 */
+	private static int numOptions(final Decision decision) {
+		final int numOptions;
+		if (decision.getTerritoryOptions() != null) {
+			numOptions = decision.getTerritoryOptions().size();
+		} else if (decision.getCardSets() != null) {
+			numOptions = decision.getCardSets().size();
+		} else {
+			numOptions = -1;
+		}
+		return numOptions;
+	}
+
+	/**
+	 * @param number 1 to the number of options, in menu order
+	 */
+	private static Object option(final Decision decision, final int number) {
+		final Object option;
+		if (decision.getTerritoryOptions() != null) {
+			final Iterator<Territory> iter = decision.getTerritoryOptions().values().iterator();
+			for (int i = 1; i < number; i++) {
+				iter.next();
+			}
+			option = iter.next();
+		} else {
+			option = decision.getCardSets().get(number - 1);
+		}
+		return option;
+	}
+
+	private static void menu(final StringBuilder buf, final String prompt, final Decision decision) {
+		buf.append(prompt).append(NEW_LINE);
+		int number = 1;
+		final Map<String,Territory> territories = decision.getTerritoryOptions();
+		if (territories != null) {
+			for (final String name : territories.keySet()) {
+				buf.append('\t').append(number++).append(") ").append(name).append(NEW_LINE);
+			}
+		} else {
+			final List<Set<Card>> cardSets = decision.getCardSets();
+			for (final Set<Card> cardSet : cardSets) {
+				buf.append('\t').append(number++).append(") ").append(cardSet).append(NEW_LINE);
+			}
+		}
+		buf.append("Select (1-").append(number - 1).append(')');
+		if (decision.isOptional()) {
+			buf.append(" or '").append(DONE).append("' to cancel");
+		}
+		buf.append(": ");
+	}
+
+	private static void range(final StringBuilder buf, final String prompt, final Decision decision) {
+		buf.append(prompt).append(" (").append(decision.getMin()).append('-').append(decision.getMax()).append("): ");
+	}
+
+	private DecisionPrompts() {
+		// Utility class
+	}
+}
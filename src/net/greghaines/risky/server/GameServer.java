@@ -0,0 +1,218 @@
+package net.greghaines.risky.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.greghaines.risky.model.GameSession;
+import net.greghaines.risky.model.Player;
+import net.greghaines.risky.model.RandomDecisionProvider;
+import net.greghaines.risky.utils.OutputSink;
+
+/**
+ * Hosts Risk(y) games over TCP, a line of text at a time, so players can join with telnet or netcat.
+ * Players wait in a lobby until there are enough of them for a table, then the table's game runs on
+ * a thread of its own. Each player's connection is bound as the terminal while they're asked for a
+ * decision, so the prompts are the same as at the console. Only a game in progress or a player
+ * giving their name holds a thread; players waiting in the lobby or for their turn don't.
+ * @author Greg Haines
+ */
+public class GameServer implements Closeable {
+
+	public static final int DEFAULT_PORT = 4711;
+
+	private final ServerSocket serverSocket;
+	private final int playersPerGame;
+	private final ExecutorService executor;
+	private final Set<PlayerConnection> connections =
+			Collections.newSetFromMap(new ConcurrentHashMap<PlayerConnection,Boolean>());
+	private final List<PlayerConnection> lobby = new ArrayList<PlayerConnection>(GameSession.MAX_PLAYERS);
+	private final AtomicInteger numGamesInProgress = new AtomicInteger();
+	private final AtomicInteger numGamesPlayed = new AtomicInteger();
+	private volatile boolean connectedFortify = false;
+
+	/**
+	 * @param port the port to listen on, or 0 for any free port
+	 * @param playersPerGame how many players sit at each table
+	 * @throws IOException if the port can't be listened on
+	 */
+	public GameServer(final int port, final int playersPerGame) throws IOException {
+		if (playersPerGame < GameSession.MIN_PLAYERS || playersPerGame > GameSession.MAX_PLAYERS) {
+			throw new IllegalArgumentException("A game needs " + GameSession.MIN_PLAYERS + "-" +
+					GameSession.MAX_PLAYERS + " players (playersPerGame=" + playersPerGame + ")");
+		}
+		this.serverSocket = new ServerSocket();
+		this.serverSocket.setReuseAddress(true);
+		this.serverSocket.bind(new InetSocketAddress(port), 1024);
+		this.playersPerGame = playersPerGame;
+		final AtomicInteger threadNum = new AtomicInteger();
+		// Threads come and go with the games, so a cached pool never holds more than it needs
+		this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "risky-server-" + threadNum.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * @return the port being listened on
+	 */
+	public int getPort() {
+		return this.serverSocket.getLocalPort();
+	}
+
+	public int getNumConnections() {
+		return this.connections.size();
+	}
+
+	public int getNumGamesInProgress() {
+		return this.numGamesInProgress.get();
+	}
+
+	public int getNumGamesPlayed() {
+		return this.numGamesPlayed.get();
+	}
+
+	/**
+	 * Plays the tables that fill from now on with the connected fortify house rule, or without it.
+	 * @see GameSession#setConnectedFortify(boolean)
+	 */
+	public void setConnectedFortify(final boolean connectedFortify) {
+		this.connectedFortify = connectedFortify;
+	}
+
+	/**
+	 * Accepts players until the server is closed.
+	 */
+	public void serve() {
+		while (!this.serverSocket.isClosed()) {
+			try {
+				final Socket socket = this.serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				this.executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						greet(socket);
+					}
+				});
+			} catch (IOException ioe) {
+				if (!this.serverSocket.isClosed()) {
+					System.err.println("Could not accept a player: " + ioe);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting players and hangs up on everyone, which ends the games in progress.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.serverSocket.close();
+		this.executor.shutdown();
+		for (final PlayerConnection connection : this.connections) {
+			connection.close();
+		}
+	}
+
+	private void greet(final Socket socket) {
+		final PlayerConnection connection;
+		try {
+			connection = new PlayerConnection(socket);
+		} catch (IOException ioe) {
+			try {
+				socket.close();
+			} catch (IOException ioe2) {
+				// Nothing more to do
+			}
+			return;
+		}
+		this.connections.add(connection);
+		try {
+			connection.println("===== RISK(y) =====");
+			final String name = connection.readLine("What is your name? ").trim();
+			connection.setName(name.isEmpty() ? "Player " + socket.getPort() : name);
+			join(connection);
+		} catch (IllegalStateException ise) {
+			this.connections.remove(connection); // Left before joining a table
+		}
+	}
+
+	private void join(final PlayerConnection connection) {
+		List<PlayerConnection> table = null;
+		synchronized (this.lobby) {
+			this.lobby.add(connection);
+			if (this.lobby.size() == this.playersPerGame) {
+				table = new ArrayList<PlayerConnection>(this.lobby);
+				this.lobby.clear();
+			} else {
+				connection.printf("Welcome, %s! Waiting for %d more player(s)...%n", 
+						connection.getName(), this.playersPerGame - this.lobby.size());
+				connection.flush();
+			}
+		}
+		if (table != null) {
+			playGame(table); // On this thread, which is done with greeting
+		}
+	}
+
+	private void playGame(final List<PlayerConnection> table) {
+		this.numGamesInProgress.incrementAndGet();
+		final Random random = new Random();
+		final OutputSink out = new BroadcastOutputSink(table);
+		final List<Player> players = new ArrayList<Player>(table.size());
+		final List<String> names = new ArrayList<String>(table.size());
+		for (int i = 0; i < table.size(); i++) {
+			final PlayerConnection connection = table.get(i);
+			players.add(new Player(i + 1, connection.getName(), 
+					new RemoteDecisionProvider(connection, new RandomDecisionProvider(random), out)));
+			names.add(connection.getName());
+		}
+		try {
+			out.printf("Starting a game for %s%n", names);
+			final GameSession session = new GameSession(players, out, random);
+			session.setConnectedFortify(this.connectedFortify);
+			session.play();
+		} catch (RuntimeException re) {
+			out.println("The game has ended unexpectedly: " + re);
+		} finally {
+			for (final PlayerConnection connection : table) {
+				connection.close();
+				this.connections.remove(connection);
+			}
+			this.numGamesInProgress.decrementAndGet();
+			this.numGamesPlayed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Runs a game server until the process is killed.
+	 * @param args optionally, the port to listen on, the number of players at each table 
+	 * and true to play the connected fortify house rule
+	 * @throws IOException if the port can't be listened on
+	 */
+	public static void main(final String... args) throws IOException {
+		final int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		final int playersPerGame = (args.length > 1) ? Integer.parseInt(args[1]) : GameSession.MIN_PLAYERS;
+		final GameServer server = new GameServer(port, playersPerGame);
+		server.setConnectedFortify((args.length > 2) && Boolean.parseBoolean(args[2]));
+		System.out.printf("Risk(y) server listening on port %d, %d players per game%n", 
+				server.getPort(), playersPerGame);
+		server.serve();
+	}
+}
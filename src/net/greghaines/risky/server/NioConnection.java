@@ -0,0 +1,238 @@
+package net.greghaines.risky.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.greghaines.risky.model.Player;
+
+/**
+ * A player's socket in the {@link NioGameServer}, owned by one event loop. Input is split into lines
+ * as it arrives; output is buffered until {@link #flush()}, then written as far as the socket will take
+ * it, with the rest sent when the socket is writable again. Buffers are only held while there's a
+ * partial line or unsent output, so an idle player costs little more than the socket. 
+ * A connection that fails a write stops talking to the player and waits for its event loop to close 
+ * it, so the loop can take it out of the lobby or tell its table.
+ * @author Greg Haines
+ */
+final class NioConnection implements ClientConnection {
+
+	/** Longer lines than this are someone misbehaving, so they're hung up on. */
+	static final int MAX_LINE_LENGTH = 1024;
+	/** A player who lets this much output pile up unread is hung up on. */
+	static final int MAX_UNSENT_BYTES = 1 << 20;
+
+	enum State {
+		/** Asked for their name. */
+		NAMING,
+		/** In the lobby, waiting for a table. */
+		WAITING,
+		/** Seated at a table. */
+		PLAYING,
+		/** Gone. */
+		CLOSED;
+	}
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int INITIAL_LINE_LENGTH = 32;
+
+	private final SocketChannel channel;
+	private final SelectionKey key;
+	private final AtomicInteger numConnections;
+	private final Queue<NioConnection> failures;
+	private State state = State.NAMING;
+	private String name = null;
+	private NioTable table = null;
+	private Player player = null;
+	private byte[] line = null;
+	private int lineLength = 0;
+	private StringBuilder unflushed = null;
+	private ByteBuffer unsent = null;
+	private boolean failed = false;
+
+	/**
+	 * @param numConnections counts the open connections, this one included until it's closed
+	 * @param failures where the connection puts itself if a write fails, for the event loop to close it
+	 */
+	NioConnection(final SocketChannel channel, final SelectionKey key, final AtomicInteger numConnections, 
+			final Queue<NioConnection> failures) {
+		this.channel = channel;
+		this.key = key;
+		this.numConnections = numConnections;
+		this.failures = failures;
+		numConnections.incrementAndGet();
+	}
+
+	State getState() {
+		return this.state;
+	}
+
+	String getName() {
+		return this.name;
+	}
+
+	void setName(final String name) {
+		this.name = name;
+		this.state = State.WAITING;
+	}
+
+	NioTable getTable() {
+		return this.table;
+	}
+
+	Player getPlayer() {
+		return this.player;
+	}
+
+	void seat(final NioTable table, final Player player) {
+		this.table = table;
+		this.player = player;
+		this.state = State.PLAYING;
+	}
+
+	/**
+	 * Reads whatever has arrived and hands back the first complete line, keeping any partial line.
+	 * Call it again, with the same buffer, until it returns null.
+	 * @param buf the bytes read from the socket, ready to get
+	 * @return the next complete line, or null when the buffer has been used up
+	 * @throws IOException if the line is too long
+	 */
+	String nextLine(final ByteBuffer buf) throws IOException {
+		String result = null;
+		while (result == null && buf.hasRemaining()) {
+			final byte b = buf.get();
+			if (b == '\n') {
+				int length = this.lineLength;
+				if (length > 0 && this.line[length - 1] == '\r') {
+					length--;
+				}
+				result = (length == 0) ? "" : new String(this.line, 0, length, UTF_8);
+				this.lineLength = 0;
+				if (this.line != null && this.line.length > INITIAL_LINE_LENGTH) {
+					this.line = null; // Don't hang on to a big buffer between answers
+				}
+			} else {
+				if (this.line == null) {
+					this.line = new byte[INITIAL_LINE_LENGTH];
+				} else if (this.lineLength == this.line.length) {
+					if (this.lineLength == MAX_LINE_LENGTH) {
+						throw new IOException("Line too long from " + this);
+					}
+					this.line = Arrays.copyOf(this.line, Math.min(MAX_LINE_LENGTH, this.lineLength * 2));
+				}
+				this.line[this.lineLength++] = b;
+			}
+		}
+		if (this.lineLength == 0 && this.line != null && !buf.hasRemaining()) {
+			this.line = null;
+		}
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isConnected() {
+		return (this.state != State.CLOSED && !this.failed);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void print(final String text) {
+		if (isConnected()) {
+			if (this.unflushed == null) {
+				this.unflushed = new StringBuilder(Math.max(256, text.length()));
+			}
+			this.unflushed.append(text);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush() {
+		if (isConnected() && this.unflushed != null) {
+			final byte[] bytes = this.unflushed.toString().getBytes(UTF_8);
+			this.unflushed = null;
+			if (this.unsent == null) {
+				this.unsent = ByteBuffer.wrap(bytes);
+			} else if (this.unsent.remaining() + bytes.length > MAX_UNSENT_BYTES) {
+				fail();
+				return;
+			} else {
+				final ByteBuffer joined = ByteBuffer.allocate(this.unsent.remaining() + bytes.length);
+				joined.put(this.unsent).put(bytes).flip();
+				this.unsent = joined;
+			}
+			write();
+		}
+	}
+
+	/**
+	 * Sends as much of the unsent output as the socket will take. Does nothing if it has all 
+	 * been sent already, e.g. by a flush since the socket was selected as writable.
+	 */
+	void write() {
+		if (this.unsent != null) {
+			try {
+				while (this.unsent.hasRemaining() && this.channel.write(this.unsent) > 0) {
+					// Keep writing until the socket's buffer is full
+				}
+				if (this.unsent.hasRemaining()) {
+					this.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				} else {
+					this.unsent = null;
+					this.key.interestOps(SelectionKey.OP_READ);
+				}
+			} catch (IOException ioe) {
+				fail();
+			}
+		}
+	}
+
+	/**
+	 * Stops talking to the player, and leaves hanging up to the event loop.
+	 */
+	private void fail() {
+		if (isConnected()) {
+			this.failed = true;
+			this.unflushed = null;
+			this.unsent = null;
+			this.key.cancel();
+			this.failures.add(this);
+		}
+	}
+
+	/**
+	 * Hangs up, dropping anything unsent. Closing twice does nothing.
+	 */
+	void close() {
+		if (this.state != State.CLOSED) {
+			this.state = State.CLOSED;
+			this.numConnections.decrementAndGet();
+			this.unflushed = null;
+			this.unsent = null;
+			this.line = null;
+			this.key.cancel();
+			try {
+				this.channel.close();
+			} catch (IOException ioe) {
+				// The player is gone either way
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return (this.name == null) ? "?" : this.name;
+	}
+}
@@ -0,0 +1,338 @@
+package net.greghaines.risky.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.greghaines.risky.model.GameSession;
+
+/**
+ * Hosts Risk(y) games over TCP like {@link GameServer}, but multiplexes every player over a few
+ * event loops instead of giving each game a thread. Each game is a {@link NioTable} driving its
+ * {@link GameSession} a decision at a time, so a game waiting on a player is only state. Players
+ * are dealt out to the loops as they connect, and each loop seats its own players at tables, so
+ * a game never has to cross threads.
+ * @author Greg Haines
+ */
+public class NioGameServer implements Closeable {
+
+	private static final int READ_BUFFER_SIZE = 16 * 1024;
+	private static final int ACCEPT_BACKLOG = 4096;
+
+	private final ServerSocketChannel serverChannel;
+	private final int playersPerGame;
+	private final EventLoop[] loops;
+	private final AtomicInteger numConnections = new AtomicInteger();
+	private final AtomicInteger numGamesInProgress = new AtomicInteger();
+	private final AtomicInteger numGamesPlayed = new AtomicInteger();
+	private volatile boolean closed = false;
+	private volatile boolean connectedFortify = false;
+	private int nextLoop = 0;
+
+	/**
+	 * @param port the port to listen on, or 0 for any free port
+	 * @param playersPerGame how many players sit at each table
+	 * @param numLoops how many event loop threads to run
+	 * @throws IOException if the port can't be listened on
+	 */
+	public NioGameServer(final int port, final int playersPerGame, final int numLoops) throws IOException {
+		if (playersPerGame < GameSession.MIN_PLAYERS || playersPerGame > GameSession.MAX_PLAYERS) {
+			throw new IllegalArgumentException("A game needs " + GameSession.MIN_PLAYERS + "-" +
+					GameSession.MAX_PLAYERS + " players (playersPerGame=" + playersPerGame + ")");
+		}
+		if (numLoops < 1) {
+			throw new IllegalArgumentException("numLoops must be positive: " + numLoops);
+		}
+		this.playersPerGame = playersPerGame;
+		this.loops = new EventLoop[numLoops];
+		for (int i = 0; i < numLoops; i++) {
+			this.loops[i] = new EventLoop();
+		}
+		this.serverChannel = ServerSocketChannel.open();
+		this.serverChannel.socket().setReuseAddress(true);
+		this.serverChannel.socket().bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+		this.serverChannel.configureBlocking(false);
+		this.serverChannel.register(this.loops[0].selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * @return the port being listened on
+	 */
+	public int getPort() {
+		return this.serverChannel.socket().getLocalPort();
+	}
+
+	public int getNumConnections() {
+		return this.numConnections.get();
+	}
+
+	public int getNumGamesInProgress() {
+		return this.numGamesInProgress.get();
+	}
+
+	public int getNumGamesPlayed() {
+		return this.numGamesPlayed.get();
+	}
+
+	/**
+	 * Plays the tables that fill from now on with the connected fortify house rule, or without it.
+	 * @see GameSession#setConnectedFortify(boolean)
+	 */
+	public void setConnectedFortify(final boolean connectedFortify) {
+		this.connectedFortify = connectedFortify;
+	}
+
+	/**
+	 * Starts the event loops on threads of their own.
+	 */
+	public void start() {
+		for (int i = 0; i < this.loops.length; i++) {
+			new Thread(this.loops[i], "risky-nio-" + (i + 1)).start();
+		}
+	}
+
+	/**
+	 * Stops accepting players and hangs up on everyone, which ends the games in progress.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.closed = true;
+		this.serverChannel.close();
+		for (final EventLoop loop : this.loops) {
+			loop.selector.wakeup();
+		}
+	}
+
+	/**
+	 * Accepts every pending connection and deals them out to the loops. Only called by the first loop.
+	 */
+	private void accept() {
+		SocketChannel channel;
+		try {
+			while ((channel = this.serverChannel.accept()) != null) {
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				final EventLoop loop = this.loops[this.nextLoop];
+				this.nextLoop = (this.nextLoop + 1) % this.loops.length;
+				loop.newChannels.add(channel);
+				if (loop != this.loops[0]) {
+					loop.selector.wakeup();
+				}
+			}
+		} catch (IOException ioe) {
+			if (!this.closed) {
+				System.err.println("Could not accept a player: " + ioe);
+			}
+		}
+	}
+
+	private class EventLoop implements Runnable {
+
+		private final Selector selector;
+		private final Queue<SocketChannel> newChannels = new ConcurrentLinkedQueue<SocketChannel>();
+		private final List<NioConnection> lobby = new ArrayList<NioConnection>(GameSession.MAX_PLAYERS);
+		private final Queue<NioConnection> failures = new ArrayDeque<NioConnection>();
+		private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+		private final Random random = new Random();
+
+		private EventLoop() throws IOException {
+			this.selector = Selector.open();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!NioGameServer.this.closed) {
+					this.selector.select();
+					registerNewChannels();
+					final Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						final SelectionKey key = keys.next();
+						keys.remove();
+						if (!key.isValid()) {
+							continue;
+						}
+						if (key.isAcceptable()) {
+							accept();
+							registerNewChannels(); // The ones dealt to this loop
+						} else {
+							handle(key);
+						}
+					}
+					closeFailures();
+				}
+			} catch (IOException ioe) {
+				System.err.println("Event loop failed: " + ioe);
+			} finally {
+				for (final SelectionKey key : this.selector.keys()) {
+					if (key.attachment() instanceof NioConnection) {
+						close((NioConnection) key.attachment());
+					}
+				}
+				closeFailures();
+				try {
+					this.selector.close();
+				} catch (IOException ioe) {
+					// Shutting down anyway
+				}
+			}
+		}
+
+		/**
+		 * Serves a player's key. A bug in one connection or table hangs up on that player 
+		 * rather than letting the exception take down the loop and every game on it.
+		 */
+		private void handle(final SelectionKey key) {
+			final NioConnection connection = (NioConnection) key.attachment();
+			try {
+				if (key.isWritable()) {
+					connection.write();
+				}
+				if (key.isValid() && key.isReadable()) {
+					read(connection, (SocketChannel) key.channel());
+				}
+			} catch (RuntimeException re) {
+				System.err.println("Hanging up on " + connection + " after an error: " + re);
+				close(connection);
+			}
+		}
+
+		private void registerNewChannels() {
+			SocketChannel channel;
+			while ((channel = this.newChannels.poll()) != null) {
+				try {
+					final SelectionKey key = channel.register(this.selector, SelectionKey.OP_READ);
+					final NioConnection connection = new NioConnection(channel, key, 
+							NioGameServer.this.numConnections, this.failures);
+					key.attach(connection);
+					connection.print("===== RISK(y) =====" + System.lineSeparator() + "What is your name? ");
+					connection.flush();
+				} catch (IOException ioe) {
+					try {
+						channel.close();
+					} catch (IOException ioe2) {
+						// Nothing more to do
+					}
+				}
+			}
+		}
+
+		private void read(final NioConnection connection, final SocketChannel channel) {
+			try {
+				this.readBuffer.clear();
+				final int numRead = channel.read(this.readBuffer);
+				if (numRead < 0) {
+					close(connection);
+				} else {
+					this.readBuffer.flip();
+					String line;
+					while (connection.isConnected() && (line = connection.nextLine(this.readBuffer)) != null) {
+						handleLine(connection, line);
+					}
+				}
+			} catch (IOException ioe) {
+				close(connection);
+			}
+		}
+
+		private void handleLine(final NioConnection connection, final String line) {
+			switch (connection.getState()) {
+			case NAMING:
+				final String name = line.trim();
+				connection.setName(name.isEmpty() ? "Player " + NioGameServer.this.numConnections.get() : name);
+				join(connection);
+				break;
+			case WAITING:
+				connection.print("Still waiting for more players..." + System.lineSeparator());
+				connection.flush();
+				break;
+			case PLAYING:
+				final NioTable table = connection.getTable();
+				table.answer(connection, line);
+				if (table.isOver()) {
+					gameOver();
+				}
+				break;
+			default:
+				break; // Closed
+			}
+		}
+
+		private void join(final NioConnection connection) {
+			this.lobby.add(connection);
+			if (this.lobby.size() < NioGameServer.this.playersPerGame) {
+				connection.print(String.format("Welcome, %s! Waiting for %d more player(s)...%n",
+						connection.getName(), NioGameServer.this.playersPerGame - this.lobby.size()));
+				connection.flush();
+			} else {
+				final NioTable table = new NioTable(this.lobby, this.random, NioGameServer.this.connectedFortify);
+				this.lobby.clear();
+				NioGameServer.this.numGamesInProgress.incrementAndGet();
+				table.start();
+				if (table.isOver()) {
+					gameOver();
+				}
+			}
+		}
+
+		private void close(final NioConnection connection) {
+			final NioConnection.State state = connection.getState();
+			if (state != NioConnection.State.CLOSED) {
+				connection.close();
+				if (state == NioConnection.State.WAITING) {
+					this.lobby.remove(connection);
+				} else if (state == NioConnection.State.PLAYING) {
+					connection.getTable().disconnected(connection);
+					if (connection.getTable().isOver()) {
+						gameOver();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Closes the connections that failed a write, which can make more of them fail.
+		 */
+		private void closeFailures() {
+			NioConnection connection;
+			while ((connection = this.failures.poll()) != null) {
+				close(connection);
+			}
+		}
+
+		private void gameOver() {
+			NioGameServer.this.numGamesInProgress.decrementAndGet();
+			NioGameServer.this.numGamesPlayed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Runs a game server until the process is killed.
+	 * @param args optionally, the port to listen on, the number of players at each table, 
+	 * the number of event loops and true to play the connected fortify house rule
+	 * @throws IOException if the port can't be listened on
+	 */
+	public static void main(final String... args) throws IOException {
+		final int port = (args.length > 0) ? Integer.parseInt(args[0]) : GameServer.DEFAULT_PORT;
+		final int playersPerGame = (args.length > 1) ? Integer.parseInt(args[1]) : GameSession.MIN_PLAYERS;
+		final int numLoops = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		final NioGameServer server = new NioGameServer(port, playersPerGame, numLoops);
+		server.setConnectedFortify((args.length > 3) && Boolean.parseBoolean(args[3]));
+		server.start();
+		System.out.printf("Risk(y) NIO server listening on port %d, %d players per game, %d event loops%n",
+				server.getPort(), playersPerGame, numLoops);
+	}
+}
@@ -0,0 +1,145 @@
+package net.greghaines.risky.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.greghaines.risky.model.Decision;
+import net.greghaines.risky.model.GameSession;
+import net.greghaines.risky.model.Player;
+import net.greghaines.risky.model.RandomDecisionProvider;
+
+/**
+ * One game in the {@link NioGameServer}, driven a decision at a time by its event loop. Between a
+ * prompt and the player's answer the table is nothing but the session's state and its pending
+ * {@link Decision}, so no thread waits on it. Players who disconnect are played by their
+ * {@link RandomDecisionProvider}; once nobody is left to watch, the game is abandoned.
+ * @author Greg Haines
+ */
+final class NioTable {
+
+	private final List<NioConnection> connections;
+	private final BroadcastOutputSink out;
+	private final GameSession session;
+	private boolean over = false;
+
+	/**
+	 * @param connectedFortify true to play the connected fortify house rule
+	 */
+	NioTable(final List<NioConnection> connections, final Random random, final boolean connectedFortify) {
+		this.connections = new ArrayList<NioConnection>(connections);
+		this.out = new BroadcastOutputSink(connections);
+		final List<Player> players = new ArrayList<Player>(connections.size());
+		final List<String> names = new ArrayList<String>(connections.size());
+		for (int i = 0; i < connections.size(); i++) {
+			final NioConnection connection = connections.get(i);
+			final Player player = new Player(i + 1, connection.getName(), new RandomDecisionProvider(random));
+			connection.seat(this, player);
+			players.add(player);
+			names.add(connection.getName());
+		}
+		this.session = new GameSession(players, this.out, random);
+		this.session.setConnectedFortify(connectedFortify);
+		this.out.printf("Starting a game for %s%n", names);
+	}
+
+	/**
+	 * @return true once the game is over or abandoned
+	 */
+	boolean isOver() {
+		return this.over;
+	}
+
+	/**
+	 * Plays up to the first decision a connected player has to make.
+	 */
+	void start() {
+		try {
+			advance(this.session.start());
+		} catch (RuntimeException re) {
+			abort(re);
+		}
+	}
+
+	/**
+	 * Takes a player's answer to the pending decision.
+	 * @param connection the player
+	 * @param line what they typed
+	 */
+	void answer(final NioConnection connection, final String line) {
+		final Decision decision = this.session.getPendingDecision();
+		if (decision == null || decision.getPlayer() != connection.getPlayer()) {
+			connection.print("Please wait for your turn to decide..." + System.lineSeparator());
+			connection.flush();
+		} else {
+			final Object answer = DecisionPrompts.parse(decision, line);
+			if (answer == DecisionPrompts.INVALID) {
+				connection.print("Please enter one of the choices shown..." + System.lineSeparator());
+				connection.print(DecisionPrompts.prompt(decision));
+				connection.flush();
+			} else {
+				try {
+					advance(this.session.decide(answer));
+				} catch (RuntimeException re) {
+					abort(re);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lets the rest of the table know a player has gone, and decides for them if it was their turn.
+	 * @param connection the player, already closed
+	 */
+	void disconnected(final NioConnection connection) {
+		if (!this.over) {
+			this.out.printf("%s has disconnected; the computer will play on for them.%n", connection.getName());
+			final Decision decision = this.session.getPendingDecision();
+			try {
+				advance((decision != null && decision.getPlayer() == connection.getPlayer()) ? decision : null);
+			} catch (RuntimeException re) {
+				abort(re);
+			}
+		}
+	}
+
+	/**
+	 * Answers decisions that need no player, or whose player has gone, until a connected player has
+	 * to be asked. Then the question goes to them and everyone sees what has happened so far.
+	 */
+	private void advance(final Decision first) {
+		Decision decision = first;
+		boolean waiting = false;
+		while (decision != null && !waiting && this.out.isEnabled()) {
+			final Object trivialAnswer = DecisionPrompts.trivialAnswer(decision);
+			final NioConnection connection = this.connections.get(decision.getPlayer().getPlayerID() - 1);
+			if (trivialAnswer != DecisionPrompts.ASK) {
+				decision = this.session.decide(trivialAnswer);
+			} else if (!connection.isConnected()) {
+				decision = this.session.decide(decision.ask(this.session));
+			} else {
+				connection.print(DecisionPrompts.prompt(decision));
+				this.out.flush();
+				waiting = connection.isConnected(); // Writing can find out they've gone
+			}
+		}
+		if (this.session.getPendingDecision() == null || !this.out.isEnabled()) {
+			finish();
+		}
+	}
+
+	private void abort(final RuntimeException re) {
+		this.out.println("The game has ended unexpectedly: " + re);
+		finish();
+	}
+
+	private void finish() {
+		if (!this.over) {
+			this.over = true;
+			this.out.flush();
+			for (final NioConnection connection : this.connections) {
+				connection.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package net.greghaines.risky.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.Charset;
+
+import net.greghaines.risky.utils.IOUtils;
+import net.greghaines.risky.utils.OutputSink;
+
+/**
+ * A player connected to a {@link GameServer}, answering one line at a time. 
+ * Everything written to the connection is buffered until the player is asked a question 
+ * or the game flushes. Once the player has gone away, writes are dropped.
+ * @author Greg Haines
+ */
+public class PlayerConnection implements ClientConnection, OutputSink, Closeable {
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	private final Socket socket;
+	private final BufferedReader reader;
+	private final PrintWriter writer;
+	private volatile boolean connected = true;
+	private String name = null;
+
+	/**
+	 * @param socket the player's connection
+	 * @throws IOException if the socket's streams can't be opened
+	 */
+	public PlayerConnection(final Socket socket) throws IOException {
+		this.socket = socket;
+		this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+		this.writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), UTF_8)), false);
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public void setName(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isConnected() {
+		return this.connected;
+	}
+
+	/**
+	 * Makes this connection the terminal for the current thread, so the prompts in 
+	 * {@link IOUtils} talk to this player.
+	 * @see IOUtils#unbindTerminal()
+	 */
+	public void bind() {
+		IOUtils.bindTerminal(this.reader, this.writer);
+	}
+
+	/**
+	 * Asks the player a question.
+	 * @param prompt a printf-style formatted prompt
+	 * @param args optional arguments for the formatted prompt
+	 * @return the player's answer
+	 * @throws IllegalStateException if the player has disconnected
+	 */
+	public String readLine(final String prompt, final Object... args) {
+		bind();
+		try {
+			return IOUtils.readLine(prompt, args);
+		} catch (IllegalStateException ise) {
+			close();
+			throw ise;
+		} finally {
+			IOUtils.unbindTerminal();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void print(final String text) {
+		if (this.connected) {
+			this.writer.print(text);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEnabled() {
+		return this.connected;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void printf(final String message, final Object... args) {
+		if (this.connected) {
+			this.writer.printf(message, args);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void println(final String message) {
+		if (this.connected) {
+			this.writer.println(message);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush() {
+		if (this.connected) {
+			this.writer.flush();
+		}
+	}
+
+	/**
+	 * Sends whatever is still buffered and hangs up. Closing twice does nothing.
+	 */
+	@Override
+	public void close() {
+		if (this.connected) {
+			this.writer.flush();
+			this.connected = false;
+			try {
+				this.socket.close();
+			} catch (IOException ioe) {
+				// The player is gone either way
+			}
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return ((this.name == null) ? "?" : this.name) + "@" + this.socket.getRemoteSocketAddress();
+	}
+}
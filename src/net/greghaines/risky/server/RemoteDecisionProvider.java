@@ -0,0 +1,223 @@
+package net.greghaines.risky.server;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.greghaines.risky.model.Card;
+import net.greghaines.risky.model.ConsoleDecisionProvider;
+import net.greghaines.risky.model.DecisionProvider;
+import net.greghaines.risky.model.GameSession;
+import net.greghaines.risky.model.Player;
+import net.greghaines.risky.model.Territory;
+import net.greghaines.risky.utils.IOUtils;
+import net.greghaines.risky.utils.OutputSink;
+
+/**
+ * Asks a player on a {@link PlayerConnection} for every decision, with the same prompts as 
+ * {@link ConsoleDecisionProvider}. If the player disconnects, the fallback decides for them 
+ * from then on so the rest of the table can finish the game.
+ * @author Greg Haines
+ */
+public class RemoteDecisionProvider implements DecisionProvider {
+	
+	private final DecisionProvider console = new ConsoleDecisionProvider();
+	private final PlayerConnection connection;
+	private final DecisionProvider fallback;
+	private final OutputSink table;
+
+	/**
+	 * @param connection the player's connection
+	 * @param fallback decides for the player once they've disconnected
+	 * @param table where to announce that the player has gone
+	 */
+	public RemoteDecisionProvider(final PlayerConnection connection, final DecisionProvider fallback, 
+			final OutputSink table) {
+		this.connection = connection;
+		this.fallback = fallback;
+		this.table = table;
+	}
+
+	@Override
+	public Territory chooseTerritoryToOccupy(final GameSession session, final Player player, 
+			final Map<String,Territory> freeTerritories) {
+		return decide(player, new Choice<Territory>() {
+			@Override
+			public Territory choose(final DecisionProvider provider) {
+				return provider.chooseTerritoryToOccupy(session, player, freeTerritories);
+			}
+		});
+	}
+
+	@Override
+	public Territory chooseTerritoryToReinforce(final GameSession session, final Player player, 
+			final Map<String,Territory> occupiedTerritories) {
+		return decide(player, new Choice<Territory>() {
+			@Override
+			public Territory choose(final DecisionProvider provider) {
+				return provider.chooseTerritoryToReinforce(session, player, occupiedTerritories);
+			}
+		});
+	}
+
+	@Override
+	public int chooseNumReinforcements(final GameSession session, final Player player, 
+			final Territory territory, final int max) {
+		return decide(player, new Choice<Integer>() {
+			@Override
+			public Integer choose(final DecisionProvider provider) {
+				return provider.chooseNumReinforcements(session, player, territory, max);
+			}
+		});
+	}
+
+	@Override
+	public Set<Card> chooseCardSet(final GameSession session, final Player player, 
+			final List<Set<Card>> cardSets, final boolean mandatory) {
+		return decide(player, new Choice<Set<Card>>() {
+			@Override
+			public Set<Card> choose(final DecisionProvider provider) {
+				return provider.chooseCardSet(session, player, cardSets, mandatory);
+			}
+		});
+	}
+
+	@Override
+	public Territory chooseAttackingTerritory(final GameSession session, final Player player, 
+			final Map<String,Territory> usableTerritories) {
+		return decide(player, new Choice<Territory>() {
+			@Override
+			public Territory choose(final DecisionProvider provider) {
+				return provider.chooseAttackingTerritory(session, player, usableTerritories);
+			}
+		});
+	}
+
+	@Override
+	public Territory chooseDefendingTerritory(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Map<String,Territory> attackableTerritories) {
+		return decide(player, new Choice<Territory>() {
+			@Override
+			public Territory choose(final DecisionProvider provider) {
+				return provider.chooseDefendingTerritory(session, player, attackingTerritory, attackableTerritories);
+			}
+		});
+	}
+
+	@Override
+	public Integer chooseBlitzThreshold(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory) {
+		return decide(player, new Choice<Integer>() {
+			@Override
+			public Integer choose(final DecisionProvider provider) {
+				return provider.chooseBlitzThreshold(session, player, attackingTerritory, defendingTerritory);
+			}
+		});
+	}
+
+	@Override
+	public int chooseNumAttackingArmies(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory, final int max) {
+		return decide(player, new Choice<Integer>() {
+			@Override
+			public Integer choose(final DecisionProvider provider) {
+				return provider.chooseNumAttackingArmies(session, player, attackingTerritory, defendingTerritory, max);
+			}
+		});
+	}
+
+	@Override
+	public int chooseNumDefendingArmies(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory, final int max) {
+		return decide(player, new Choice<Integer>() {
+			@Override
+			public Integer choose(final DecisionProvider provider) {
+				return provider.chooseNumDefendingArmies(session, player, attackingTerritory, defendingTerritory, max);
+			}
+		});
+	}
+
+	@Override
+	public boolean continueAttack(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory defendingTerritory) {
+		return decide(player, new Choice<Boolean>() {
+			@Override
+			public Boolean choose(final DecisionProvider provider) {
+				return provider.continueAttack(session, player, attackingTerritory, defendingTerritory);
+			}
+		});
+	}
+
+	@Override
+	public int chooseNumArmiesToMove(final GameSession session, final Player player, 
+			final Territory attackingTerritory, final Territory capturedTerritory, final int min, final int max) {
+		return decide(player, new Choice<Integer>() {
+			@Override
+			public Integer choose(final DecisionProvider provider) {
+				return provider.chooseNumArmiesToMove(session, player, attackingTerritory, capturedTerritory, min, max);
+			}
+		});
+	}
+
+	@Override
+	public Territory chooseFortifySource(final GameSession session, final Player player, 
+			final Map<String,Territory> usableTerritories) {
+		return decide(player, new Choice<Territory>() {
+			@Override
+			public Territory choose(final DecisionProvider provider) {
+				return provider.chooseFortifySource(session, player, usableTerritories);
+			}
+		});
+	}
+
+	@Override
+	public Territory chooseFortifyTarget(final GameSession session, final Player player, 
+			final Territory sourceTerritory, final Map<String,Territory> fortifiableTerritories) {
+		return decide(player, new Choice<Territory>() {
+			@Override
+			public Territory choose(final DecisionProvider provider) {
+				return provider.chooseFortifyTarget(session, player, sourceTerritory, fortifiableTerritories);
+			}
+		});
+	}
+
+	@Override
+	public int chooseNumArmiesToFortify(final GameSession session, final Player player, 
+			final Territory sourceTerritory, final Territory targetTerritory, final int max) {
+		return decide(player, new Choice<Integer>() {
+			@Override
+			public Integer choose(final DecisionProvider provider) {
+				return provider.chooseNumArmiesToFortify(session, player, sourceTerritory, targetTerritory, max);
+			}
+		});
+	}
+
+	/**
+	 * Asks the player while they're connected, and the fallback once they've gone.
+	 */
+	private <T> T decide(final Player player, final Choice<T> choice) {
+		if (this.connection.isConnected()) {
+			this.connection.bind();
+			try {
+				return choice.choose(this.console);
+			} catch (IllegalStateException ise) {
+				disconnected(player);
+			} finally {
+				IOUtils.unbindTerminal();
+			}
+		}
+		return choice.choose(this.fallback);
+	}
+	
+	private void disconnected(final Player player) {
+		this.connection.close();
+		this.table.printf("%s has disconnected; the computer will play on for them.%n", player.getName());
+	}
+
+	/**
+	 * One of the {@link DecisionProvider} calls, to make of whichever provider is deciding.
+	 */
+	private interface Choice<T> {
+		T choose(DecisionProvider provider);
+	}
+}
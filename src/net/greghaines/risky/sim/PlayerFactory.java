@@ -0,0 +1,18 @@
+package net.greghaines.risky.sim;
+
+import java.util.Random;
+
+import net.greghaines.risky.model.Player;
+
+/**
+ * Creates the players for each simulated game.
+ */
+public interface PlayerFactory {
+
+	/**
+	 * @param playerID the ID to give the player, starting from 1
+	 * @param random the game's source of randomness
+	 * @return a player whose decisions don't need a terminal
+	 */
+	Player createPlayer(int playerID, Random random);
+}
@@ -0,0 +1,146 @@
+package net.greghaines.risky.sim;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.greghaines.risky.model.GameSession;
+import net.greghaines.risky.model.Player;
+
+/**
+ * Aggregate results of a batch of simulated games. 
+ * Instances are not thread-safe; each worker fills its own and they are merged afterwards.
+ */
+public class SimulationResults {
+	
+	private final int numPlayers;
+	private final long[] winsBySeat;
+	private final long[] winsByPlayerID;
+	private long[] eliminationsByRound = new long[64];
+	private long numGames = 0;
+	private long numUnfinished = 0;
+	private long totalRounds = 0;
+	private int minRounds = Integer.MAX_VALUE;
+	private int maxRounds = 0;
+	
+	public SimulationResults(final int numPlayers) {
+		this.numPlayers = numPlayers;
+		this.winsBySeat = new long[numPlayers];
+		this.winsByPlayerID = new long[numPlayers];
+	}
+	
+	public void addGame(final GameSession session) {
+		final List<Player> turnOrder = session.getPlayers();
+		final Player victor = session.getVictor();
+		if (victor == null) {
+			this.numUnfinished++;
+		} else {
+			this.winsBySeat[turnOrder.indexOf(victor)]++;
+			this.winsByPlayerID[victor.getPlayerID() - 1]++;
+		}
+		final int rounds = session.getRoundNum();
+		this.numGames++;
+		this.totalRounds += rounds;
+		this.minRounds = Math.min(this.minRounds, rounds);
+		this.maxRounds = Math.max(this.maxRounds, rounds);
+		for (final int round : session.getEliminationRounds()) {
+			ensureRoundCapacity(round);
+			this.eliminationsByRound[round]++;
+		}
+	}
+	
+	public void merge(final SimulationResults other) {
+		for (int i = 0; i < this.numPlayers; i++) {
+			this.winsBySeat[i] += other.winsBySeat[i];
+			this.winsByPlayerID[i] += other.winsByPlayerID[i];
+		}
+		ensureRoundCapacity(other.eliminationsByRound.length - 1);
+		for (int i = 0; i < other.eliminationsByRound.length; i++) {
+			this.eliminationsByRound[i] += other.eliminationsByRound[i];
+		}
+		this.numGames += other.numGames;
+		this.numUnfinished += other.numUnfinished;
+		this.totalRounds += other.totalRounds;
+		this.minRounds = Math.min(this.minRounds, other.minRounds);
+		this.maxRounds = Math.max(this.maxRounds, other.maxRounds);
+	}
+
+	private void ensureRoundCapacity(final int round) {
+		if (round >= this.eliminationsByRound.length) {
+			this.eliminationsByRound = Arrays.copyOf(this.eliminationsByRound, 
+					Math.max(round + 1, this.eliminationsByRound.length * 2));
+		}
+	}
+
+	public int getNumPlayers() {
+		return this.numPlayers;
+	}
+
+	public long getNumGames() {
+		return this.numGames;
+	}
+
+	/**
+	 * @return the number of games given up without a victor, which count towards nobody's wins
+	 */
+	public long getNumUnfinished() {
+		return this.numUnfinished;
+	}
+
+	/**
+	 * @param seat the position in the turn order, starting from 0
+	 * @return the fraction of games won by the player who played in that position
+	 */
+	public double getWinRateBySeat(final int seat) {
+		return (this.numGames == 0) ? 0.0 : this.winsBySeat[seat] / (double) this.numGames;
+	}
+
+	/**
+	 * @param playerID the ID given to the player by the {@link PlayerFactory}
+	 * @return the fraction of games won by that player
+	 */
+	public double getWinRateByPlayerID(final int playerID) {
+		return (this.numGames == 0) ? 0.0 : this.winsByPlayerID[playerID - 1] / (double) this.numGames;
+	}
+
+	public double getMeanRounds() {
+		return (this.numGames == 0) ? 0.0 : this.totalRounds / (double) this.numGames;
+	}
+
+	public int getMinRounds() {
+		return (this.numGames == 0) ? 0 : this.minRounds;
+	}
+
+	public int getMaxRounds() {
+		return this.maxRounds;
+	}
+
+	/**
+	 * @return the mean number of players eliminated in each round per game, indexed by round number
+	 */
+	public double[] getEliminationsPerRound() {
+		final double[] perRound = new double[this.maxRounds + 1];
+		for (int i = 0; i < perRound.length && i < this.eliminationsByRound.length; i++) {
+			perRound[i] = (this.numGames == 0) ? 0.0 : this.eliminationsByRound[i] / (double) this.numGames;
+		}
+		return perRound;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder buf = new StringBuilder(256);
+		buf.append("games=").append(this.numGames);
+		if (this.numUnfinished > 0) {
+			buf.append(", unfinished=").append(this.numUnfinished);
+		}
+		buf.append(", rounds(mean=").append(String.format("%.1f", getMeanRounds()))
+			.append(",min=").append(getMinRounds())
+			.append(",max=").append(this.maxRounds)
+			.append("), winRateBySeat=[");
+		String prefix = "";
+		for (int i = 0; i < this.numPlayers; i++) {
+			buf.append(prefix).append(String.format("%.3f", getWinRateBySeat(i)));
+			prefix = ", ";
+		}
+		return buf.append("]").toString();
+	}
+}
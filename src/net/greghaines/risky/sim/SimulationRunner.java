@@ -0,0 +1,119 @@
+package net.greghaines.risky.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import net.greghaines.risky.model.GameSession;
+import net.greghaines.risky.model.Player;
+import net.greghaines.risky.utils.NullOutputSink;
+
+/**
+ * Plays many complete headless games in parallel on a fork-join pool. 
+ * Every game gets its own generator seeded from the batch seed and the game's index, 
+ * so results are reproducible no matter how the games are scheduled across threads.
+ */
+public class SimulationRunner {
+	
+	/** More rounds than any game between sensible players lasts. */
+	public static final int DEFAULT_MAX_ROUNDS = 10000;
+	
+	private static final int GAMES_PER_TASK = 16;
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private final int numPlayers;
+	private final PlayerFactory playerFactory;
+	private final int parallelism;
+	private final int maxRounds;
+
+	public SimulationRunner(final int numPlayers, final PlayerFactory playerFactory) {
+		this(numPlayers, playerFactory, Runtime.getRuntime().availableProcessors());
+	}
+
+	public SimulationRunner(final int numPlayers, final PlayerFactory playerFactory, final int parallelism) {
+		this(numPlayers, playerFactory, parallelism, DEFAULT_MAX_ROUNDS);
+	}
+
+	/**
+	 * @param maxRounds games still going after this many rounds are given up and counted as unfinished
+	 */
+	public SimulationRunner(final int numPlayers, final PlayerFactory playerFactory, final int parallelism, 
+			final int maxRounds) {
+		if (maxRounds < 1) {
+			throw new IllegalArgumentException("maxRounds must be positive: " + maxRounds);
+		}
+		if (numPlayers < GameSession.MIN_PLAYERS || numPlayers > GameSession.MAX_PLAYERS) {
+			throw new IllegalArgumentException("A game needs " + GameSession.MIN_PLAYERS + "-" + 
+					GameSession.MAX_PLAYERS + " players (numPlayers=" + numPlayers + ")");
+		}
+		this.numPlayers = numPlayers;
+		this.playerFactory = playerFactory;
+		this.parallelism = parallelism;
+		this.maxRounds = maxRounds;
+	}
+	
+	public SimulationResults run(final int numGames, final long seed) {
+		final ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		try {
+			return pool.invoke(new GamesTask(seed, 0, numGames));
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	public GameSession playGame(final long seed, final int gameIndex) {
+		final Random random = new Random(gameSeed(seed, gameIndex));
+		final List<Player> players = new ArrayList<Player>(this.numPlayers);
+		for (int i = 0; i < this.numPlayers; i++) {
+			players.add(this.playerFactory.createPlayer(i + 1, random));
+		}
+		final GameSession session = new GameSession(players, NullOutputSink.INSTANCE, random);
+		session.play(this.maxRounds);
+		return session;
+	}
+
+	/**
+	 * SplitMix64 finalizer, so neighbouring game indexes get unrelated seeds.
+	 */
+	private static long gameSeed(final long seed, final int gameIndex) {
+		long z = seed + ((gameIndex + 1) * GOLDEN_GAMMA);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	private class GamesTask extends RecursiveTask<SimulationResults> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final long seed;
+		private final int from;
+		private final int to;
+		
+		public GamesTask(final long seed, final int from, final int to) {
+			this.seed = seed;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected SimulationResults compute() {
+			final SimulationResults results;
+			if (this.to - this.from <= GAMES_PER_TASK) {
+				results = new SimulationResults(SimulationRunner.this.numPlayers);
+				for (int i = this.from; i < this.to; i++) {
+					results.addGame(playGame(this.seed, i));
+				}
+			} else {
+				final int mid = (this.from + this.to) >>> 1;
+				final GamesTask left = new GamesTask(this.seed, this.from, mid);
+				left.fork();
+				results = new GamesTask(this.seed, mid, this.to).compute();
+				results.merge(left.join());
+			}
+			return results;
+		}
+	}
+}
@@ -1,12 +1,35 @@
 package net.greghaines.risky.utils;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
+/**
+ * Combinations of 'k' items out of 'n', either collected eagerly or streamed one at a time.
+ * The streaming forms keep a constant amount of state, so a caller that stops at the first
+ * combination it likes only pays for the ones it looked at.
+ * @author Greg Haines
+ */
 public final class Combinations {
-	
+
+	/** The most items a {@link MaskIterator} can choose from. */
+	public static final int MAX_MASK_ITEMS = Long.SIZE;
+
+	/** BINOMIALS[n][k] is n choose k; every one of them up to 64 fits in a long. */
+	private static final long[][] BINOMIALS = new long[MAX_MASK_ITEMS + 1][];
+
+	static {
+		for (int n = 0; n <= MAX_MASK_ITEMS; n++) {
+			BINOMIALS[n] = new long[n + 1];
+			BINOMIALS[n][0] = 1;
+			BINOMIALS[n][n] = 1;
+			for (int k = 1; k < n; k++) {
+				BINOMIALS[n][k] = BINOMIALS[n - 1][k - 1] + BINOMIALS[n - 1][k];
+			}
+		}
+	}
+
 	/**
 	 * Create all combinations of size 'k' from the given list.
 	 * @param list the source list
@@ -14,29 +37,206 @@ public final class Combinations {
 	 * @return the list of combinations
 	 */
 	public static <T> List<List<T>> combinations(final List<T> list, final int k) {
-		final int[] tmp = new int[k];
-		Arrays.fill(tmp, -1);
-		final List<List<T>> results = new LinkedList<List<T>>();
-		generateCombinations(list, 0, 0, tmp, results);
+		final List<List<T>> results = new ArrayList<List<T>>();
+		final IndexIterator iter = indexCombinations(list.size(), k);
+		while (iter.hasNext()) {
+			final int[] indices = iter.next();
+			final List<T> combo = new ArrayList<T>(k);
+			for (final int index : indices) {
+				combo.add(list.get(index));
+			}
+			results.add(combo);
+		}
 		return results;
 	}
 
-	private static <T> void generateCombinations(final List<T> list, final int start, 
-			final int depth, final int[] tmp, final List<List<T>> results) {
-        if (depth == tmp.length) {
-        	final List<T> combo = new ArrayList<T>(depth);
-            for (int j = 0; j < depth; j++) {
-                combo.add(list.get(tmp[j]));
-            }
-            results.add(combo);
-        } else {
-	        for (int i = start; i < list.size(); i++) {
-	            tmp[depth] = i;
-	            generateCombinations(list, i + 1, depth + 1, tmp, results);
-	        }
-	    }
-	}
-	
+	/**
+	 * Streams the combinations of size 'k' of the indices 0 to n-1, in lexicographic order.
+	 * @param n the number of items to choose from
+	 * @param k the combination size
+	 * @return an iterator that hands back the same array each time, refilled
+	 */
+	public static IndexIterator indexCombinations(final int n, final int k) {
+		if (n < 0 || k < 0) {
+			throw new IllegalArgumentException("n and k must not be negative (n=" + n + ",k=" + k + ")");
+		}
+		return new IndexIterator(n, k);
+	}
+
+	/**
+	 * Streams the combinations of size 'k' of 'n' items as bitmasks, in increasing numeric order,
+	 * stepping from one to the next with Gosper's hack.
+	 * @param n the number of items to choose from, at most {@value #MAX_MASK_ITEMS}
+	 * @param k the combination size
+	 * @return an iterator over the masks
+	 */
+	public static MaskIterator maskCombinations(final int n, final int k) {
+		if (n < 0 || n > MAX_MASK_ITEMS || k < 0) {
+			throw new IllegalArgumentException("n must be 0-" + MAX_MASK_ITEMS +
+					" and k must not be negative (n=" + n + ",k=" + k + ")");
+		}
+		return (k > n) ? new MaskIterator(0L, 0L) : new MaskIterator(unrank(0L, k), BINOMIALS[n][k]);
+	}
+
+	/**
+	 * @param n the number of items to choose from, at most {@value #MAX_MASK_ITEMS}
+	 * @param k the combination size
+	 * @return n choose k
+	 */
+	public static long binomial(final int n, final int k) {
+		if (n < 0 || n > MAX_MASK_ITEMS) {
+			throw new IllegalArgumentException("n must be 0-" + MAX_MASK_ITEMS + " (n=" + n + ")");
+		}
+		return (k < 0 || k > n) ? 0L : BINOMIALS[n][k];
+	}
+
+	/**
+	 * Masks in increasing order are the combinations in colexicographic order, where the rank
+	 * of a mask with bits c_k > ... > c_1 is the sum of C(c_i, i). Unranking picks the bits
+	 * greedily from the top.
+	 */
+	private static long unrank(final long rank, final int k) {
+		long rest = rank;
+		long mask = 0L;
+		int c = MAX_MASK_ITEMS - 1;
+		for (int i = k; i > 0; i--) {
+			while (c >= i && BINOMIALS[c][i] > rest) {
+				c--;
+			}
+			if (c >= i) {
+				rest -= BINOMIALS[c][i];
+			} // Else c is i-1 and every lower bit is needed from here on
+			mask |= 1L << c;
+			c--;
+		}
+		return mask;
+	}
+
+	/**
+	 * Walks index combinations without recursion. Each call to {@link #next()} returns the same
+	 * array, so copy it if it needs to outlive the step.
+	 */
+	public static final class IndexIterator implements Iterator<int[]> {
+
+		private final int n;
+		private final int[] indices;
+		private boolean hasNext;
+		private boolean started = false;
+
+		private IndexIterator(final int n, final int k) {
+			this.n = n;
+			this.indices = new int[k];
+			for (int i = 0; i < k; i++) {
+				this.indices[i] = i;
+			}
+			this.hasNext = (k <= n);
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.started && this.hasNext) {
+				this.started = false;
+				this.hasNext = advance();
+			}
+			return this.hasNext;
+		}
+
+		@Override
+		public int[] next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.started = true;
+			return this.indices;
+		}
+
+		private boolean advance() {
+			final int k = this.indices.length;
+			int i = k - 1;
+			while (i >= 0 && this.indices[i] == (this.n - k + i)) {
+				i--;
+			}
+			if (i >= 0) {
+				this.indices[i]++;
+				for (int j = i + 1; j < k; j++) {
+					this.indices[j] = this.indices[j - 1] + 1;
+				}
+			}
+			return (i >= 0);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Walks a range of combination masks. The range can be cut in two with {@link #trySplit()},
+	 * so the work can be shared out to a fork-join pool the way a Spliterator would be.
+	 */
+	public static final class MaskIterator {
+
+		private long mask;
+		private long remaining;
+
+		private MaskIterator(final long mask, final long remaining) {
+			this.mask = mask;
+			this.remaining = remaining;
+		}
+
+		public boolean hasNext() {
+			return (this.remaining > 0);
+		}
+
+		public long nextMask() {
+			if (this.remaining <= 0) {
+				throw new NoSuchElementException();
+			}
+			final long current = this.mask;
+			if (--this.remaining > 0) {
+				// Gosper's hack: move the lowest run of ones' top bit up one, the rest to the bottom
+				final long lowest = current & -current;
+				final long ripple = current + lowest;
+				this.mask = (((ripple ^ current) >>> 2) / lowest) | ripple;
+			}
+			return current;
+		}
+
+		/**
+		 * @return how many masks are left
+		 */
+		public long getRemaining() {
+			return this.remaining;
+		}
+
+		/**
+		 * Hands the first half of what's left to a new iterator and keeps the second half.
+		 * @return an iterator over the first half, or null if there's too little left to split
+		 */
+		public MaskIterator trySplit() {
+			MaskIterator prefix = null;
+			if (this.remaining >= 2) {
+				final int k = Long.bitCount(this.mask);
+				final long half = this.remaining >>> 1;
+				prefix = new MaskIterator(this.mask, half);
+				this.mask = unrank(rank(this.mask, k) + half, k);
+				this.remaining -= half;
+			}
+			return prefix;
+		}
+
+		private static long rank(final long mask, final int k) {
+			long rank = 0L;
+			long rest = mask;
+			for (int i = 1; i <= k; i++) {
+				rank += binomial(Long.numberOfTrailingZeros(rest), i);
+				rest &= rest - 1;
+			}
+			return rank;
+		}
+	}
+
 	private Combinations() {
 		// Utility class
 	}
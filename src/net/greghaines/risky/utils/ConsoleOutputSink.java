@@ -0,0 +1,49 @@
+package net.greghaines.risky.utils;
+
+/**
+ * An output sink that writes to the terminal, buffered until the game flushes it or reads input.
+ * @author Greg Haines
+ */
+public final class ConsoleOutputSink implements OutputSink {
+
+	/**
+	 * The shared instance.
+	 */
+	public static final ConsoleOutputSink INSTANCE = new ConsoleOutputSink();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void printf(final String message, final Object... args) {
+		IOUtils.printf(message, args);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void println(final String message) {
+		IOUtils.println(message);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush() {
+		IOUtils.flush();
+	}
+
+	private ConsoleOutputSink() {
+		// Singleton
+	}
+}
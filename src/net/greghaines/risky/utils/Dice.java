@@ -1,38 +1,119 @@
 package net.greghaines.risky.utils;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
 /**
- * A helper class for simulating dice rolls.
+ * A helper class for simulating dice rolls. 
+ * Each game supplies its own source of randomness so that games don't contend on a 
+ * shared generator and can be replayed from a seed. 
+ * The primitive methods draw all of a roll's dice from one random number and sort them 
+ * with a fixed sorting network, so rolling allocates nothing.
  * @author Greg Haines
  */
 public final class Dice {
-
-	private static final Random RANDOM = new Random();
+	
+	/**
+	 * The most dice rolled at once.
+	 */
+	public static final int MAX_DICE = 3;
+	
+	private static final int[] OUTCOMES = { 1, 6, 36, 216 };
+	private static final int PACKED_BITS = 4;
+	private static final int PACKED_MASK = (1 << PACKED_BITS) - 1;
 
 	/**
 	 * Simulate rolling dice.
+	 * @param random the game's source of randomness
 	 * @param numDice the number of dice to roll
 	 * @return a list of psuedo-random integers between 1 and 6, inclusive, sorted in descending order
 	 */
-	public static List<Integer> rollDice(final int numDice) {
-		final List<Integer> rolls = new ArrayList<Integer>(numDice);
+	public static List<Integer> rollDice(final Random random, final int numDice) {
+		final int[] rolls = new int[numDice];
+		rollDice(random, rolls, numDice);
+		final List<Integer> rollList = new ArrayList<Integer>(numDice);
+		for (final int roll : rolls) {
+			rollList.add(roll);
+		}
+		return rollList;
+	}
+
+	/**
+	 * Simulate rolling dice into a caller-supplied array.
+	 * @param random the game's source of randomness
+	 * @param rolls the array to fill; must hold at least numDice values
+	 * @param numDice the number of dice to roll (1-3)
+	 */
+	public static void rollDice(final Random random, final int[] rolls, final int numDice) {
+		final int packed = rollDicePacked(random, numDice);
 		for (int i = 0; i < numDice; i++) {
-			rolls.add(rollDie());
+			rolls[i] = getPackedDie(packed, i);
+		}
+	}
+
+	/**
+	 * Simulate rolling dice, packing the results into a single integer.
+	 * @param random the game's source of randomness
+	 * @param numDice the number of dice to roll (1-3)
+	 * @return the rolls, sorted in descending order, 4 bits per die with the highest in the lowest bits
+	 * @see #getPackedDie(int, int)
+	 */
+	public static int rollDicePacked(final Random random, final int numDice) {
+		if (numDice < 1 || numDice > MAX_DICE) {
+			throw new IllegalArgumentException("numDice must be 1-" + MAX_DICE + " (numDice=" + numDice + ")");
 		}
-		Collections.sort(rolls, Collections.reverseOrder()); // Sort high to low
-		return rolls;
+		int n = random.nextInt(OUTCOMES[numDice]);
+		int a = (n % 6) + 1;
+		int b = 0;
+		int c = 0;
+		if (numDice > 1) {
+			n /= 6;
+			b = (n % 6) + 1;
+			if (numDice > 2) {
+				c = (n / 6) + 1;
+				// Sorting network for three: (b,c), (a,c), (a,b)
+				if (b < c) { final int t = b; b = c; c = t; }
+				if (a < c) { final int t = a; a = c; c = t; }
+			}
+			if (a < b) { final int t = a; a = b; b = t; }
+		}
+		return a | (b << PACKED_BITS) | (c << (2 * PACKED_BITS));
+	}
+
+	/**
+	 * @param packed rolls from {@link #rollDicePacked(Random, int)}
+	 * @param index the position of the die in the sorted rolls (0 is the highest)
+	 * @return the die's value or 0 if fewer dice were rolled
+	 */
+	public static int getPackedDie(final int packed, final int index) {
+		return (packed >>> (index * PACKED_BITS)) & PACKED_MASK;
 	}
 
 	/**
 	 * Simulate rolling a single die.
+	 * @param random the game's source of randomness
 	 * @return a psuedo-random integer between 1 and 6, inclusive
 	 */
-	public static int rollDie() {
-		return RANDOM.nextInt(6) + 1;
+	public static int rollDie(final Random random) {
+		return random.nextInt(6) + 1;
+	}
+
+	/**
+	 * @param rolls the rolls
+	 * @param numDice the number of rolls to show
+	 * @return the rolls formatted like a list (e.g.: "[6, 3, 1]")
+	 */
+	public static String toString(final int[] rolls, final int numDice) {
+		final StringBuilder buf = new StringBuilder(3 * numDice + 2);
+		buf.append('[');
+		for (int i = 0; i < numDice; i++) {
+			if (i > 0) {
+				buf.append(", ");
+			}
+			buf.append(rolls[i]);
+		}
+		return buf.append(']').toString();
 	}
 	
 	private Dice(){
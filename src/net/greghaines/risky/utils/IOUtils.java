@@ -1,19 +1,77 @@
 package net.greghaines.risky.utils;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.Console;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
 /**
- * Utility methods for reading from and writing to the terminal.
+ * Utility methods for reading from and writing to the terminal. A thread can have its own 
+ * terminal bound instead, such as a remote player's connection, so that many games can 
+ * prompt their players at once.
  * @author Greg Haines
  */
 public final class IOUtils {
+	
+	/** Looked up once; the terminal doesn't come or go while the game runs. */
+	private static final Console CONSOLE = System.console();
+	/** Buffered, so it's flushed before every read and whenever a sink asks. */
+	private static final PrintWriter TERMINAL = (CONSOLE == null) 
+			? new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)), false) 
+			: CONSOLE.writer();
+	
+	/** Shared so that nothing it reads ahead is lost between calls. */
+	private static BufferedReader input = null;
+	private static boolean echoInput = false;
+	/** Overrides the terminal for the threads that have one bound. */
+	private static final ThreadLocal<BoundTerminal> BOUND_TERMINAL = new ThreadLocal<BoundTerminal>();
+	
+	/**
+	 * Reads from and writes to the given reader and writer instead of the terminal, 
+	 * for the current thread only, until {@link #unbindTerminal()} is called.
+	 * @param reader where to read answers from, one per line
+	 * @param writer where to write prompts and messages
+	 */
+	public static void bindTerminal(final BufferedReader reader, final PrintWriter writer) {
+		BOUND_TERMINAL.set(new BoundTerminal(reader, writer));
+	}
+	
+	/**
+	 * Goes back to the terminal for the current thread.
+	 */
+	public static void unbindTerminal() {
+		BOUND_TERMINAL.remove();
+	}
+	
+	private static PrintWriter getWriter() {
+		final BoundTerminal bound = BOUND_TERMINAL.get();
+		return (bound == null) ? TERMINAL : bound.writer;
+	}
+
+	/**
+	 * Reads all further input from the given reader instead of the terminal, e.g. to replay a 
+	 * recorded game from a script file. Each line read is echoed after its prompt.
+	 * @param reader one answer per line
+	 */
+	public static synchronized void setInput(final Reader reader) {
+		input = (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+		echoInput = true;
+	}
+
+	private static synchronized BufferedReader getInput() {
+		if (input == null) {
+			input = new BufferedReader(new InputStreamReader(System.in));
+		}
+		return input;
+	}
 
 	/**
 	 * Prints the prompt and then reads an integer from the terminal in the range of min to max, inclusive.
@@ -95,12 +153,7 @@ public final class IOUtils {
 	 * @param args optional arguments for the formatted string
 	 */
 	public static void printf(final String message, final Object... args) {
-		final Console console = System.console();
-		if (console == null) {
-			System.out.printf(message, args);
-		} else {
-			console.printf(message, args);
-		}
+		getWriter().printf(message, args);
 	}
 
 	/**
@@ -108,12 +161,14 @@ public final class IOUtils {
 	 * @param message the message to print
 	 */
 	public static void println(final String message) {
-		final Console console = System.console();
-		if (console == null) {
-			System.out.println(message);
-		} else {
-			console.printf("%s%n", message);
-		}
+		getWriter().println(message);
+	}
+
+	/**
+	 * Writes out anything printed to the terminal that is still buffered.
+	 */
+	public static void flush() {
+		getWriter().flush();
 	}
 
 	/**
@@ -121,21 +176,28 @@ public final class IOUtils {
 	 * @param prompt a printf-style formatted prompt
 	 * @param args optional arguments for the formatted prompt
 	 * @return the line read from the terminal
+	 * @throws IllegalStateException if there is no more input
 	 */
 	public static String readLine(final String prompt, final Object... args) {
 		String line = null;
-		final Console console = System.console();
-		if (console == null) {
-			System.out.printf(prompt, args);
-			final BufferedReader bufferedReader = new BufferedReader(
-					new InputStreamReader(System.in));
+		final BoundTerminal bound = BOUND_TERMINAL.get();
+		flush();
+		if (bound == null && CONSOLE != null && input == null) {
+			line = CONSOLE.readLine(prompt, args);
+		} else {
+			printf(prompt, args);
+			flush();
 			try {
-				line = bufferedReader.readLine();
+				line = (bound == null) ? getInput().readLine() : bound.reader.readLine();
 			} catch (IOException ioe) {
-				// Ignore
+				throw new IllegalStateException("Could not read input", ioe);
 			}
-		} else {
-			line = console.readLine(prompt, args);
+			if (bound == null && echoInput && line != null) {
+				println(line);
+			}
+		}
+		if (line == null) {
+			throw new IllegalStateException("There is no more input");
 		}
 		return line;
 	}
@@ -190,6 +252,17 @@ public final class IOUtils {
 		return selection;
 	}
 
+	private static final class BoundTerminal {
+		
+		private final BufferedReader reader;
+		private final PrintWriter writer;
+		
+		private BoundTerminal(final BufferedReader reader, final PrintWriter writer) {
+			this.reader = reader;
+			this.writer = writer;
+		}
+	}
+
 	private IOUtils(){
 		// Utility class
 	}
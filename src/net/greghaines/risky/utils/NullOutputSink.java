@@ -0,0 +1,49 @@
+package net.greghaines.risky.utils;
+
+/**
+ * An output sink that discards everything, for games that nobody is watching.
+ * @author Greg Haines
+ */
+public final class NullOutputSink implements OutputSink {
+
+	/**
+	 * The shared instance.
+	 */
+	public static final NullOutputSink INSTANCE = new NullOutputSink();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEnabled() {
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void printf(final String message, final Object... args) {
+		// Discard
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void println(final String message) {
+		// Discard
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush() {
+		// Nothing is buffered
+	}
+
+	private NullOutputSink() {
+		// Singleton
+	}
+}
@@ -0,0 +1,33 @@
+package net.greghaines.risky.utils;
+
+/**
+ * A destination for the game's messages. 
+ * Messages are formatted by the sink, so a sink nobody is listening to never pays for formatting; 
+ * callers that have to work to build the arguments should check {@link #isEnabled()} first.
+ * @author Greg Haines
+ */
+public interface OutputSink {
+
+	/**
+	 * @return true if messages written to this sink will be seen by anybody
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Writes a formatted message.
+	 * @param message a printf-style formatted message
+	 * @param args optional arguments for the formatted string
+	 */
+	void printf(String message, Object... args);
+
+	/**
+	 * Writes a message followed by a line separator.
+	 * @param message the message to write
+	 */
+	void println(String message);
+
+	/**
+	 * Makes sure everything written so far has been passed on, for sinks that batch their output.
+	 */
+	void flush();
+}
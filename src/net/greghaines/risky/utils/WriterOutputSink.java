@@ -0,0 +1,76 @@
+package net.greghaines.risky.utils;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * An output sink that writes to any character or byte stream, such as a log file or a 
+ * player's network connection. Output is buffered until {@link #flush()}. 
+ * Like a PrintWriter, it never throws; check {@link #checkError()} to find out if the 
+ * other end has gone away.
+ * @author Greg Haines
+ */
+public class WriterOutputSink implements OutputSink {
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	private final PrintWriter writer;
+
+	/**
+	 * @param writer where to write the messages
+	 */
+	public WriterOutputSink(final Writer writer) {
+		this.writer = new PrintWriter(new BufferedWriter(writer), false);
+	}
+
+	/**
+	 * @param out where to write the messages, encoded as UTF-8
+	 */
+	public WriterOutputSink(final OutputStream out) {
+		this(new OutputStreamWriter(out, UTF_8));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void printf(final String message, final Object... args) {
+		this.writer.printf(message, args);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void println(final String message) {
+		this.writer.println(message);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush() {
+		this.writer.flush();
+	}
+	
+	/**
+	 * Flushes the sink and reports whether writing to it has ever failed.
+	 * @return true if the underlying stream has failed
+	 */
+	public boolean checkError() {
+		return this.writer.checkError();
+	}
+}